@@ -0,0 +1,136 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// -------------------- Arquivo de pedidos antigos --------------------
+// Anos letivos encerrados (ano letivo = ano civil) saem de pedido/pedido_item e vão
+// para pedido_arquivo/pedido_item_arquivo, mesmas colunas e mesmos ids, no mesmo
+// banco. O caixa, o painel e a conta do cliente só leem as tabelas vivas, que
+// ficam com o ano corrente; o balanço junta o arquivo só quando o período pedido
+// começa antes do limite (ver ConsultaBalanco).
+// A mudança é feita em lotes de 500 pedidos, uma transação por lote, com uma pausa
+// entre eles para os caixas não esperarem. Cada pedido está sempre em exatamente
+// uma das duas tabelas, então interromper no meio não perde nem duplica nada: o
+// que ficou para trás continua no vivo e sai na próxima vez.
+// Pedidos "Em aberto" nunca são arquivados: a quitação (ContaCliente) os procura no vivo.
+public class ArquivoPedidos {
+
+    static final int TAMANHO_LOTE = 500;
+    static final long PAUSA_ENTRE_LOTES_MS = 20;
+
+    public record AnoLetivo(int ano, int pedidos) {}
+
+    public record Resultado(int pedidos, int itens, boolean interrompido) {}
+
+    // Chamado depois de cada lote com o total até ali; devolve false para parar.
+    public interface Andamento {
+        boolean movidos(int pedidos, int itens);
+    }
+
+    private static final String COLUNAS_PEDIDO = "id, funcionario_id, cliente_id, valor_total, forma_pagamento, data";
+    private static final String COLUNAS_ITEM = "id, pedido_id, produto_id, quantidade, preco_unitario";
+
+    private final PoolConexoes pool;
+
+    public ArquivoPedidos(PoolConexoes pool) {
+        this.pool = pool;
+    }
+
+    // Primeiro dia que com certeza não está no arquivo; null se nada foi arquivado.
+    public static LocalDate limite(PoolConexoes.Conexao c) throws SQLException {
+        try (ResultSet rs = c.preparar("SELECT MAX(limite) FROM arquivo_limite").executeQuery()) {
+            Date d = rs.next() ? rs.getDate(1) : null;
+            return d == null ? null : d.toLocalDate();
+        }
+    }
+
+    // Anos já encerrados que ainda têm pedidos fechados nas tabelas vivas.
+    public List<AnoLetivo> anosArquivaveis() throws SQLException {
+        return pool.executar(c -> {
+            PreparedStatement ps = c.preparar("""
+                    SELECT YEAR(data), COUNT(*) FROM pedido
+                    WHERE data < ? AND COALESCE(forma_pagamento, '') <> ?
+                    GROUP BY YEAR(data) ORDER BY YEAR(data)
+                    """);
+            ps.setTimestamp(1, Timestamp.valueOf(inicioAnoCorrente().atStartOfDay()));
+            ps.setString(2, ContaCliente.EM_ABERTO);
+            List<AnoLetivo> anos = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) anos.add(new AnoLetivo(rs.getInt(1), rs.getInt(2)));
+            }
+            return anos;
+        });
+    }
+
+    // Arquiva os pedidos fechados até o fim de ultimoAno. Para entre dois lotes quando
+    // o andamento pede; interromper a thread no meio de um comando fecharia o arquivo do H2.
+    public Resultado arquivarAte(int ultimoAno, Andamento andamento) throws SQLException {
+        LocalDate limite = LocalDate.of(ultimoAno + 1, 1, 1);
+        if (limite.isAfter(inicioAnoCorrente())) {
+            throw new IllegalArgumentException("O ano letivo " + ultimoAno + " ainda não terminou.");
+        }
+        // O limite é gravado antes de mover: a partir daqui o balanço desse período já
+        // consulta as duas tabelas, e cada lote aparece numa ou noutra, nunca em nenhuma.
+        pool.transacao(c -> {
+            PreparedStatement ps = c.preparar("""
+                    MERGE INTO arquivo_limite (id, limite) KEY(id)
+                    SELECT 1, GREATEST(COALESCE(MAX(limite), CAST(? AS DATE)), CAST(? AS DATE)) FROM arquivo_limite
+                    """);
+            ps.setDate(1, Date.valueOf(limite));
+            ps.setDate(2, Date.valueOf(limite));
+            return ps.executeUpdate();
+        });
+
+        int pedidos = 0, itens = 0;
+        while (true) {
+            int[] lote = pool.transacao(c -> moverLote(c, limite));
+            if (lote[0] == 0) return new Resultado(pedidos, itens, false);
+            pedidos += lote[0];
+            itens += lote[1];
+            if (andamento != null && !andamento.movidos(pedidos, itens)) return new Resultado(pedidos, itens, true);
+            try {
+                Thread.sleep(PAUSA_ENTRE_LOTES_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Resultado(pedidos, itens, true);
+            }
+        }
+    }
+
+    // Um lote: escolhe os ids uma vez e usa a mesma lista nos quatro comandos.
+    private static int[] moverLote(PoolConexoes.Conexao c, LocalDate limite) throws SQLException {
+        PreparedStatement escolher = c.preparar("SELECT id FROM pedido WHERE data < ? AND COALESCE(forma_pagamento, '') <> ? LIMIT ?");
+        escolher.setTimestamp(1, Timestamp.valueOf(limite.atStartOfDay()));
+        escolher.setString(2, ContaCliente.EM_ABERTO);
+        escolher.setInt(3, TAMANHO_LOTE);
+        List<Integer> ids = new ArrayList<>(TAMANHO_LOTE);
+        try (ResultSet rs = escolher.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        if (ids.isEmpty()) return new int[]{0, 0};
+        return mover(c, ids.toArray(new Integer[0]));
+    }
+
+    // Passa os pedidos dados, com os itens, das tabelas vivas para as de arquivo; {pedidos, itens}.
+    // Também na cópia de relatórios (ReplicaRelatorios), repetindo o que o banco principal moveu.
+    static int[] mover(PoolConexoes.Conexao c, Integer[] lote) throws SQLException {
+        executar(c, "INSERT INTO pedido_arquivo (" + COLUNAS_PEDIDO + ") SELECT " + COLUNAS_PEDIDO
+                + " FROM pedido WHERE id = ANY(?)", lote);
+        int itens = executar(c, "INSERT INTO pedido_item_arquivo (" + COLUNAS_ITEM + ") SELECT " + COLUNAS_ITEM
+                + " FROM pedido_item WHERE pedido_id = ANY(?)", lote);
+        executar(c, "DELETE FROM pedido_item WHERE pedido_id = ANY(?)", lote);
+        int pedidos = executar(c, "DELETE FROM pedido WHERE id = ANY(?)", lote);
+        return new int[]{pedidos, itens};
+    }
+
+    private static int executar(PoolConexoes.Conexao c, String sql, Integer[] ids) throws SQLException {
+        PreparedStatement ps = c.preparar(sql);
+        ps.setObject(1, ids);
+        return ps.executeUpdate();
+    }
+
+    private static LocalDate inicioAnoCorrente() {
+        return LocalDate.now().withDayOfYear(1);
+    }
+}
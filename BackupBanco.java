@@ -0,0 +1,436 @@
+import org.h2.tools.Csv;
+import org.h2.tools.Restore;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// -------------------- Backup com o banco aberto --------------------
+// Completo: BACKUP TO do H2, que copia o arquivo do MVStore para um zip enquanto o
+// banco continua em uso (o MVStore para de reaproveitar espaço durante a cópia; não
+// trava tabela nem linha, então o caixa segue vendendo). Incremental: só os pedidos
+// e itens novos desde o último backup, exportados em CSV dentro de um zip, numa
+// transação REPEATABLE_READ (uma fotografia só das duas tabelas).
+// Arquivos em backup.dir (cantina.properties):
+//   cantina-AAAAMMDD-HHMMSS.zip       completo
+//   cantina-AAAAMMDD-HHMMSS-inc.zip   incremental (pedido.csv, pedido_item.csv, em_aberto.csv)
+//   estado.properties                 marca do último backup (maior id de pedido e hora)
+//   backups.log                       uma linha por backup: duração, tamanho e efeito nas vendas
+// Ficam os backup.manter completos mais novos e os incrementais posteriores ao mais antigo deles.
+// Restauração (restaurar): o completo mais novo, e sobre ele os incrementais seguintes
+// em ordem. O incremental não leva estoque nem cadastros (vêm do completo); quitações
+// entram pela lista de pedidos em aberto do último incremental.
+// Uso: java -cp .:h2-2.4.240.jar BackupBanco completo|incremental|restaurar <diretório>
+public class BackupBanco implements AutoCloseable {
+
+    // vendasDurante/mediaDuranteMs: vendas gravadas enquanto o backup rodava (métricas
+    // "venda" e "venda · grupo" deste processo); mediaAntesMs: média até o início.
+    public record Resultado(String tipo, File arquivo, long bytes, long duracaoMs, int pedidos, int itens,
+                            long vendasDurante, double mediaDuranteMs, double mediaAntesMs) {
+        public String resumo() {
+            String base = String.format(Locale.ROOT, "%s %s: %d KB em %d ms", tipo, arquivo.getName(), bytes / 1024, duracaoMs);
+            if (tipo.equals("incremental")) base += String.format(Locale.ROOT, ", %d pedidos / %d itens", pedidos, itens);
+            if (vendasDurante == 0) return base + ", nenhuma venda durante";
+            return base + String.format(Locale.ROOT, ", %d vendas durante (média %.1f ms; antes %.1f ms)",
+                    vendasDurante, mediaDuranteMs, mediaAntesMs);
+        }
+    }
+
+    private record Marca(int ultimoPedido, Timestamp hora) {}
+
+    private static final String[] OPERACOES_VENDA = {"venda", "venda · grupo"};
+    private static final DateTimeFormatter NOME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String PREFIXO = "cantina-";
+
+    private final PoolConexoes pool;
+    private final File dir;
+    private final int manter;
+    private final long completoMs;
+    private final long incrementalMs;
+    private ScheduledExecutorService agendador;
+
+    public BackupBanco(PoolConexoes pool, File dir, int manter, long completoMs, long incrementalMs) {
+        this.pool = pool;
+        this.dir = dir;
+        this.manter = manter;
+        this.completoMs = completoMs;
+        this.incrementalMs = incrementalMs;
+    }
+
+    // Chaves backup.* de cantina.properties; null com backup.ativo=false.
+    public static BackupBanco deConfiguracao(PoolConexoes pool) throws IOException {
+        Properties cfg = configuracao();
+        if (!Boolean.parseBoolean(cfg.getProperty("backup.ativo").trim())) return null;
+        return new BackupBanco(pool, new File(cfg.getProperty("backup.dir").trim()),
+                Integer.parseInt(cfg.getProperty("backup.manter").trim()),
+                TimeUnit.HOURS.toMillis(Long.parseLong(cfg.getProperty("backup.completo.horas").trim())),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(cfg.getProperty("backup.incremental.minutos").trim())));
+    }
+
+    private static Properties configuracao() throws IOException {
+        Properties padrao = new Properties();
+        padrao.setProperty("backup.ativo", "true");
+        padrao.setProperty("backup.dir", "backup");
+        padrao.setProperty("backup.manter", "7");
+        padrao.setProperty("backup.completo.horas", "24");
+        padrao.setProperty("backup.incremental.minutos", "60");
+        return PoolConexoes.configuracao(padrao);
+    }
+
+    // Confere a cada minuto se está na hora de um completo ou de um incremental.
+    public synchronized void iniciar() {
+        if (agendador != null) return;
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "backup");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(this::verificar, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // Não interrompe um backup em andamento (interromper o H2 no meio de uma escrita fecha o banco).
+    @Override
+    public synchronized void close() {
+        if (agendador == null) return;
+        agendador.shutdown();
+        try {
+            agendador.awaitTermination(2, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        agendador = null;
+    }
+
+    private void verificar() {
+        try {
+            Properties estado = lerEstado();
+            long agora = System.currentTimeMillis();
+            long completo = Long.parseLong(estado.getProperty("completo", "0"));
+            long ultimo = Long.parseLong(estado.getProperty("ultimo", "0"));
+            boolean incremental;
+            if (agora - completo >= completoMs) incremental = false;
+            else if (agora - ultimo >= incrementalMs) incremental = true;
+            else return;
+            // Outro processo (segundo caixa, servidor) no mesmo diretório fazendo backup: fica para o próximo minuto.
+            try (Trava trava = Trava.tentar(dir)) {
+                if (trava == null) return;
+                executar(incremental);
+            }
+        } catch (Exception e) {
+            registrar("erro\t" + e);
+        }
+    }
+
+    public Resultado completo() throws IOException, SQLException {
+        Trava trava = travar();
+        try {
+            return executar(false);
+        } finally {
+            trava.close();
+        }
+    }
+
+    // Sem completo anterior neste diretório, faz um completo.
+    public Resultado incremental() throws IOException, SQLException {
+        Trava trava = travar();
+        try {
+            return executar(true);
+        } finally {
+            trava.close();
+        }
+    }
+
+    private Trava travar() throws IOException {
+        Trava trava = Trava.tentar(dir);
+        if (trava == null) throw new IOException("Já há um backup em andamento em " + dir + ".");
+        return trava;
+    }
+
+    private Resultado executar(boolean incremental) throws IOException, SQLException {
+        Properties estado = lerEstado();
+        if (estado.getProperty("base") == null) incremental = false;
+        String nome = PREFIXO + LocalDateTime.now().format(NOME) + (incremental ? "-inc" : "") + ".zip";
+        File arquivo = new File(dir, nome);
+        File parcial = new File(dir, nome + ".parcial");
+
+        long[] antes = vendas();
+        long inicio = System.nanoTime();
+        int[] contagem = {0, 0};
+        Marca marca;
+        if (incremental) {
+            Marca anterior = new Marca(Integer.parseInt(estado.getProperty("ultimoPedido")),
+                    new Timestamp(Long.parseLong(estado.getProperty("hora"))));
+            marca = Metricas.medir("backup · incremental", () -> exportar(parcial, anterior, contagem));
+        } else {
+            marca = Metricas.medir("backup", () -> copiar(parcial));
+        }
+        long duracao = System.nanoTime() - inicio;
+        long[] depois = vendas();
+        Files.move(parcial.toPath(), arquivo.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        long agora = System.currentTimeMillis();
+        estado.setProperty("ultimoPedido", String.valueOf(marca.ultimoPedido()));
+        estado.setProperty("hora", String.valueOf(marca.hora().getTime()));
+        estado.setProperty("ultimo", String.valueOf(agora));
+        if (!incremental) {
+            estado.setProperty("base", nome);
+            estado.setProperty("completo", String.valueOf(agora));
+        }
+        gravarEstado(estado);
+
+        long vendasDurante = depois[0] - antes[0];
+        double mediaDurante = vendasDurante == 0 ? 0 : (depois[1] - antes[1]) / 1e6 / vendasDurante;
+        double mediaAntes = antes[0] == 0 ? 0 : antes[1] / 1e6 / antes[0];
+        Resultado r = new Resultado(incremental ? "incremental" : "completo", arquivo, arquivo.length(), duracao / 1_000_000,
+                contagem[0], contagem[1], vendasDurante, mediaDurante, mediaAntes);
+        registrar(r.resumo());
+        rodar();
+        return r;
+    }
+
+    // A marca vem antes da cópia: o que entrar durante ela sai de novo no próximo incremental.
+    private Marca copiar(File parcial) throws SQLException {
+        return pool.executar(c -> {
+            Marca marca = marca(c.jdbc());
+            try (Statement st = c.jdbc().createStatement()) {
+                st.execute("BACKUP TO '" + parcial.getAbsolutePath().replace("'", "''") + "'");
+            }
+            return marca;
+        });
+    }
+
+    // Pedidos a partir do menor id entre os acima da marca anterior e os gravados desde a
+    // hora dela menos a folga de uma transação (id menor que a marca, confirmado depois
+    // dela). Uma faixa de ids e não a lista exata: IN (subconsulta) o H2 reavalia a cada
+    // linha. Pedido que sai de novo só é regravado igual na restauração.
+    private Marca exportar(File parcial, Marca anterior, int[] contagem) throws SQLException {
+        return pool.executar(c -> {
+            Connection conn = c.jdbc();
+            int nivel = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(parcial)))) {
+                Marca marca = marca(conn);
+                int desde = anterior.ultimoPedido() + 1;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT MIN(id) FROM pedido WHERE data >= ?")) {
+                    ps.setTimestamp(1, new Timestamp(anterior.hora().getTime() - ConsultaBalanco.FOLGA_TRANSACAO_MS));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next() && rs.getObject(1) != null) desde = Math.min(desde, rs.getInt(1));
+                    }
+                }
+                contagem[0] = csv(zip, "pedido.csv", conn, "SELECT * FROM pedido WHERE id >= ? ORDER BY id", desde);
+                contagem[1] = csv(zip, "pedido_item.csv", conn, "SELECT * FROM pedido_item WHERE pedido_id >= ? ORDER BY id", desde);
+                csv(zip, "em_aberto.csv", conn, "SELECT id FROM pedido WHERE forma_pagamento = '" + ContaCliente.EM_ABERTO + "'", null);
+                conn.commit();
+                return marca;
+            } catch (IOException e) {
+                throw new SQLException("Erro gravando " + parcial + ": " + e.getMessage(), e);
+            } finally {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                conn.setTransactionIsolation(nivel);
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    private static Marca marca(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0), LOCALTIMESTAMP FROM pedido")) {
+            rs.next();
+            return new Marca(rs.getInt(1), rs.getTimestamp(2));
+        }
+    }
+
+    private static int csv(ZipOutputStream zip, String entrada, Connection conn, String sql, Integer desde)
+            throws SQLException, IOException {
+        zip.putNextEntry(new ZipEntry(entrada));
+        int linhas;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (desde != null) ps.setInt(1, desde);
+            // Csv fecha o Writer no fim; o zip continua aberto para a próxima entrada.
+            Writer out = new OutputStreamWriter(zip, StandardCharsets.UTF_8) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            linhas = new Csv().write(out, ps.executeQuery());
+        }
+        zip.closeEntry();
+        return linhas;
+    }
+
+    // Soma das vendas medidas neste processo: {quantidade, nanos}.
+    private static long[] vendas() {
+        long[] total = {0, 0};
+        for (String op : OPERACOES_VENDA) {
+            Metricas.Resumo r = Metricas.resumo(op);
+            if (r == null) continue;
+            total[0] += r.quantidade();
+            total[1] += Math.round(r.mediaMs() * 1e6 * r.quantidade());
+        }
+        return total;
+    }
+
+    // -------------------- Rotação --------------------
+    private void rodar() {
+        File[] todos = dir.listFiles();
+        if (todos == null) return;
+        List<String> completos = new ArrayList<>();
+        for (File f : todos) {
+            String n = f.getName();
+            if (n.endsWith(".parcial")) f.delete();
+            else if (n.startsWith(PREFIXO) && n.endsWith(".zip") && !n.endsWith("-inc.zip")) completos.add(n);
+        }
+        if (completos.size() <= manter) return;
+        Collections.sort(completos);
+        String maisAntigo = ordem(completos.get(completos.size() - manter));
+        for (File f : todos) {
+            String n = f.getName();
+            if (n.startsWith(PREFIXO) && n.endsWith(".zip") && ordem(n).compareTo(maisAntigo) < 0) f.delete();
+        }
+    }
+
+    // Pela hora no nome; no mesmo segundo o completo vem antes do incremental.
+    private static String ordem(String nome) {
+        return nome.substring(0, nome.length() - ".zip".length());
+    }
+
+    // -------------------- Estado --------------------
+    private Properties lerEstado() throws IOException {
+        Properties estado = new Properties();
+        File arquivo = new File(dir, "estado.properties");
+        if (arquivo.isFile()) {
+            try (InputStream in = new FileInputStream(arquivo)) {
+                estado.load(in);
+            }
+        }
+        return estado;
+    }
+
+    private void gravarEstado(Properties estado) throws IOException {
+        File tmp = new File(dir, "estado.properties.tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            estado.store(out, "Marca do último backup (BackupBanco)");
+        }
+        Files.move(tmp.toPath(), new File(dir, "estado.properties").toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void registrar(String linha) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(new File(dir, "backups.log"), true))) {
+            out.println(LocalDateTime.now().withNano(0) + "\t" + linha);
+        } catch (IOException ignored) {
+            // Log do backup nunca derruba o caixa.
+        }
+    }
+
+    // Um backup por vez por diretório, entre processos também.
+    private record Trava(FileChannel canal, FileLock trava) implements AutoCloseable {
+        static Trava tentar(File dir) throws IOException {
+            dir.mkdirs();
+            FileChannel canal = FileChannel.open(new File(dir, ".trava").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock trava = canal.tryLock();
+            if (trava == null) {
+                canal.close();
+                return null;
+            }
+            return new Trava(canal, trava);
+        }
+
+        @Override
+        public void close() throws IOException {
+            trava.release();
+            canal.close();
+        }
+    }
+
+    // -------------------- Restauração --------------------
+    // Cria o banco em destino (diretório sem banco) a partir do completo mais novo de dir e
+    // dos incrementais seguintes; devolve a URL. Depois dos pedidos, refaz contas e resumo
+    // diário, que o incremental não leva.
+    public static String restaurar(File dir, File destino) throws IOException, SQLException {
+        File[] zips = dir.listFiles((d, n) -> n.startsWith(PREFIXO) && n.endsWith(".zip"));
+        List<String> nomes = new ArrayList<>();
+        if (zips != null) for (File f : zips) nomes.add(f.getName());
+        nomes.sort(Comparator.comparing(BackupBanco::ordem));
+        int base = -1;
+        for (int i = 0; i < nomes.size(); i++) if (!nomes.get(i).endsWith("-inc.zip")) base = i;
+        if (base < 0) throw new IOException("Nenhum backup completo em " + dir + ".");
+        File[] existentes = destino.listFiles((d, n) -> n.endsWith(".mv.db"));
+        if (existentes != null && existentes.length > 0) throw new IOException("Já existe banco em " + destino + ".");
+
+        destino.mkdirs();
+        Restore.execute(new File(dir, nomes.get(base)).getPath(), destino.getPath(), null);
+        File[] bancos = destino.listFiles((d, n) -> n.endsWith(".mv.db"));
+        if (bancos == null || bancos.length != 1) throw new IOException("Backup " + nomes.get(base) + " sem arquivo .mv.db.");
+        String url = "jdbc:h2:file:" + new File(destino, bancos[0].getName().replace(".mv.db", "")).getAbsolutePath();
+
+        List<File> incrementais = new ArrayList<>();
+        for (String n : nomes.subList(base + 1, nomes.size())) incrementais.add(new File(dir, n));
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            conn.setAutoCommit(false);
+            aplicar(conn, incrementais);
+            conn.commit();
+        }
+        return url;
+    }
+
+    private static void aplicar(Connection conn, List<File> incrementais) throws SQLException {
+        if (incrementais.isEmpty()) return;
+        try (Statement st = conn.createStatement()) {
+            for (File inc : incrementais) {
+                String zip = "zip:" + inc.getAbsolutePath().replace("'", "''") + "!/";
+                st.executeUpdate("MERGE INTO pedido KEY(id) SELECT * FROM CSVREAD('" + zip + "pedido.csv', NULL, 'charset=UTF-8')");
+                st.executeUpdate("MERGE INTO pedido_item KEY(id) SELECT * FROM CSVREAD('" + zip + "pedido_item.csv', NULL, 'charset=UTF-8')");
+            }
+            // Quitado depois do completo: em aberto aqui e fora da lista do último incremental.
+            String ultimo = "zip:" + incrementais.get(incrementais.size() - 1).getAbsolutePath().replace("'", "''") + "!/";
+            st.execute("CREATE LOCAL TEMPORARY TABLE em_aberto(id INT PRIMARY KEY) AS SELECT CAST(id AS INT) FROM CSVREAD('"
+                    + ultimo + "em_aberto.csv', NULL, 'charset=UTF-8')");
+            st.executeUpdate("UPDATE pedido p SET forma_pagamento = '" + ContaCliente.PAGO + "' WHERE forma_pagamento = '"
+                    + ContaCliente.EM_ABERTO + "' AND NOT EXISTS (SELECT 1 FROM em_aberto e WHERE e.id = p.id)");
+            st.execute("DROP TABLE em_aberto");
+            for (String tabela : List.of("pedido", "pedido_item")) {
+                try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + tabela)) {
+                    rs.next();
+                    st.execute("ALTER TABLE " + tabela + " ALTER COLUMN id RESTART WITH " + rs.getLong(1));
+                }
+            }
+            ContaCliente.reconstruir(conn);
+            VendaDiaria.reconstruir(conn);
+        }
+    }
+
+    // -------------------- Linha de comando --------------------
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || (args[0].equals("restaurar") && args.length < 2)) {
+            System.err.println("Uso: BackupBanco completo|incremental|restaurar <diretório>");
+            System.exit(2);
+        }
+        Properties cfg = configuracao();
+        File dir = new File(cfg.getProperty("backup.dir").trim());
+        if (args[0].equals("restaurar")) {
+            System.out.println("Restaurado em " + restaurar(dir, new File(args[1])));
+            return;
+        }
+        try (PoolConexoes pool = PoolConexoes.deConfiguracao()) {
+            BackupBanco backup = new BackupBanco(pool, dir, Integer.parseInt(cfg.getProperty("backup.manter").trim()), 0, 0);
+            Resultado r = args[0].equals("completo") ? backup.completo() : backup.incremental();
+            System.out.println(r.resumo());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// -------------------- Cache dos resultados do balanço --------------------
+// Totais por cliente e contagens de cada filtro (nome do cliente + período) já
+// calculado, para o fechamento que abre o mesmo balanço várias vezes. LRU com
+// limite de entradas e de memória estimada.
+// Invalidação:
+//  - venda gravada por este processo: cai na hora toda entrada cujo período contém
+//    o dia da venda e cujo nome de cliente combina (ServicoCantina avisa);
+//  - antes de devolver uma entrada, uma contagem indexada confere se entrou pedido
+//    do filtro depois do cálculo (ConsultaBalanco.mudouDesde), o que cobre as vendas
+//    de outros caixas e totens. Períodos já encerrados passam sempre nessa conferência;
+//  - balanço lido da cópia de relatórios (ReplicaRelatorios): cada atualização dela
+//    derruba as entradas que alcançam os dias que mudaram, como uma venda.
+// Quitação e arquivamento não mudam totais nem contagens; clientes com pedidos não
+// podem ser removidos nem renomeados, então os nomes guardados continuam válidos.
+public class CacheBalanco {
+
+    static final int MAX_ENTRADAS = 32;
+    static final long MAX_BYTES = 16L * 1024 * 1024;
+
+    private record Entrada(ConsultaBalanco.Resumo resumo, ConsultaBalanco.Marca marca, long bytes) {}
+
+    private final Map<FiltroBalanco, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    // Resumo do filtro da consulta: do cache se ainda vale, senão calculado (e guardado).
+    // Acertos aparecem nas métricas como "balanço · cache" (tempo da conferência).
+    public ConsultaBalanco.Resumo resumo(ConsultaBalanco consulta) throws SQLException {
+        FiltroBalanco chave = consulta.getFiltro();
+        Entrada e;
+        synchronized (this) {
+            e = entradas.get(chave);
+        }
+        if (e != null) {
+            long inicio = System.nanoTime();
+            boolean vale = !consulta.mudouDesde(e.marca());
+            if (vale) {
+                Metricas.registrar("balanço · cache", System.nanoTime() - inicio, true);
+                return e.resumo();
+            }
+        }
+        // A marca vem antes do cálculo: o que entrar durante ele invalida a entrada na próxima vez.
+        ConsultaBalanco.Marca marca = consulta.marcar();
+        ConsultaBalanco.Resumo resumo = consulta.resumo();
+        guardar(chave, new Entrada(resumo, marca, estimar(resumo)));
+        return resumo;
+    }
+
+    // Pedido gravado neste processo para o cliente (nome null: desconhecido) no dia dado.
+    public synchronized void pedidoGravado(String cliente, LocalDate dia) {
+        Iterator<Map.Entry<FiltroBalanco, Entrada>> it = entradas.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<FiltroBalanco, Entrada> e = it.next();
+            if (alcanca(e.getKey(), cliente, dia)) {
+                bytes -= e.getValue().bytes();
+                it.remove();
+            }
+        }
+    }
+
+    // Tudo de novo na próxima vez (cópia de relatórios refeita do zero).
+    public synchronized void limpar() {
+        entradas.clear();
+        bytes = 0;
+    }
+
+    private synchronized void guardar(FiltroBalanco chave, Entrada nova) {
+        Entrada antiga = entradas.put(chave, nova);
+        if (antiga != null) bytes -= antiga.bytes();
+        bytes += nova.bytes();
+        Iterator<Entrada> it = entradas.values().iterator();
+        while ((entradas.size() > MAX_ENTRADAS || bytes > MAX_BYTES) && it.hasNext()) {
+            bytes -= it.next().bytes();
+            it.remove();
+        }
+    }
+
+    // LIKE '%trecho%' diferencia maiúsculas; comparar sem caixa só invalida a mais.
+    // Com curingas (% _) no trecho, invalida sempre.
+    private static boolean alcanca(FiltroBalanco f, String cliente, LocalDate dia) {
+        if (f.dataInicial() != null && dia.isBefore(f.dataInicial())) return false;
+        if (f.dataFinal() != null && dia.isAfter(f.dataFinal())) return false;
+        if (f.clienteNome() == null || cliente == null) return true;
+        String trecho = f.clienteNome();
+        if (trecho.indexOf('%') >= 0 || trecho.indexOf('_') >= 0) return true;
+        return cliente.toLowerCase(Locale.ROOT).contains(trecho.toLowerCase(Locale.ROOT));
+    }
+
+    // Por cliente: registro + String (cabeçalho e 2 bytes por caractere) + referência na lista.
+    private static long estimar(ConsultaBalanco.Resumo r) {
+        long total = 256;
+        for (ConsultaBalanco.TotalCliente t : r.totais()) total += 104 + 2L * (t.cliente() == null ? 0 : t.cliente().length());
+        return total;
+    }
+}
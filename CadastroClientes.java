@@ -0,0 +1,57 @@
+import java.sql.*;
+import java.util.*;
+
+// -------------------- Clientes em memória (para busca) --------------------
+// Nomes de todos os clientes num IndiceBusca, para o seletor do caixa não ir ao
+// banco a cada tecla. Inclusões e exclusões feitas neste caixa entram na hora;
+// sincronizar() enxerga as dos outros caixas comparando MAX(id) e COUNT(*) (uma
+// linha), e só então recarrega.
+public class CadastroClientes {
+
+    public record Cliente(int id, String nome) {}
+
+    private final IndiceBusca indice = new IndiceBusca();
+    private long assinatura = -1;
+
+    public List<Cliente> buscar(String texto, int limite) {
+        List<Cliente> lista = new ArrayList<>();
+        for (IndiceBusca.Resultado r : indice.buscar(texto, limite)) lista.add(new Cliente(r.id(), r.nome()));
+        return lista;
+    }
+
+    public String nome(int id) {
+        return indice.nome(id);
+    }
+
+    public synchronized void recarregar(Connection conn) throws SQLException {
+        Map<Integer, String> nomes = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, nome FROM cliente")) {
+            while (rs.next()) nomes.put(rs.getInt(1), rs.getString(2));
+        }
+        indice.substituirTudo(nomes);
+        assinatura = lerAssinatura(conn);
+    }
+
+    public synchronized void sincronizar(Connection conn) throws SQLException {
+        if (lerAssinatura(conn) != assinatura) recarregar(conn);
+    }
+
+    public synchronized void adicionado(int id, String nome) {
+        indice.adicionar(id, nome);
+        assinatura = -1;
+    }
+
+    public synchronized void removido(int id) {
+        indice.remover(id);
+        assinatura = -1;
+    }
+
+    private static long lerAssinatura(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0), COUNT(*) FROM cliente")) {
+            rs.next();
+            return rs.getLong(1) * 1_000_003L + rs.getLong(2);
+        }
+    }
+}
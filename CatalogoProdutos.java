@@ -0,0 +1,188 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// -------------------- Catálogo de produtos em memória --------------------
+// Fotografia imutável da tabela produto (por id e por nome, com a listagem já
+// formatada); trocada inteira a cada recarga, então leituras não precisam de trava
+// e navegar no catálogo durante a venda não consulta o banco.
+// Alterações de cadastro incrementam catalogo_versao; sincronizar() compara essa
+// versão (consulta de uma linha) para enxergar mudanças feitas por outros caixas e
+// atualiza as quantidades. Vendas não mexem na versão de propósito: seria uma
+// linha disputada por todos os caixas a cada venda. Os saldos dos lotes só são
+// somados de novo quando produto_lote mudou (contador de modificação que o H2 mantém
+// por tabela, lido junto com a versão) ou o dia virou (lote vence sem ninguém gravar).
+// O índice de busca por nome e o mapa de códigos de barras só são refeitos na
+// recarga (vendas não mudam nomes nem códigos).
+// Quantidade e validade vêm dos lotes (EstoqueLotes): quantidade é o que se pode
+// vender hoje, validade a do próximo lote a sair, vencidos o que espera descarte.
+public class CatalogoProdutos {
+
+    public record Produto(int id, String nome, String tipo, double preco, int quantidade, LocalDate validade, int vencidos) {
+        // Só sobrou estoque vencido.
+        public boolean vencido() {
+            return quantidade <= 0 && vencidos > 0;
+        }
+
+        Produto comSaldo(EstoqueLotes.Saldo s) {
+            return s == null ? new Produto(id, nome, tipo, preco, 0, null, 0)
+                    : new Produto(id, nome, tipo, preco, s.vendavel(), s.proximaValidade(), s.vencido());
+        }
+
+        public boolean disponivel() {
+            return quantidade > 0 && !vencido();
+        }
+    }
+
+    private record Fotografia(long versao, Map<Integer, Produto> porId, List<Produto> porNome, String listagem, IndiceBusca nomes,
+                              Map<String, Integer> codigos) {}
+
+    private static final Comparator<Produto> POR_NOME =
+            Comparator.comparing(Produto::nome, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Produto::id);
+
+    private record Versoes(long catalogo, long lotes) {}
+
+    private static final String SQL_VERSOES = """
+            SELECT (SELECT versao FROM catalogo_versao),
+                   (SELECT LAST_MODIFICATION FROM INFORMATION_SCHEMA.TABLES
+                    WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'PRODUTO_LOTE')
+            """;
+
+    private volatile Fotografia atual = new Fotografia(-1, Map.of(), List.of(), "Produtos:\n", new IndiceBusca(), Map.of());
+    // Contador de produto_lote e dia dos saldos da fotografia atual (acesso sincronizado).
+    private long lotesLidos = -1;
+    private LocalDate diaDosSaldos;
+
+    public Produto produto(int id) {
+        return atual.porId().get(id);
+    }
+
+    // Produto do código de barras lido no caixa; null se nenhum produto tem esse código.
+    public Produto porCodigo(String codigo) {
+        Fotografia f = atual;
+        Integer id = f.codigos().get(codigo);
+        return id == null ? null : f.porId().get(id);
+    }
+
+    // Código de barras do produto (null se não tem), para a tela de edição.
+    public String codigoDe(int id) {
+        for (Map.Entry<String, Integer> e : atual.codigos().entrySet()) {
+            if (e.getValue() == id) return e.getKey();
+        }
+        return null;
+    }
+
+    public List<Produto> listarPorNome() {
+        return atual.porNome();
+    }
+
+    // Só o que pode ser vendido agora: com estoque e dentro da validade.
+    public List<Produto> listarDisponiveis() {
+        return atual.porNome().stream().filter(Produto::disponivel).toList();
+    }
+
+    public String textoListagem() {
+        return atual.listagem();
+    }
+
+    // Busca por trecho do nome, sem acento; produtos removidos desde a última recarga ficam de fora.
+    public List<Produto> buscar(String texto, int limite) {
+        Fotografia f = atual;
+        List<Produto> lista = new ArrayList<>();
+        for (IndiceBusca.Resultado r : f.nomes().buscar(texto, limite)) {
+            Produto p = f.porId().get(r.id());
+            if (p != null) lista.add(p);
+        }
+        return lista;
+    }
+
+    public synchronized void recarregar(Connection conn) throws SQLException {
+        Versoes versoes = lerVersoes(conn);
+        LocalDate hoje = LocalDate.now();
+        List<Produto> produtos = new ArrayList<>();
+        Map<String, Integer> codigos = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, nome, tipo, preco, codigo_barras FROM produto")) {
+            Map<Integer, EstoqueLotes.Saldo> saldos = EstoqueLotes.saldos(conn);
+            while (rs.next()) {
+                produtos.add(new Produto(rs.getInt("id"), rs.getString("nome"), rs.getString("tipo"),
+                        rs.getDouble("preco"), 0, null, 0).comSaldo(saldos.get(rs.getInt("id"))));
+                String codigo = rs.getString("codigo_barras");
+                if (codigo != null) codigos.put(codigo, rs.getInt("id"));
+            }
+        }
+        IndiceBusca nomes = new IndiceBusca();
+        for (Produto p : produtos) nomes.adicionar(p.id(), p.nome());
+        publicar(versoes.catalogo(), produtos, nomes, Map.copyOf(codigos));
+        lotesLidos = versoes.lotes();
+        diaDosSaldos = hoje;
+    }
+
+    // Chamado periodicamente: recarga completa se o cadastro mudou, senão só os saldos,
+    // e só se algum lote mudou ou o dia virou (quando um lote vence).
+    public synchronized void sincronizar(Connection conn) throws SQLException {
+        Versoes versoes = lerVersoes(conn);
+        if (versoes.catalogo() != atual.versao()) {
+            recarregar(conn);
+            return;
+        }
+        LocalDate hoje = LocalDate.now();
+        if (versoes.lotes() == lotesLidos && hoje.equals(diaDosSaldos)) return;
+        Map<Integer, EstoqueLotes.Saldo> saldos = EstoqueLotes.saldos(conn);
+        lotesLidos = versoes.lotes();
+        diaDosSaldos = hoje;
+        Fotografia f = atual;
+        boolean mudou = false;
+        List<Produto> produtos = new ArrayList<>(f.porNome().size());
+        for (Produto p : f.porNome()) {
+            Produto novo = p.comSaldo(saldos.get(p.id()));
+            if (!novo.equals(p)) mudou = true;
+            produtos.add(novo);
+        }
+        if (mudou) publicar(f.versao(), produtos, f.nomes(), f.codigos());
+    }
+
+    // Baixa local após uma venda confirmada neste caixa, sem voltar ao banco.
+    public synchronized void aplicarVenda(List<MotorPedido.ItemPedido> itens) {
+        Map<Integer, Integer> vendidos = new HashMap<>();
+        for (MotorPedido.ItemPedido item : itens) vendidos.merge(item.produtoId(), item.quantidade(), Integer::sum);
+        Fotografia f = atual;
+        List<Produto> produtos = new ArrayList<>(f.porNome().size());
+        for (Produto p : f.porNome()) {
+            int qtd = vendidos.getOrDefault(p.id(), 0);
+            produtos.add(qtd == 0 ? p : new Produto(p.id(), p.nome(), p.tipo(), p.preco(), p.quantidade() - qtd, p.validade(), p.vencidos()));
+        }
+        publicar(f.versao(), produtos, f.nomes(), f.codigos());
+    }
+
+    // Para quem altera o cadastro de produtos: chamar dentro da mesma transação/comando da alteração.
+    public static void incrementarVersao(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE catalogo_versao SET versao = versao + 1");
+        }
+    }
+
+    // Contador lido antes dos saldos: lote gravado entre os dois é somado agora e de novo na próxima vez.
+    private static Versoes lerVersoes(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(SQL_VERSOES)) {
+            return rs.next() ? new Versoes(rs.getLong(1), rs.getLong(2)) : new Versoes(0, 0);
+        }
+    }
+
+    private void publicar(long versao, List<Produto> produtos, IndiceBusca nomes, Map<String, Integer> codigos) {
+        produtos.sort(POR_NOME);
+        Map<Integer, Produto> porId = new HashMap<>();
+        StringBuilder sb = new StringBuilder("Produtos:\n");
+        for (Produto p : produtos) {
+            porId.put(p.id(), p);
+            sb.append(p.id()).append(" - ").append(p.nome())
+                    .append(" R$ ").append(String.format("%.2f", p.preco()))
+                    .append(" | Qt: ").append(p.quantidade());
+            if (p.vencido()) sb.append(" (vencido)");
+            else if (p.quantidade() <= 0) sb.append(" (sem estoque)");
+            sb.append("\n");
+        }
+        atual = new Fotografia(versao, Collections.unmodifiableMap(porId), List.copyOf(produtos), sb.toString(), nomes, codigos);
+    }
+}
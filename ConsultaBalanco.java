@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// -------------------- Consultas do balanço (sem interface) --------------------
+// Totais por cliente e por pedido são agregados no banco (GROUP BY); os itens
+// são lidos por página (LIMIT/OFFSET), nunca todos de uma vez.
+// Cada consulta empresta uma conexão do pool só enquanto roda (statements do cache
+// da conexão, não são fechados aqui). cancelar() pode ser chamado de outra thread
+// para interromper as consultas em curso.
+// Se o período começa antes do limite do arquivo (ArquivoPedidos), cada consulta
+// roda uma vez nas tabelas vivas e outra nas de arquivo, unidas por UNION ALL (um
+// pedido está em só uma delas); senão só as vivas são lidas. O limite é lido a
+// cada consulta, então um arquivamento em curso não deixa páginas de fora.
+public class ConsultaBalanco {
+
+    public record TotalCliente(int clienteId, String cliente, int pedidos, double total) {}
+
+    public record TotalPedido(int pedidoId, String cliente, String status, Timestamp data, int itens, double total) {}
+
+    public record LinhaDetalhe(String cliente, int pedidoId, String status, String produto, int quantidade, double precoUnitario) {
+        public double totalLinha() {
+            return quantidade * precoUnitario;
+        }
+    }
+
+    public record Resumo(List<TotalCliente> totais, int pedidos, int itens) {}
+
+    // Situação do banco antes de um cálculo (último pedido, hora do banco e quantos
+    // pedidos do filtro havia na janela de conferência), para CacheBalanco saber
+    // depois se entrou algum pedido no filtro.
+    public record Marca(int ultimoPedido, Timestamp hora, int naJanela) {}
+
+    public interface VisitanteDetalhe {
+        void linha(LinhaDetalhe linha) throws IOException;
+    }
+
+    // Uma transação de venda ainda aberta na hora da marca tem id menor que o último
+    // e aparece depois; a data dela (início da transação) é no máximo isto antes da marca.
+    static final long FOLGA_TRANSACAO_MS = 15_000;
+
+    // Por pool: a cópia de relatórios (ReplicaRelatorios) é outro banco, com outro nome gerado.
+    private static final Map<PoolConexoes, String> chavePrimariaPedido = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final String SELECT_DETALHE =
+            "SELECT c.nome, p.id, p.forma_pagamento, pr.nome, pi.quantidade, pi.preco_unitario, pi.id";
+
+    private final PoolConexoes pool;
+    private final FiltroBalanco filtro;
+    // Uma entrada por consulta em curso: a do SwingWorker e as das páginas rodam juntas,
+    // e cada uma só tira o próprio statement ao terminar.
+    private final Set<Statement> emExecucao = ConcurrentHashMap.newKeySet();
+
+    public ConsultaBalanco(PoolConexoes pool, FiltroBalanco filtro) {
+        this.pool = pool;
+        this.filtro = filtro;
+    }
+
+    public FiltroBalanco getFiltro() {
+        return filtro;
+    }
+
+    // FROM + WHERE do detalhe numa das duas bases. Com data inicial o índice de data
+    // é imposto (USE INDEX): sem isso o H2 prefere percorrer os pedidos cliente a
+    // cliente, o que num período curto lê a tabela inteira.
+    static String fromDetalhe(FiltroBalanco filtro, boolean arquivo) {
+        String indice = filtro.dataInicial() == null ? null : arquivo ? "idx_pedido_arquivo_data" : "idx_pedido_data";
+        return arquivo
+                ? fromDetalhe("pedido_arquivo", "pedido_item_arquivo", indice) + filtro.where()
+                : fromDetalhe("pedido", "pedido_item", indice) + filtro.where();
+    }
+
+    // produto entra por LEFT JOIN (a chave estrangeira garante que existe): com ele
+    // em INNER JOIN o H2 começava o plano pela tabela de produtos e percorria todos
+    // os itens já vendidos, mesmo para um período de poucos dias.
+    private static String fromDetalhe(String pedido, String item, String indiceData) {
+        return " FROM " + pedido + " p" + (indiceData == null ? "" : " USE INDEX (" + indiceData + ")") +
+                " JOIN cliente c ON p.cliente_id = c.id" +
+                " JOIN " + item + " pi ON pi.pedido_id = p.id" +
+                " LEFT JOIN produto pr ON pi.produto_id = pr.id";
+    }
+
+    public List<TotalCliente> totaisPorCliente() throws SQLException {
+        String select = "SELECT c.id, c.nome, COUNT(DISTINCT p.id) AS pedidos, SUM(pi.quantidade * pi.preco_unitario) AS total";
+        String grupo = " GROUP BY c.id, c.nome";
+        return pool.executar(c -> {
+            boolean arquivo = alcancaArquivo(c);
+            // Com o arquivo, cada base já chega somada por cliente e só as duas linhas de cada um são somadas de novo.
+            String sql = arquivo
+                    ? "SELECT id, nome, SUM(pedidos), SUM(total) FROM (" + unir(true, select, grupo) + ") t GROUP BY id, nome ORDER BY nome"
+                    : unir(false, select, grupo) + " ORDER BY c.nome";
+            List<TotalCliente> lista = new ArrayList<>();
+            PreparedStatement ps = preparar(c, sql);
+            preencher(ps, arquivo);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lista.add(new TotalCliente(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getDouble(4)));
+            } finally {
+                emExecucao.remove(ps);
+            }
+            return lista;
+        });
+    }
+
+    // Totais e contagens que a tela do balanço mostra ao abrir.
+    public Resumo resumo() throws SQLException {
+        List<TotalCliente> totais = totaisPorCliente();
+        return new Resumo(totais, contarPedidos(), contarItens());
+    }
+
+    public Marca marcar() throws SQLException {
+        return pool.executar(c -> {
+            int ultimo;
+            Timestamp hora;
+            try (ResultSet rs = c.preparar("SELECT COALESCE(MAX(id), 0), LOCALTIMESTAMP FROM pedido").executeQuery()) {
+                rs.next();
+                ultimo = rs.getInt(1);
+                hora = rs.getTimestamp(2);
+            }
+            return new Marca(ultimo, hora, contarNovos(c, ultimo, hora));
+        });
+    }
+
+    // true se algum pedido do filtro entrou depois da marca (neste ou em outro caixa).
+    // Só olha as tabelas vivas (pedido novo nunca vai direto para o arquivo) e só
+    // pedidos com id depois da marca ou data na janela de folga: duas faixas indexadas.
+    public boolean mudouDesde(Marca marca) throws SQLException {
+        return pool.executar(c -> contarNovos(c, marca.ultimoPedido(), marca.hora()) != marca.naJanela());
+    }
+
+    // Sem a junção com cliente e com o índice forçado: por conta própria o H2 começa
+    // pelo cliente e percorre todos os pedidos dele.
+    private int contarNovos(PoolConexoes.Conexao c, int ultimoPedido, Timestamp hora) throws SQLException {
+        String where = filtro.wherePedido();
+        String sql = "SELECT (SELECT COUNT(*) FROM pedido p USE INDEX (\"" + chavePrimariaPedido(c) + "\")" + where
+                + " AND p.id > ?) + (SELECT COUNT(*) FROM pedido p USE INDEX (idx_pedido_data)" + where
+                + " AND p.data >= ? AND p.id <= ?)";
+        PreparedStatement ps = c.preparar(sql);
+        int idx = filtro.preencher(ps, 1);
+        ps.setInt(idx++, ultimoPedido);
+        idx = filtro.preencher(ps, idx);
+        ps.setTimestamp(idx++, new Timestamp(hora.getTime() - FOLGA_TRANSACAO_MS));
+        ps.setInt(idx, ultimoPedido);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // O índice da chave primária tem nome gerado pelo H2 (PRIMARY_KEY_n).
+    private String chavePrimariaPedido(PoolConexoes.Conexao c) throws SQLException {
+        String nome = chavePrimariaPedido.get(pool);
+        if (nome != null) return nome;
+        try (ResultSet rs = c.preparar("""
+                SELECT index_name FROM information_schema.indexes
+                WHERE table_schema = SCHEMA() AND table_name = 'PEDIDO' AND index_type_name = 'PRIMARY KEY'
+                """).executeQuery()) {
+            if (!rs.next()) throw new SQLException("Chave primária de pedido não encontrada.");
+            nome = rs.getString(1);
+        }
+        chavePrimariaPedido.put(pool, nome);
+        return nome;
+    }
+
+    public int contarPedidos() throws SQLException {
+        return contar("SELECT COUNT(DISTINCT p.id)");
+    }
+
+    public List<TotalPedido> pedidos(int offset, int limite) throws SQLException {
+        String select = "SELECT p.id, c.nome, p.forma_pagamento, p.data, COUNT(*) AS itens, SUM(pi.quantidade * pi.preco_unitario) AS total";
+        String grupo = " GROUP BY p.id, c.nome, p.forma_pagamento, p.data";
+        return pool.executar(c -> {
+            boolean arquivo = alcancaArquivo(c);
+            String sql = unir(arquivo, select, grupo) + " ORDER BY 2, 1 LIMIT ? OFFSET ?";
+            List<TotalPedido> lista = new ArrayList<>();
+            PreparedStatement ps = preparar(c, sql);
+            int idx = preencher(ps, arquivo);
+            ps.setInt(idx++, limite);
+            ps.setInt(idx, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lista.add(new TotalPedido(rs.getInt(1), rs.getString(2), rs.getString(3),
+                        rs.getTimestamp(4), rs.getInt(5), rs.getDouble(6)));
+            } finally {
+                emExecucao.remove(ps);
+            }
+            return lista;
+        });
+    }
+
+    public int contarItens() throws SQLException {
+        return contar("SELECT COUNT(*)");
+    }
+
+    public List<LinhaDetalhe> detalhes(int offset, int limite) throws SQLException {
+        return pool.executar(c -> {
+            boolean arquivo = alcancaArquivo(c);
+            String sql = unir(arquivo, SELECT_DETALHE, "") + " ORDER BY 1, 2, 7 LIMIT ? OFFSET ?";
+            List<LinhaDetalhe> lista = new ArrayList<>();
+            PreparedStatement ps = preparar(c, sql);
+            int idx = preencher(ps, arquivo);
+            ps.setInt(idx++, limite);
+            ps.setInt(idx, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lista.add(new LinhaDetalhe(rs.getString(1), rs.getInt(2), rs.getString(3),
+                        rs.getString(4), rs.getInt(5), rs.getDouble(6)));
+            } finally {
+                emExecucao.remove(ps);
+            }
+            return lista;
+        });
+    }
+
+    // Percorre todos os itens do filtro direto do cursor, sem guardar nada em memória.
+    public long percorrerDetalhes(VisitanteDetalhe visitante) throws SQLException, IOException {
+        try {
+            return pool.executar(c -> {
+                boolean arquivo = alcancaArquivo(c);
+                String sql = unir(arquivo, SELECT_DETALHE, "") + " ORDER BY 1, 2, 7";
+                long linhas = 0;
+                PreparedStatement ps = preparar(c, sql);
+                ps.setFetchSize(500);
+                preencher(ps, arquivo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        visitante.linha(new LinhaDetalhe(rs.getString(1), rs.getInt(2), rs.getString(3),
+                                rs.getString(4), rs.getInt(5), rs.getDouble(6)));
+                        linhas++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    emExecucao.remove(ps);
+                }
+                return linhas;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void cancelar() {
+        for (Statement st : emExecucao) {
+            try { st.cancel(); } catch (SQLException ignored) {}
+        }
+    }
+
+    private int contar(String select) throws SQLException {
+        return pool.executar(c -> {
+            boolean arquivo = alcancaArquivo(c);
+            String sql = arquivo
+                    ? "SELECT (" + select + fromDetalhe(filtro, false) + ") + (" + select + fromDetalhe(filtro, true) + ")"
+                    : select + fromDetalhe(filtro, false);
+            PreparedStatement ps = preparar(c, sql);
+            preencher(ps, arquivo);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } finally {
+                emExecucao.remove(ps);
+            }
+        });
+    }
+
+    private boolean alcancaArquivo(PoolConexoes.Conexao c) throws SQLException {
+        return filtro.alcanca(ArquivoPedidos.limite(c));
+    }
+
+    // select + FROM/WHERE + resto nas tabelas vivas e, com arquivo, UNION ALL o mesmo nas de arquivo.
+    private String unir(boolean arquivo, String select, String resto) {
+        String vivo = select + fromDetalhe(filtro, false) + resto;
+        return arquivo ? vivo + " UNION ALL " + select + fromDetalhe(filtro, true) + resto : vivo;
+    }
+
+    // Parâmetros do filtro uma vez por base; devolve o próximo índice livre.
+    private int preencher(PreparedStatement ps, boolean arquivo) throws SQLException {
+        int idx = filtro.preencher(ps, 1);
+        return arquivo ? filtro.preencher(ps, idx) : idx;
+    }
+
+    private PreparedStatement preparar(PoolConexoes.Conexao c, String sql) throws SQLException {
+        PreparedStatement ps = c.preparar(sql);
+        emExecucao.add(ps);
+        return ps;
+    }
+}
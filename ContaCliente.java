@@ -0,0 +1,175 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// -------------------- Conta do cliente (fiado) --------------------
+// Uma linha por cliente com o saldo em aberto, quantos pedidos "Em aberto" ele tem
+// e a data da última compra. É atualizada na mesma transação de cada venda (ver
+// MotorPedido) e de cada quitação, então "quem deve quanto" é uma leitura pela
+// chave, sem somar o histórico de pedidos.
+public class ContaCliente {
+
+    static final String EM_ABERTO = "Em aberto";
+    static final String PAGO = "Pago";
+
+    public record Conta(int clienteId, String cliente, double saldoAberto, int pedidosAbertos, Timestamp ultimaCompra) {}
+
+    public record Quitacao(int clienteId, int pedidos, double valor) {}
+
+    // Soma uma venda à conta. Duas vendas ao mesmo cliente novo em caixas diferentes
+    // podem tentar criar a linha juntas: quem perder (chave duplicada) soma de novo,
+    // agora na linha que o outro criou.
+    static final String SQL_VENDA = """
+            MERGE INTO conta_cliente c
+            USING (VALUES (CAST(? AS INT), CAST(? AS DOUBLE), CAST(? AS INT))) AS s(cliente_id, valor, pedidos)
+            ON c.cliente_id = s.cliente_id
+            WHEN MATCHED THEN UPDATE SET saldo_aberto = c.saldo_aberto + s.valor,
+                pedidos_abertos = c.pedidos_abertos + s.pedidos, ultima_compra = CURRENT_TIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (cliente_id, saldo_aberto, pedidos_abertos, ultima_compra)
+                VALUES (s.cliente_id, s.valor, s.pedidos, CURRENT_TIMESTAMP)
+            """;
+
+    private static final String SQL_CONTA = """
+            SELECT c.id, c.nome, COALESCE(k.saldo_aberto, 0), COALESCE(k.pedidos_abertos, 0), k.ultima_compra
+            FROM cliente c LEFT JOIN conta_cliente k ON k.cliente_id = c.id
+            WHERE c.id = ?
+            """;
+
+    private ContaCliente() {}
+
+    static void registrarVenda(PoolConexoes.Conexao c, int clienteId, String status, double total) throws SQLException {
+        boolean fiado = EM_ABERTO.equals(status);
+        PreparedStatement ps = c.preparar(SQL_VENDA);
+        ps.setInt(1, clienteId);
+        ps.setDouble(2, fiado ? total : 0);
+        ps.setInt(3, fiado ? 1 : 0);
+        try {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            if (!"23505".equals(e.getSQLState())) throw e;
+            ps.executeUpdate();
+        }
+    }
+
+    // Conta de um cliente (zerada se ele nunca comprou); null se o cliente não existe.
+    public static Conta consultar(PoolConexoes.Conexao c, int clienteId) throws SQLException {
+        PreparedStatement ps = c.preparar(SQL_CONTA);
+        ps.setInt(1, clienteId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? conta(rs) : null;
+        }
+    }
+
+    // Quem deve, do maior saldo para o menor.
+    public static List<Conta> devedores(PoolConexoes.Conexao c, int limite) throws SQLException {
+        PreparedStatement ps = c.preparar("""
+                SELECT c.id, c.nome, k.saldo_aberto, k.pedidos_abertos, k.ultima_compra
+                FROM conta_cliente k JOIN cliente c ON c.id = k.cliente_id
+                WHERE k.pedidos_abertos > 0
+                ORDER BY k.saldo_aberto DESC, c.nome LIMIT ?
+                """);
+        ps.setInt(1, limite);
+        List<Conta> lista = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) lista.add(conta(rs));
+        }
+        return lista;
+    }
+
+    // Marca como pagos todos os pedidos em aberto do cliente, dentro da transação já
+    // aberta em c. A linha da conta é travada primeiro: uma venda fiado concorrente
+    // espera, e a que já gravou antes entra na quitação. O resumo diário muda os
+    // mesmos valores do grupo "Em aberto" para "Pago" (mesmo dia e produto).
+    public static Quitacao quitar(PoolConexoes.Conexao c, int clienteId) throws SQLException {
+        PreparedStatement trava = c.preparar("SELECT saldo_aberto FROM conta_cliente WHERE cliente_id = ? FOR UPDATE");
+        trava.setInt(1, clienteId);
+        try (ResultSet rs = trava.executeQuery()) {
+            if (!rs.next()) return new Quitacao(clienteId, 0, 0);
+        }
+
+        PreparedStatement abertos = c.preparar("""
+                SELECT COUNT(*), COALESCE(SUM(valor_total), 0) FROM pedido WHERE cliente_id = ? AND forma_pagamento = ?
+                """);
+        abertos.setInt(1, clienteId);
+        abertos.setString(2, EM_ABERTO);
+        int pedidos;
+        double valor;
+        try (ResultSet rs = abertos.executeQuery()) {
+            rs.next();
+            pedidos = rs.getInt(1);
+            valor = rs.getDouble(2);
+        }
+        if (pedidos == 0) return new Quitacao(clienteId, 0, 0);
+
+        moverResumo(c, clienteId, PAGO, 1);
+        moverResumo(c, clienteId, EM_ABERTO, -1);
+        PreparedStatement vazios = c.preparar("DELETE FROM venda_diaria WHERE cliente_id = ? AND forma_pagamento = ? AND quantidade <= 0");
+        vazios.setInt(1, clienteId);
+        vazios.setString(2, EM_ABERTO);
+        vazios.executeUpdate();
+
+        PreparedStatement pagar = c.preparar("UPDATE pedido SET forma_pagamento = ? WHERE cliente_id = ? AND forma_pagamento = ?");
+        pagar.setString(1, PAGO);
+        pagar.setInt(2, clienteId);
+        pagar.setString(3, EM_ABERTO);
+        pagar.executeUpdate();
+
+        // Sem pedido em aberto o saldo é zero; zerar evita sobra de arredondamento.
+        PreparedStatement conta = c.preparar("""
+                UPDATE conta_cliente SET pedidos_abertos = pedidos_abertos - ?,
+                    saldo_aberto = CASE WHEN pedidos_abertos - ? <= 0 THEN 0 ELSE saldo_aberto - ? END
+                WHERE cliente_id = ?
+                """);
+        conta.setInt(1, pedidos);
+        conta.setInt(2, pedidos);
+        conta.setDouble(3, valor);
+        conta.setInt(4, clienteId);
+        conta.executeUpdate();
+        return new Quitacao(clienteId, pedidos, valor);
+    }
+
+    // Soma (sinal 1) ou subtrai (sinal -1) no grupo de status dado os itens dos pedidos em aberto do cliente.
+    private static void moverResumo(PoolConexoes.Conexao c, int clienteId, String status, int sinal) throws SQLException {
+        PreparedStatement ps = c.preparar("""
+                MERGE INTO venda_diaria v
+                USING (SELECT CAST(p.data AS DATE) AS dia, pi.produto_id, SUM(pi.quantidade) AS quantidade,
+                              SUM(pi.quantidade * pi.preco_unitario) AS valor
+                       FROM pedido p JOIN pedido_item pi ON pi.pedido_id = p.id
+                       WHERE p.cliente_id = CAST(? AS INT) AND p.forma_pagamento = 'Em aberto'
+                       GROUP BY CAST(p.data AS DATE), pi.produto_id) AS s
+                ON v.dia = s.dia AND v.produto_id = s.produto_id
+                   AND v.cliente_id = CAST(? AS INT) AND v.forma_pagamento = CAST(? AS VARCHAR(30))
+                WHEN MATCHED THEN UPDATE SET quantidade = v.quantidade + CAST(? AS INT) * s.quantidade,
+                    valor = v.valor + CAST(? AS INT) * s.valor
+                WHEN NOT MATCHED THEN INSERT (dia, produto_id, cliente_id, forma_pagamento, quantidade, valor)
+                    VALUES (s.dia, s.produto_id, CAST(? AS INT), CAST(? AS VARCHAR(30)), s.quantidade, s.valor)
+                """);
+        ps.setInt(1, clienteId);
+        ps.setInt(2, clienteId);
+        ps.setString(3, status);
+        ps.setInt(4, sinal);
+        ps.setInt(5, sinal);
+        ps.setInt(6, clienteId);
+        ps.setString(7, status);
+        ps.executeUpdate();
+    }
+
+    // Bancos com pedidos anteriores à conta (ou gerados em lote): refaz todas as linhas a partir dos pedidos.
+    static void reconstruir(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM conta_cliente");
+            st.executeUpdate("""
+                    INSERT INTO conta_cliente (cliente_id, saldo_aberto, pedidos_abertos, ultima_compra)
+                    SELECT cliente_id,
+                           SUM(CASE WHEN forma_pagamento = 'Em aberto' THEN valor_total ELSE 0 END),
+                           COUNT(CASE WHEN forma_pagamento = 'Em aberto' THEN 1 END),
+                           MAX(data)
+                    FROM pedido WHERE cliente_id IS NOT NULL GROUP BY cliente_id
+                    """);
+        }
+    }
+
+    private static Conta conta(ResultSet rs) throws SQLException {
+        return new Conta(rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4), rs.getTimestamp(5));
+    }
+}
@@ -0,0 +1,119 @@
+import org.h2.tools.Csv;
+import org.h2.tools.SimpleResultSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.*;
+import java.util.HexFormat;
+
+// -------------------- Cópia local do cadastro (caixa sem servidor) --------------------
+// Produtos, saldos dos lotes, clientes e funcionários em CSV no diretório da fila local,
+// regravados pelo ServicoCantina de tempos em tempos. Se o caixa abre sem alcançar o
+// banco, catálogo e clientes saem daqui por um H2 em memória com as mesmas tabelas
+// (CatalogoProdutos e CadastroClientes leem com as consultas de sempre), e o login
+// confere o hash guardado. Senha não vai para o disco: só SHA-256 com o sal da cópia.
+public class CopiaLocal {
+
+    // Tabela na memória e consulta no banco; as colunas são as que os cadastros leem.
+    private static final String[][] TABELAS = {
+            {"produto", "SELECT id, nome, tipo, preco, codigo_barras FROM produto"},
+            {"produto_lote", "SELECT produto_id, quantidade, validade FROM produto_lote"},
+            {"cliente", "SELECT id, nome FROM cliente"},
+    };
+
+    private final File dir;
+
+    public CopiaLocal(File dir) {
+        this.dir = dir;
+    }
+
+    // Uma fotografia das tabelas, lida na conexão dada; cada arquivo troca inteiro (move atômico).
+    public void gravar(Connection conn) throws SQLException, IOException {
+        dir.mkdirs();
+        try (Statement st = conn.createStatement()) {
+            for (String[] t : TABELAS) {
+                try (ResultSet rs = st.executeQuery(t[1])) {
+                    escrever(t[0], rs);
+                }
+            }
+            byte[] sal = new byte[16];
+            new SecureRandom().nextBytes(sal);
+            SimpleResultSet funcionarios = new SimpleResultSet();
+            funcionarios.addColumn("ID", Types.INTEGER, 10, 0);
+            funcionarios.addColumn("NOME", Types.VARCHAR, 255, 0);
+            funcionarios.addColumn("IS_ADMIN", Types.INTEGER, 10, 0);
+            funcionarios.addColumn("SAL", Types.VARCHAR, 32, 0);
+            funcionarios.addColumn("HASH", Types.VARCHAR, 64, 0);
+            try (ResultSet rs = st.executeQuery("SELECT id, nome, is_admin, usuario, senha FROM funcionario")) {
+                while (rs.next()) {
+                    funcionarios.addRow(rs.getInt(1), rs.getString(2), rs.getInt(3), HexFormat.of().formatHex(sal),
+                            hash(sal, rs.getString(4), rs.getString(5)));
+                }
+            }
+            escrever("funcionario", funcionarios);
+        }
+    }
+
+    private void escrever(String tabela, ResultSet rs) throws SQLException, IOException {
+        File tmp = new File(dir, tabela + ".csv.tmp");
+        new Csv().write(tmp.getPath(), rs, "UTF-8");
+        Files.move(tmp.toPath(), new File(dir, tabela + ".csv").toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // false se não há cópia neste caixa. A versão do catálogo fica -1: na volta do
+    // servidor a sincronização recarrega tudo.
+    public boolean carregar(CatalogoProdutos catalogo, CadastroClientes clientes) throws SQLException {
+        for (String[] t : TABELAS) {
+            if (!arquivo(t[0]).isFile()) return false;
+        }
+        try (Connection mem = DriverManager.getConnection("jdbc:h2:mem:", "sa", "");
+             Statement st = mem.createStatement()) {
+            for (String[] t : TABELAS) {
+                st.execute("CREATE TABLE " + t[0] + " AS SELECT * FROM CSVREAD('"
+                        + arquivo(t[0]).getAbsolutePath().replace("'", "''") + "', NULL, 'charset=UTF-8')");
+            }
+            st.execute("CREATE TABLE catalogo_versao AS SELECT CAST(-1 AS BIGINT) versao");
+            catalogo.recarregar(mem);
+            clientes.recarregar(mem);
+        }
+        return true;
+    }
+
+    // null se usuário ou senha não conferem (ou se não há cópia).
+    public ServicoCantina.Funcionario login(String usuario, String senha) throws SQLException {
+        File arquivo = arquivo("funcionario");
+        if (!arquivo.isFile()) return null;
+        try (ResultSet rs = new Csv().read(arquivo.getPath(), null, "UTF-8")) {
+            while (rs.next()) {
+                byte[] sal = HexFormat.of().parseHex(rs.getString("SAL"));
+                if (MessageDigest.isEqual(hash(sal, usuario, senha).getBytes(StandardCharsets.US_ASCII),
+                        rs.getString("HASH").getBytes(StandardCharsets.US_ASCII))) {
+                    return new ServicoCantina.Funcionario(rs.getInt("ID"), rs.getString("NOME"), rs.getInt("IS_ADMIN") == 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private File arquivo(String tabela) {
+        return new File(dir, tabela + ".csv");
+    }
+
+    private static String hash(byte[] sal, String usuario, String senha) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(sal);
+            md.update((usuario + '\0' + senha).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
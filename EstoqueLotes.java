@@ -0,0 +1,223 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// -------------------- Estoque por lote (validade) --------------------
+// Cada entrada de mercadoria é um lote com quantidade e validade próprias. A venda
+// baixa primeiro o lote que vence primeiro (FEFO), na mesma transação do pedido
+// (ver MotorPedido): um lote vencido não bloqueia o produto se houver outro bom.
+// produto.quantidade continua sendo o total dos lotes, vencidos inclusive até serem
+// descartados: é a linha que a venda trava e o teste rápido de estoque. Lote zerado
+// é apagado, então os índices só têm o que está na prateleira:
+//  - idx_lote_produto_validade (produto_id, validade): lotes de um produto na ordem da baixa;
+//  - idx_lote_validade (validade): "vencendo nos próximos N dias" lê só a faixa de datas.
+// produto.validade fica como a validade informada no cadastro ou na importação,
+// de onde sai o lote inicial; para venda vale a de cada lote.
+public class EstoqueLotes {
+
+    public record Lote(int id, int produtoId, String produto, int quantidade, LocalDate validade) {}
+
+    // Por produto: o que pode ser vendido hoje, o que venceu e ainda não foi descartado
+    // e a validade mais próxima entre os lotes vendáveis (null se nenhum tem data).
+    public record Saldo(int vendavel, int vencido, LocalDate proximaValidade) {}
+
+    private static final String DENTRO_DA_VALIDADE = "(validade IS NULL OR validade >= CURRENT_DATE)";
+
+    // Baixa no primeiro lote do produto, na ordem da baixa, só se ele tem mais que o pedido.
+    static final String SQL_PRIMEIRO_LOTE = """
+            UPDATE produto_lote SET quantidade = quantidade - ?
+            WHERE id = (SELECT id FROM produto_lote WHERE produto_id = ? AND %s
+                        ORDER BY validade NULLS LAST, id FETCH FIRST ROW ONLY)
+              AND quantidade > ?
+            """.formatted(DENTRO_DA_VALIDADE);
+    private static final String SQL_LOTES_VENDAVEIS = "SELECT produto_id, id, quantidade FROM produto_lote WHERE produto_id = ANY(?) AND "
+            + DENTRO_DA_VALIDADE + " ORDER BY produto_id, validade NULLS LAST, id";
+    private static final String SQL_APAGAR = "DELETE FROM produto_lote WHERE id = ANY(?)";
+    static final String SQL_BAIXA = "UPDATE produto_lote SET quantidade = quantidade - ? WHERE id = ?";
+    private static final String SQL_ENTRADA = "INSERT INTO produto_lote(produto_id, quantidade, validade) VALUES (?, ?, ?)";
+    private static final String SQL_SOMAR = "UPDATE produto SET quantidade = quantidade + ? WHERE id = ?";
+
+    private static final String SQL_VENCENDO = """
+            SELECT l.id, l.produto_id, p.nome, l.quantidade, l.validade
+            FROM produto_lote l USE INDEX (idx_lote_validade) JOIN produto p ON p.id = l.produto_id
+            WHERE l.validade >= CURRENT_DATE AND l.validade <= ?
+            ORDER BY l.validade, p.nome, l.id
+            """;
+
+    // Produto com estoque e sem nenhum lote vira um lote só, com a quantidade e a
+    // validade do cadastro: a migração usa para o estoque antigo, a importação e as
+    // ferramentas que semeiam o banco usam depois de inserir produtos.
+    static final String SQL_LOTES_INICIAIS = """
+            INSERT INTO produto_lote(produto_id, quantidade, validade)
+            SELECT p.id, p.quantidade, p.validade FROM produto p
+            WHERE p.quantidade > 0 AND NOT EXISTS (SELECT 1 FROM produto_lote l WHERE l.produto_id = p.id)
+            """;
+
+    private EstoqueLotes() {}
+
+    // Tira as quantidades (produto -> quantidade) dos lotes dentro da validade, o que
+    // vence primeiro antes (sem data por último). Chamar com as linhas dos produtos já
+    // travadas: MotorPedido baixa produto.quantidade antes, então dois caixas nunca
+    // disputam os mesmos lotes. Quase sempre o primeiro lote de cada produto cobre a
+    // venda e sobra: uma baixa condicional por produto, todas num lote JDBC, sem ler os
+    // lotes antes. Só os produtos em que o primeiro lote não basta são lidos lote a
+    // lote: os que zeram saem num DELETE e o último é baixado.
+    // Devolve, para cada produto sem lote vendável suficiente, quanto havia; se algum
+    // faltou, o que já foi baixado fica para quem chama desfazer (savepoint).
+    // emLote recebe cada statement antes do primeiro addBatch, para quem chama limpar
+    // o lote se der erro no meio.
+    static Map<Integer, Integer> baixar(PoolConexoes.Conexao c, SortedMap<Integer, Integer> porProduto,
+                                        List<PreparedStatement> emLote) throws SQLException {
+        PreparedStatement ps = c.preparar(SQL_PRIMEIRO_LOTE);
+        emLote.add(ps);
+        for (Map.Entry<Integer, Integer> e : porProduto.entrySet()) {
+            ps.setInt(1, e.getValue());
+            ps.setInt(2, e.getKey());
+            ps.setInt(3, e.getValue());
+            ps.addBatch();
+        }
+        int[] linhas = ps.executeBatch();
+        SortedMap<Integer, Integer> resto = new TreeMap<>();
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : porProduto.entrySet()) {
+            if (linhas[i++] == 0) resto.put(e.getKey(), e.getValue());
+        }
+        if (resto.isEmpty()) return Map.of();
+
+        Map<Integer, Integer> vendavel = new HashMap<>();
+        List<Integer> apagar = new ArrayList<>();
+        List<int[]> baixar = new ArrayList<>();
+        PreparedStatement lotes = c.preparar(SQL_LOTES_VENDAVEIS);
+        lotes.setObject(1, resto.keySet().toArray(new Integer[0]));
+        try (ResultSet rs = lotes.executeQuery()) {
+            while (rs.next()) {
+                int produtoId = rs.getInt(1), lote = rs.getInt(2), qtd = rs.getInt(3);
+                int antes = vendavel.merge(produtoId, qtd, Integer::sum) - qtd;
+                int falta = resto.get(produtoId) - antes;
+                if (falta <= 0) continue;
+                if (qtd <= falta) apagar.add(lote);
+                else baixar.add(new int[]{lote, falta});
+            }
+        }
+        Map<Integer, Integer> faltas = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : resto.entrySet()) {
+            int tem = vendavel.getOrDefault(e.getKey(), 0);
+            if (tem < e.getValue()) faltas.put(e.getKey(), tem);
+        }
+        if (!faltas.isEmpty()) return faltas;
+
+        if (!apagar.isEmpty()) {
+            PreparedStatement del = c.preparar(SQL_APAGAR);
+            del.setObject(1, apagar.toArray(new Integer[0]));
+            del.executeUpdate();
+        }
+        if (!baixar.isEmpty()) {
+            PreparedStatement upd = c.preparar(SQL_BAIXA);
+            emLote.add(upd);
+            for (int[] l : baixar) {
+                upd.setInt(1, l[1]);
+                upd.setInt(2, l[0]);
+                upd.addBatch();
+            }
+            upd.executeBatch();
+        }
+        return faltas;
+    }
+
+    // Entrada de mercadoria: um lote novo e o total do produto somado, na transação de c.
+    // Devolve false se o produto não existe.
+    public static boolean entrada(PoolConexoes.Conexao c, int produtoId, int quantidade, LocalDate validade) throws SQLException {
+        if (quantidade <= 0) throw new IllegalArgumentException("Quantidade do lote deve ser positiva.");
+        PreparedStatement somar = c.preparar(SQL_SOMAR);
+        somar.setInt(1, quantidade);
+        somar.setInt(2, produtoId);
+        if (somar.executeUpdate() == 0) return false;
+        PreparedStatement ps = c.preparar(SQL_ENTRADA);
+        ps.setInt(1, produtoId);
+        ps.setInt(2, quantidade);
+        if (validade != null) ps.setDate(3, java.sql.Date.valueOf(validade)); else ps.setNull(3, Types.DATE);
+        ps.executeUpdate();
+        return true;
+    }
+
+    // Tira da prateleira (e do total do produto) tudo que já venceu; devolve as unidades descartadas.
+    // Trava antes as linhas dos produtos, em ordem crescente de id como a venda, e só
+    // então apaga: com dois terminais descartando juntos, o segundo espera o primeiro e
+    // não acha mais nada. Do total sai o que este DELETE apagou de fato (OLD TABLE).
+    public static int descartarVencidos(PoolConexoes.Conexao c) throws SQLException {
+        List<Integer> produtos = new ArrayList<>();
+        try (ResultSet rs = c.preparar("SELECT DISTINCT produto_id FROM produto_lote WHERE validade < CURRENT_DATE")
+                .executeQuery()) {
+            while (rs.next()) produtos.add(rs.getInt(1));
+        }
+        if (produtos.isEmpty()) return 0;
+        Integer[] ids = produtos.toArray(new Integer[0]);
+        PreparedStatement travar = c.preparar("SELECT id FROM produto WHERE id = ANY(?) ORDER BY id FOR UPDATE");
+        travar.setObject(1, ids);
+        travar.executeQuery().close();
+
+        PreparedStatement apagar = c.preparar("""
+                SELECT produto_id, SUM(quantidade) FROM OLD TABLE (
+                    DELETE FROM produto_lote WHERE validade < CURRENT_DATE AND produto_id = ANY(?))
+                GROUP BY produto_id ORDER BY produto_id
+                """);
+        apagar.setObject(1, ids);
+        PreparedStatement somar = c.preparar(SQL_SOMAR);
+        int total = 0;
+        try (ResultSet rs = apagar.executeQuery()) {
+            while (rs.next()) {
+                somar.setInt(1, -rs.getInt(2));
+                somar.setInt(2, rs.getInt(1));
+                somar.addBatch();
+                total += rs.getInt(2);
+            }
+        }
+        somar.executeBatch();
+        return total;
+    }
+
+    // Lotes que vencem de hoje até hoje + dias, o mais próximo primeiro.
+    public static List<Lote> vencendo(PoolConexoes.Conexao c, int dias) throws SQLException {
+        PreparedStatement ps = c.preparar(SQL_VENCENDO);
+        ps.setDate(1, java.sql.Date.valueOf(LocalDate.now().plusDays(dias)));
+        List<Lote> lista = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                lista.add(new Lote(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getInt(4), rs.getDate(5).toLocalDate()));
+            }
+        }
+        return lista;
+    }
+
+    // Saldo de cada produto que tem lote; produto sem lote não tem estoque. Somado aqui
+    // e não com GROUP BY: o H2 agruparia andando pelo índice de produto_id com uma
+    // busca na tabela por lote (~60 ms com 5 mil lotes, contra 5-15 ms lendo a tabela).
+    static Map<Integer, Saldo> saldos(Connection conn) throws SQLException {
+        LocalDate hoje = LocalDate.now();
+        Map<Integer, Saldo> mapa = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT produto_id, quantidade, validade FROM produto_lote")) {
+            while (rs.next()) {
+                java.sql.Date data = rs.getDate(3);
+                LocalDate validade = data == null ? null : data.toLocalDate();
+                int qtd = rs.getInt(2);
+                Saldo s = mapa.getOrDefault(rs.getInt(1), new Saldo(0, 0, null));
+                if (validade != null && validade.isBefore(hoje)) {
+                    s = new Saldo(s.vendavel(), s.vencido() + qtd, s.proximaValidade());
+                } else {
+                    LocalDate proxima = validade == null || (s.proximaValidade() != null && s.proximaValidade().isBefore(validade))
+                            ? s.proximaValidade() : validade;
+                    s = new Saldo(s.vendavel() + qtd, s.vencido(), proxima);
+                }
+                mapa.put(rs.getInt(1), s);
+            }
+        }
+        return mapa;
+    }
+
+    public static int criarLotesIniciais(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            return st.executeUpdate(SQL_LOTES_INICIAIS);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// -------------------- Exportação do balanço --------------------
+// Grava os itens do balanço em CSV ou XLSX direto do cursor JDBC, linha a linha,
+// por um writer com buffer: a memória usada não depende do tamanho do período.
+public class ExportadorBalanco {
+
+    static final String CABECALHO_CSV = "cliente,pedido,status,produto,quantidade,preco_unitario,total_linha";
+
+    private ExportadorBalanco() {}
+
+    public static long exportarCSV(ConsultaBalanco consulta, File destino) throws SQLException, IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destino), StandardCharsets.UTF_8), 64 * 1024)) {
+            return exportarCSV(consulta, w);
+        }
+    }
+
+    public static long exportarCSV(ConsultaBalanco consulta, Writer w) throws SQLException, IOException {
+        w.write('\uFEFF'); // BOM: o Excel reconhece o arquivo como UTF-8 (acentos nos nomes)
+        w.write(CABECALHO_CSV);
+        w.write("\r\n");
+        return consulta.percorrerDetalhes(linha -> {
+            campo(w, linha.cliente()); w.write(',');
+            w.write(Integer.toString(linha.pedidoId())); w.write(',');
+            campo(w, linha.status()); w.write(',');
+            campo(w, linha.produto()); w.write(',');
+            w.write(Integer.toString(linha.quantidade())); w.write(',');
+            w.write(decimal(linha.precoUnitario())); w.write(',');
+            w.write(decimal(linha.totalLinha()));
+            w.write("\r\n");
+        });
+    }
+
+    // Abas de itens (divididas a cada 1.048.576 linhas, limite do Excel) e uma aba de resumo por cliente.
+    public static long exportarXLSX(ConsultaBalanco consulta, File destino) throws SQLException, IOException {
+        String[] colunas = {"Cliente", "Pedido", "Status", "Produto", "Quantidade", "Preço unitário", "Total"};
+        try (PlanilhaXlsx planilha = new PlanilhaXlsx(new FileOutputStream(destino))) {
+            int[] aba = {1};
+            planilha.iniciarAba("Itens");
+            planilha.cabecalho(colunas);
+            long linhas = consulta.percorrerDetalhes(linha -> {
+                if (planilha.linhasNaAba() == PlanilhaXlsx.MAX_LINHAS_ABA) {
+                    planilha.iniciarAba("Itens " + ++aba[0]);
+                    planilha.cabecalho(colunas);
+                }
+                planilha.linha(linha.cliente(), linha.pedidoId(), linha.status(), linha.produto(),
+                        linha.quantidade(), linha.precoUnitario(), linha.totalLinha());
+            });
+
+            planilha.iniciarAba("Resumo por cliente");
+            planilha.cabecalho("Cliente", "Pedidos", "Total");
+            for (ConsultaBalanco.TotalCliente t : consulta.totaisPorCliente()) {
+                planilha.linha(t.cliente(), t.pedidos(), t.total());
+            }
+            return linhas;
+        }
+    }
+
+    // Ponto decimal fixo (independe do Locale) e sem o custo de String.format por linha.
+    // NaN e infinito saem como campo vazio, como na planilha.
+    static String decimal(double valor) {
+        if (!Double.isFinite(valor)) return "";
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    // Aspas conforme RFC 4180: só quando há vírgula, aspas ou quebra de linha; aspas internas dobradas.
+    static void campo(Writer w, String valor) throws IOException {
+        if (valor == null) return;
+        boolean aspas = false;
+        for (int i = 0; i < valor.length() && !aspas; i++) {
+            char ch = valor.charAt(i);
+            aspas = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!aspas) {
+            w.write(valor);
+            return;
+        }
+        w.write('"');
+        w.write(valor.replace("\"", "\"\""));
+        w.write('"');
+    }
+}
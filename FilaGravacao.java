@@ -0,0 +1,137 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// -------------------- Fila de gravação de pedidos (commit em grupo) --------------------
+// Um único escritor grava os pedidos na ordem em que chegam. Quem estiver esperando
+// quando ele termina um commit entra junto no próximo: até 32 pedidos numa só
+// transação (um commit, uma escrita no disco). Sem movimento o grupo tem um pedido
+// só e nada espera; o grupo cresce sozinho quando os commits viram o gargalo.
+// Cada pedido tem o seu savepoint (MotorPedido.gravar): falta de estoque num deles
+// não desfaz os outros. O futuro só é completado depois do commit do grupo, então
+// "registrado" quer dizer gravado. Se o grupo inteiro falhar (deadlock com outro
+// caixa, commit recusado), nada dele ficou no banco e cada pedido é regravado
+// sozinho, para o erro ficar só com quem o causou; se foi o banco que sumiu, o grupo
+// todo falha de uma vez e o ServicoCantina guarda os pedidos na FilaLocal.
+public class FilaGravacao implements AutoCloseable {
+
+    static final int MAX_GRUPO = 32;
+    static final int CAPACIDADE = 1000;
+    private static final long ESPERA_FECHAMENTO_MS = 10_000;
+
+    private record Pendente(MotorPedido.Pedido pedido, boolean acertarFaltas,
+                            CompletableFuture<MotorPedido.ResultadoPedido> futuro) {}
+
+    private final PoolConexoes pool;
+    private final MotorPedido motor;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>(CAPACIDADE);
+    private final Thread escritor;
+    private volatile boolean fechada;
+
+    public FilaGravacao(PoolConexoes pool, MotorPedido motor) {
+        this.pool = pool;
+        this.motor = motor;
+        this.escritor = new Thread(this::escrever, "pedido-gravacao");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    public CompletableFuture<MotorPedido.ResultadoPedido> enviar(int funcionarioId, int clienteId, String status,
+                                                               List<MotorPedido.ItemPedido> itens) {
+        return enviar(new MotorPedido.Pedido(null, null, funcionarioId, clienteId, status, List.copyOf(itens)));
+    }
+
+    // Devolve na hora; o futuro termina (na thread do escritor) depois do commit,
+    // com o resultado do pedido ou com a SQLException que impediu a gravação.
+    public CompletableFuture<MotorPedido.ResultadoPedido> enviar(MotorPedido.Pedido pedido) {
+        long inicio = System.nanoTime();
+        CompletableFuture<MotorPedido.ResultadoPedido> futuro = new CompletableFuture<>();
+        // "venda" é o tempo que o caixa espera: fila + grupo + commit.
+        futuro.whenComplete((r, e) -> Metricas.registrar("venda", System.nanoTime() - inicio, e == null));
+        return enfileirar(new Pendente(pedido, false, futuro));
+    }
+
+    // Venda que já aconteceu sem servidor (FilaLocal): mesma fila, com acerto de estoque
+    // em vez de falha por falta (ver MotorPedido.gravar).
+    public CompletableFuture<MotorPedido.ResultadoPedido> reenviar(MotorPedido.Pedido pedido) {
+        return enfileirar(new Pendente(pedido, true, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<MotorPedido.ResultadoPedido> enfileirar(Pendente p) {
+        if (fechada) {
+            p.futuro().completeExceptionally(new SQLException("Fila de gravação encerrada."));
+        } else if (!fila.offer(p)) {
+            p.futuro().completeExceptionally(new SQLException("Fila de gravação cheia (" + CAPACIDADE + " pedidos esperando)."));
+        }
+        return p.futuro();
+    }
+
+    public int pendentes() {
+        return fila.size();
+    }
+
+    // O escritor nunca é interrompido (interromper a thread no meio de uma escrita
+    // fecharia o arquivo do H2): ele vê a flag, esvazia a fila e sai.
+    private void escrever() {
+        List<Pendente> grupo = new ArrayList<>(MAX_GRUPO);
+        while (!fechada || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) continue;
+                grupo.add(primeiro);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            fila.drainTo(grupo, MAX_GRUPO - 1);
+            gravarGrupo(grupo);
+            grupo.clear();
+        }
+    }
+
+    private void gravarGrupo(List<Pendente> grupo) {
+        List<MotorPedido.ResultadoPedido> resultados;
+        try {
+            resultados = Metricas.medir("venda · grupo", () -> pool.transacao(c -> {
+                List<MotorPedido.ResultadoPedido> lista = new ArrayList<>(grupo.size());
+                for (Pendente p : grupo) lista.add(motor.gravar(c, p.pedido(), p.acertarFaltas()));
+                return lista;
+            }));
+        } catch (SQLException | RuntimeException e) {
+            // Sem banco, regravar um a um só multiplicaria a espera.
+            if (grupo.size() == 1 || PoolConexoes.semConexao(e)) {
+                for (Pendente p : grupo) p.futuro().completeExceptionally(e);
+            } else {
+                for (Pendente p : grupo) gravarSozinho(p);
+            }
+            return;
+        }
+        for (int i = 0; i < grupo.size(); i++) grupo.get(i).futuro().complete(resultados.get(i));
+    }
+
+    private void gravarSozinho(Pendente p) {
+        try {
+            p.futuro().complete(Metricas.medir("venda · grupo",
+                    () -> pool.transacao(c -> motor.gravar(c, p.pedido(), p.acertarFaltas()))));
+        } catch (SQLException | RuntimeException e) {
+            p.futuro().completeExceptionally(e);
+        }
+    }
+
+    // Para de aceitar pedidos e espera os que já estão na fila serem gravados. O que
+    // ainda sobrar (escritor travado, ou pedido que entrou junto com o fechamento) falha.
+    @Override
+    public void close() {
+        fechada = true;
+        try {
+            escritor.join(ESPERA_FECHAMENTO_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pendente p;
+        while ((p = fila.poll()) != null) p.futuro().completeExceptionally(new SQLException("Fila de gravação encerrada."));
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// -------------------- Fila local de pedidos (caixa sem servidor) --------------------
+// Quando o banco some (servidor AUTO_SERVER fora, rede caiu), o caixa continua
+// vendendo: cada pedido é acrescentado a pedidos.log, com fsync antes de a venda ser
+// dada como feita, e o caixa passa a gravar só aqui até o banco voltar (sem esperar
+// timeout a cada venda). A cada 5 s uma consulta testa o banco; quando responde, os
+// pedidos vão em ordem pela FilaGravacao (commit em grupo), com acerto de estoque em
+// vez de falha por falta: a venda já aconteceu (MotorPedido.gravar).
+// Exatamente uma vez: o pedido leva o uuid dado pelo caixa e o banco não grava o mesmo
+// uuid duas vezes; confirmado o commit, o uuid vai para aplicados.log. Se o caixa cair
+// entre os dois, o reenvio encontra o pedido no banco e só marca.
+// Pedido que o banco recusa de vez (produto ou cliente removido) vai para
+// rejeitados.log, para conferência. Fila vazia: os dois arquivos são zerados.
+// Linha de pedidos.log: uuid, data, funcionário, cliente, status, itens (id:qtd,...) e
+// CRC32, separados por tab; linha cortada por queda no meio da escrita é descartada.
+public class FilaLocal implements AutoCloseable {
+
+    // Avisos para o ServicoCantina, na thread da fila local.
+    public interface Ouvinte {
+        void gravado(MotorPedido.Pedido pedido);
+
+        void voltou();
+    }
+
+    static final int LOTE = FilaGravacao.MAX_GRUPO * 4;
+    private static final long INTERVALO_MS = 5_000;
+
+    private final File dir;
+    private final PoolConexoes pool;
+    private final FilaGravacao fila;
+    private final Ouvinte ouvinte;
+    private final FileChannel trava;
+    private final FileLock travado;
+    private final FileChannel pedidos;
+    private final FileChannel aplicados;
+    private final Map<UUID, MotorPedido.Pedido> pendentes = new LinkedHashMap<>();
+    private final ScheduledExecutorService verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fila-local");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean semServidor;
+
+    // Lê o que ficou de uma execução anterior: com pedidos pendentes, começa sem servidor
+    // (a primeira verificação esvazia a fila antes de o caixa voltar a gravar direto).
+    public FilaLocal(File dir, PoolConexoes pool, FilaGravacao fila, Ouvinte ouvinte) throws IOException {
+        this.dir = dir;
+        this.pool = pool;
+        this.fila = fila;
+        this.ouvinte = ouvinte;
+        dir.mkdirs();
+        trava = FileChannel.open(new File(dir, ".trava").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        travado = trava.tryLock();
+        if (travado == null) {
+            trava.close();
+            throw new IOException("Fila local em " + dir + " já está em uso por outro caixa.");
+        }
+        Set<UUID> jaAplicados = new HashSet<>();
+        for (String linha : linhas("aplicados.log")) {
+            try {
+                jaAplicados.add(UUID.fromString(linha));
+            } catch (IllegalArgumentException ignored) {}
+        }
+        for (String linha : linhas("pedidos.log")) {
+            MotorPedido.Pedido p = ler(linha);
+            if (p != null && !jaAplicados.contains(p.uuid())) pendentes.put(p.uuid(), p);
+        }
+        pedidos = abrir("pedidos.log");
+        aplicados = abrir("aplicados.log");
+        semServidor = !pendentes.isEmpty();
+    }
+
+    public void iniciar() {
+        verificador.scheduleWithFixedDelay(this::verificar, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean semServidor() {
+        return semServidor;
+    }
+
+    public void perdeuServidor() {
+        semServidor = true;
+    }
+
+    public synchronized int pendentes() {
+        return pendentes.size();
+    }
+
+    // Volta depois do fsync: a venda está no disco deste caixa.
+    public synchronized void guardar(MotorPedido.Pedido p) throws IOException {
+        acrescentar(pedidos, escrever(p));
+        pendentes.put(p.uuid(), p);
+        semServidor = true;
+    }
+
+    // -------------------- Envio --------------------
+    private void verificar() {
+        if (!semServidor) return;
+        try {
+            pool.executar(c -> {
+                c.preparar("SELECT 1").executeQuery().close();
+                return null;
+            });
+            if (esvaziar()) ouvinte.voltou();
+        } catch (SQLException | IOException | RuntimeException e) {
+            // Banco ainda fora (ou disco local com problema): tenta de novo no próximo ciclo.
+        }
+    }
+
+    // true quando a fila ficou vazia e o caixa voltou a gravar direto no banco.
+    private boolean esvaziar() throws IOException {
+        while (true) {
+            List<MotorPedido.Pedido> lote;
+            synchronized (this) {
+                if (pendentes.isEmpty()) {
+                    pedidos.truncate(0);
+                    pedidos.force(true);
+                    aplicados.truncate(0);
+                    aplicados.force(true);
+                    semServidor = false;
+                    return true;
+                }
+                lote = pendentes.values().stream().limit(LOTE).toList();
+            }
+            List<CompletableFuture<MotorPedido.ResultadoPedido>> futuros = new ArrayList<>(lote.size());
+            for (MotorPedido.Pedido p : lote) futuros.add(fila.reenviar(p));
+            for (int i = 0; i < lote.size(); i++) {
+                MotorPedido.Pedido p = lote.get(i);
+                String recusa;
+                try {
+                    MotorPedido.ResultadoPedido r = futuros.get(i).get();
+                    recusa = r.sucesso() ? null : String.join(" ", r.falhas().stream().map(MotorPedido.FalhaItem::descricao).toList());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } catch (ExecutionException e) {
+                    // Só restrição do banco (chave estrangeira, valor inválido) é recusa de vez;
+                    // queda, deadlock ou tempo esgotado ficam para o próximo ciclo. uuid repetido
+                    // (23505) é outro envio do mesmo pedido: o próximo ciclo o encontra gravado.
+                    if (!(e.getCause() instanceof SQLException s) || s.getSQLState() == null
+                            || !s.getSQLState().startsWith("23") || s.getSQLState().equals("23505")) {
+                        return false;
+                    }
+                    recusa = s.getMessage();
+                }
+                resolvido(p, recusa);
+                if (recusa == null) ouvinte.gravado(p);
+            }
+        }
+    }
+
+    private synchronized void resolvido(MotorPedido.Pedido p, String recusa) throws IOException {
+        if (recusa != null) {
+            Files.writeString(new File(dir, "rejeitados.log").toPath(), escrever(p) + "\t" + recusa.replace('\t', ' ').replace('\n', ' ') + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        acrescentar(aplicados, p.uuid().toString());
+        pendentes.remove(p.uuid());
+    }
+
+    // -------------------- Arquivos --------------------
+    private static void acrescentar(FileChannel canal, String linha) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap((linha + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) canal.write(buf);
+        canal.force(false);
+    }
+
+    // Corta o resto de uma linha que não chegou ao fim (queda durante a escrita):
+    // o próximo pedido começa numa linha nova.
+    private FileChannel abrir(String nome) throws IOException {
+        FileChannel canal = FileChannel.open(new File(dir, nome).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamanho = canal.size();
+        ByteBuffer um = ByteBuffer.allocate(1);
+        long fim = tamanho;
+        while (fim > 0) {
+            um.clear();
+            canal.read(um, fim - 1);
+            if (um.get(0) == '\n') break;
+            fim--;
+        }
+        if (fim < tamanho) canal.truncate(fim);
+        canal.position(fim);
+        return canal;
+    }
+
+    private List<String> linhas(String nome) throws IOException {
+        File f = new File(dir, nome);
+        if (!f.isFile()) return List.of();
+        String conteudo = Files.readString(f.toPath(), StandardCharsets.UTF_8);
+        int fim = conteudo.lastIndexOf('\n');
+        return fim < 0 ? List.of() : List.of(conteudo.substring(0, fim).split("\n"));
+    }
+
+    static String escrever(MotorPedido.Pedido p) {
+        StringJoiner itens = new StringJoiner(",");
+        for (MotorPedido.ItemPedido i : p.itens()) itens.add(i.produtoId() + ":" + i.quantidade());
+        String linha = p.uuid() + "\t" + p.data() + "\t" + p.funcionarioId() + "\t" + p.clienteId() + "\t" + p.status() + "\t" + itens;
+        return linha + "\t" + Long.toHexString(crc(linha));
+    }
+
+    // null se a linha está incompleta ou não confere com o CRC.
+    static MotorPedido.Pedido ler(String linha) {
+        int corte = linha.lastIndexOf('\t');
+        if (corte < 0) return null;
+        String dados = linha.substring(0, corte);
+        if (!Long.toHexString(crc(dados)).equals(linha.substring(corte + 1))) return null;
+        String[] c = dados.split("\t", -1);
+        if (c.length != 6) return null;
+        List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+        for (String item : c[5].split(",")) {
+            String[] pq = item.split(":");
+            itens.add(new MotorPedido.ItemPedido(Integer.parseInt(pq[0]), Integer.parseInt(pq[1])));
+        }
+        return new MotorPedido.Pedido(UUID.fromString(c[0]), LocalDateTime.parse(c[1]), Integer.parseInt(c[2]),
+                Integer.parseInt(c[3]), c[4], List.copyOf(itens));
+    }
+
+    private static long crc(String s) {
+        CRC32 crc = new CRC32();
+        crc.update(s.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    // Não interrompe um envio em andamento (a FilaGravacao termina o grupo dela).
+    @Override
+    public void close() {
+        verificador.shutdown();
+        try {
+            verificador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            pedidos.close();
+            aplicados.close();
+            travado.release();
+            trava.close();
+        } catch (IOException ignored) {}
+    }
+}
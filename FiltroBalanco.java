@@ -0,0 +1,45 @@
+import java.sql.*;
+import java.time.LocalDate;
+
+// -------------------- Filtro do balanço --------------------
+// Cliente (trecho do nome) e período; as datas são dias inteiros: a data final
+// entra completa (p.data < dataFinal + 1 dia), o que mantém a faixa indexável.
+public record FiltroBalanco(String clienteNome, LocalDate dataInicial, LocalDate dataFinal) {
+
+    public FiltroBalanco {
+        clienteNome = clienteNome == null || clienteNome.isBlank() ? null : clienteNome.trim();
+    }
+
+    // Condições para consultas que usam os apelidos c (cliente) e p (pedido).
+    public String where() {
+        StringBuilder sb = new StringBuilder(" WHERE 1=1");
+        if (clienteNome != null) sb.append(" AND c.nome LIKE ?");
+        if (dataInicial != null) sb.append(" AND p.data >= ?");
+        if (dataFinal != null) sb.append(" AND p.data < ?");
+        return sb.toString();
+    }
+
+    // As mesmas condições (mesmos parâmetros, na mesma ordem) só sobre pedido p: o
+    // cliente vira subconsulta, para o plano começar pelo índice de pedido escolhido.
+    public String wherePedido() {
+        return where().replace(" AND c.nome LIKE ?", " AND p.cliente_id IN (SELECT c.id FROM cliente c WHERE c.nome LIKE ?)");
+    }
+
+    // Preenche os parâmetros de where() a partir de idx; devolve o próximo índice livre.
+    public int preencher(PreparedStatement ps, int idx) throws SQLException {
+        if (clienteNome != null) ps.setString(idx++, "%" + clienteNome + "%");
+        if (dataInicial != null) ps.setTimestamp(idx++, Timestamp.valueOf(dataInicial.atStartOfDay()));
+        if (dataFinal != null) ps.setTimestamp(idx++, Timestamp.valueOf(dataFinal.plusDays(1).atStartOfDay()));
+        return idx;
+    }
+
+    // true se o período começa antes de limite (sem data inicial: desde sempre).
+    public boolean alcanca(LocalDate limite) {
+        return limite != null && (dataInicial == null || dataInicial.isBefore(limite));
+    }
+
+    public String descricao() {
+        return (clienteNome == null ? "Todos os clientes" : "Cliente contém \"" + clienteNome + "\"")
+                + " | " + (dataInicial == null ? "início" : dataInicial) + " a " + (dataFinal == null ? "hoje" : dataFinal);
+    }
+}
@@ -0,0 +1,257 @@
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// -------------------- Gerador de dados sintéticos --------------------
+// Preenche um banco vazio com um histórico parecido com o de uma cantina de campus:
+// vendas só em dias úteis, com picos no intervalo da manhã, no almoço e à tarde;
+// poucos produtos concentram a maior parte das vendas e poucos clientes a maior
+// parte dos pedidos (distribuição de Zipf); alguns clientes vivem "pendurados"
+// (pedidos Em aberto). Mesma semente, mesmo banco.
+// Pedidos e itens entram em lote, com ids explícitos, em ordem de data.
+public class GeradorDados {
+
+    public record Parametros(int pedidos, int clientes, int produtos, int funcionarios, int dias, long semente) {}
+
+    private static final String[] NOMES = {"Ana", "João", "Maria", "José", "Luís", "Conceição", "Antônio", "Cecília",
+            "Sebastião", "Inês", "Vitória", "Gonçalo", "Lúcia", "Márcio", "Júlia", "Fábio", "Letícia", "André",
+            "Patrícia", "Caio", "Bárbara", "Thiago", "Débora", "Rafael", "Mônica", "Vinícius", "Beatriz", "Igor"};
+    private static final String[] SOBRENOMES = {"Silva", "Souza", "Gonçalves", "Araújo", "Simões", "Magalhães",
+            "Brandão", "Lima", "Peçanha", "Assunção", "Conceição", "Ribeiro", "Carvalho", "Gomes", "Martins",
+            "Rocha", "Almeida", "Nascimento", "Fernandes", "Mendonça", "Barbosa", "Falcão", "Loureiro", "Camargo"};
+    private static final String[][] ITENS = {
+            {"Coxinha", "Salgado", "6.5"}, {"Pão de queijo", "Salgado", "4"}, {"Esfiha", "Salgado", "6"},
+            {"Pastel", "Salgado", "7"}, {"Enroladinho", "Salgado", "5.5"}, {"Empada", "Salgado", "6.5"},
+            {"Quibe", "Salgado", "6"}, {"Misto quente", "Salgado", "8"}, {"Bolo", "Doce", "5"},
+            {"Brigadeiro", "Doce", "3"}, {"Brownie", "Doce", "7"}, {"Cookie", "Doce", "4.5"},
+            {"Pudim", "Doce", "6"}, {"Suco", "Bebida", "6"}, {"Refrigerante", "Bebida", "5.5"},
+            {"Café", "Bebida", "3"}, {"Água", "Bebida", "3"}, {"Açaí", "Doce", "12"}};
+    private static final String[] VARIANTES = {"tradicional", "de frango", "de carne", "de queijo", "integral",
+            "de chocolate", "de laranja", "de maracujá", "pequeno", "grande", "zero", "especial"};
+
+    private final Parametros p;
+    private final Random rnd;
+
+    public GeradorDados(Parametros p) {
+        this.p = p;
+        this.rnd = new Random(p.semente());
+    }
+
+    // Só em banco sem pedidos: os ids de pedido e item são atribuídos aqui.
+    public void gerar(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM pedido) + (SELECT COUNT(*) FROM pedido_arquivo)")) {
+            rs.next();
+            if (rs.getLong(1) > 0) throw new SQLException("O banco já tem pedidos; o gerador só preenche bancos vazios.");
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int[] funcionarios = inserirFuncionarios(conn);
+            int[] clientes = inserirClientes(conn);
+            boolean[] fiado = new boolean[clientes.length];
+            for (int i = 0; i < fiado.length; i++) fiado[i] = rnd.nextDouble() < 0.2;
+            int[] produtos = new int[p.produtos()];
+            double[] precos = new double[p.produtos()];
+            inserirProdutos(conn, produtos, precos);
+            conn.commit();
+            inserirPedidos(conn, funcionarios, clientes, fiado, produtos, precos);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        try (Statement st = conn.createStatement()) {
+            VendaDiaria.preencherSeVazia(conn);
+            ContaCliente.reconstruir(conn);
+            CatalogoProdutos.incrementarVersao(conn);
+            st.execute("ANALYZE");
+        }
+    }
+
+    private int[] inserirFuncionarios(Connection conn) throws SQLException {
+        List<String[]> linhas = new ArrayList<>();
+        for (int i = 1; i <= p.funcionarios(); i++) {
+            linhas.add(new String[]{String.format("caixa%02d", i), "caixa", "Caixa " + i, "0"});
+        }
+        return inserir(conn, "INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES (?, ?, ?, ?)", linhas);
+    }
+
+    private int[] inserirClientes(Connection conn) throws SQLException {
+        List<String[]> linhas = new ArrayList<>();
+        for (int i = 0; i < p.clientes(); i++) {
+            linhas.add(new String[]{NOMES[rnd.nextInt(NOMES.length)] + " " + SOBRENOMES[rnd.nextInt(SOBRENOMES.length)]
+                    + " " + SOBRENOMES[rnd.nextInt(SOBRENOMES.length)]});
+        }
+        return inserir(conn, "INSERT INTO cliente(nome) VALUES (?)", linhas);
+    }
+
+    // Estoque folgado na maioria; alguns quase no fim e alguns doces vencidos, como na vida real.
+    private void inserirProdutos(Connection conn, int[] ids, double[] precos) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO produto(nome, tipo, preco, quantidade, validade) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ids.length; i++) {
+                String[] item = ITENS[i % ITENS.length];
+                String variante = VARIANTES[(i / ITENS.length) % VARIANTES.length];
+                int lote = i / (ITENS.length * VARIANTES.length);
+                precos[i] = Math.round((Double.parseDouble(item[2]) + rnd.nextInt(4) * 0.5) * 2) / 2.0;
+                ps.setString(1, item[0] + " " + variante + (lote > 0 ? " " + (lote + 1) : ""));
+                ps.setString(2, item[1]);
+                ps.setDouble(3, precos[i]);
+                ps.setInt(4, rnd.nextDouble() < 0.05 ? 10 + rnd.nextInt(40) : 1_000_000);
+                if (item[1].equals("Doce")) {
+                    ps.setDate(5, java.sql.Date.valueOf(LocalDate.now().plusDays(rnd.nextDouble() < 0.03 ? -3 : 30 + rnd.nextInt(60))));
+                } else {
+                    ps.setNull(5, Types.DATE);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet gen = ps.getGeneratedKeys()) {
+                for (int i = 0; gen.next(); i++) ids[i] = gen.getInt(1);
+            }
+        }
+        EstoqueLotes.criarLotesIniciais(conn);
+    }
+
+    private void inserirPedidos(Connection conn, int[] funcionarios, int[] clientes, boolean[] fiado,
+                                int[] produtos, double[] precos) throws SQLException {
+        Zipf popularidade = new Zipf(produtos.length, 1.1, rnd);
+        Zipf frequencia = new Zipf(clientes.length, 0.8, rnd);
+        int[] produtoDaPosicao = embaralhados(produtos.length);
+        int[] clienteDaPosicao = embaralhados(clientes.length);
+        List<LocalDate> diasUteis = new ArrayList<>();
+        for (LocalDate d = LocalDate.now().minusDays(p.dias() - 1); !d.isAfter(LocalDate.now()); d = d.plusDays(1)) {
+            if (d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY) diasUteis.add(d);
+        }
+        if (diasUteis.isEmpty()) diasUteis.add(LocalDate.now());
+
+        long pedidoId = proximoId(conn, "pedido");
+        long itemId = proximoId(conn, "pedido_item");
+        try (PreparedStatement psPedido = conn.prepareStatement(
+                "INSERT INTO pedido(id, funcionario_id, cliente_id, valor_total, forma_pagamento, data) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement psItem = conn.prepareStatement(
+                "INSERT INTO pedido_item(id, pedido_id, produto_id, quantidade, preco_unitario) VALUES (?, ?, ?, ?, ?)")) {
+            int gerados = 0;
+            for (int d = 0; d < diasUteis.size(); d++) {
+                // Volume diário com variação de ±20%; o último dia fecha a conta.
+                int restantes = p.pedidos() - gerados;
+                int doDia = d == diasUteis.size() - 1 ? restantes
+                        : Math.min(restantes, (int) Math.round(restantes / (double) (diasUteis.size() - d) * (0.8 + 0.4 * rnd.nextDouble())));
+                List<LocalDateTime> horarios = new ArrayList<>(doDia);
+                for (int i = 0; i < doDia; i++) horarios.add(diasUteis.get(d).atStartOfDay().plusSeconds(segundoDoDia()));
+                Collections.sort(horarios);
+
+                for (LocalDateTime quando : horarios) {
+                    int cliente = clienteDaPosicao[frequencia.proximo()];
+                    double chanceAberto = fiado[cliente] ? 0.45 : 0.03;
+                    int qtdItens = 1;
+                    while (qtdItens < 8 && rnd.nextDouble() < 0.45) qtdItens++;
+
+                    double total = 0;
+                    Set<Integer> noPedido = new HashSet<>();
+                    for (int i = 0; i < qtdItens; i++) {
+                        int prod = produtoDaPosicao[popularidade.proximo()];
+                        if (!noPedido.add(prod)) continue;
+                        int qtd = rnd.nextDouble() < 0.85 ? 1 : rnd.nextDouble() < 0.8 ? 2 : 3;
+                        total += precos[prod] * qtd;
+                        psItem.setLong(1, itemId++);
+                        psItem.setLong(2, pedidoId);
+                        psItem.setInt(3, produtos[prod]);
+                        psItem.setInt(4, qtd);
+                        psItem.setDouble(5, precos[prod]);
+                        psItem.addBatch();
+                    }
+                    psPedido.setLong(1, pedidoId++);
+                    psPedido.setInt(2, funcionarios[rnd.nextInt(funcionarios.length)]);
+                    psPedido.setInt(3, clientes[cliente]);
+                    psPedido.setDouble(4, total);
+                    psPedido.setString(5, rnd.nextDouble() < chanceAberto ? "Em aberto" : "Pago");
+                    psPedido.setTimestamp(6, Timestamp.valueOf(quando));
+                    psPedido.addBatch();
+
+                    if (++gerados % 5_000 == 0) {
+                        psPedido.executeBatch();
+                        psItem.executeBatch();
+                        conn.commit();
+                        if (gerados % 100_000 == 0) System.out.printf("  %,d pedidos gerados%n", gerados);
+                    }
+                }
+            }
+            psPedido.executeBatch();
+            psItem.executeBatch();
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER TABLE pedido ALTER COLUMN id RESTART WITH " + pedidoId);
+            st.execute("ALTER TABLE pedido_item ALTER COLUMN id RESTART WITH " + itemId);
+        }
+    }
+
+    // Hora da venda: 30% no intervalo da manhã, 50% no almoço, 20% no lanche da tarde.
+    private long segundoDoDia() {
+        double sorteio = rnd.nextDouble();
+        double hora = sorteio < 0.3 ? 9.5 + rnd.nextGaussian() * 0.35
+                : sorteio < 0.8 ? 12.25 + rnd.nextGaussian() * 0.6
+                : 15.5 + rnd.nextGaussian() * 0.4;
+        return (long) (Math.max(7, Math.min(18, hora)) * 3600);
+    }
+
+    private int[] embaralhados(int n) {
+        int[] v = new int[n];
+        for (int i = 0; i < n; i++) v[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = v[i]; v[i] = v[j]; v[j] = t;
+        }
+        return v;
+    }
+
+    private static long proximoId(Connection conn, String tabela) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + tabela)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int[] inserir(Connection conn, String sql, List<String[]> linhas) throws SQLException {
+        int[] ids = new int[linhas.size()];
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (String[] linha : linhas) {
+                for (int i = 0; i < linha.length; i++) ps.setString(i + 1, linha[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet gen = ps.getGeneratedKeys()) {
+                for (int i = 0; gen.next(); i++) ids[i] = gen.getInt(1);
+            }
+        }
+        return ids;
+    }
+
+    // Sorteio de posições 0..n-1 com peso 1/(k+1)^s: a posição 0 é a mais frequente.
+    static final class Zipf {
+        private final double[] acumulado;
+        private final Random rnd;
+
+        Zipf(int n, double s, Random rnd) {
+            this.rnd = rnd;
+            acumulado = new double[n];
+            double soma = 0;
+            for (int k = 0; k < n; k++) {
+                soma += 1 / Math.pow(k + 1, s);
+                acumulado[k] = soma;
+            }
+            for (int k = 0; k < n; k++) acumulado[k] /= soma;
+        }
+
+        int proximo() {
+            int i = Arrays.binarySearch(acumulado, rnd.nextDouble());
+            return Math.min(acumulado.length - 1, i >= 0 ? i : -i - 1);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// -------------------- Importação em lote de produtos e clientes --------------------
+// Lê CSV ou XLSX linha a linha (LeitorLinhas) e grava em lotes JDBC de até 1.000
+// linhas, uma transação por lote: o arquivo nunca fica todo na memória e uma linha
+// ruim não desfaz as outras (vira um erro com o número da linha).
+// A 1ª linha é o cabeçalho; as colunas são achadas pelo nome, sem acento nem caixa:
+//   produtos: nome, tipo (Salgado/Doce), preco, quantidade, validade (opcional),
+//             codigo_barras (opcional; único, como no cadastro)
+//   clientes: nome
+// Nomes são comparados normalizados (como na busca): repetido no próprio arquivo é
+// erro; já cadastrado é ignorado, ou, para produtos com atualizarExistentes,
+// tem preço, tipo, quantidade e validade atualizados (e o código, se a linha trouxer um).
+// Quantidade e validade da planilha são contagem de inventário: viram o único lote
+// do produto (EstoqueLotes), no lugar dos que ele tinha.
+public class ImportadorCadastro {
+
+    static final int TAMANHO_LOTE = 1_000;
+    static final int MAX_ERROS_LISTADOS = 500;
+
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalDate EPOCA_EXCEL = LocalDate.of(1899, 12, 30);
+    private static final Pattern SERIE_EXCEL = Pattern.compile("(\\d{1,7})(\\.0+)?");
+    private static final Pattern NUMERO_CIENTIFICO = Pattern.compile("\\d+(\\.\\d+)?[eE]\\+?\\d+");
+
+    public record ErroLinha(int linha, String mensagem) {}
+
+    public record Resultado(int inseridos, int atualizados, int ignorados, int comErro, List<ErroLinha> erros) {
+        public String resumo() {
+            return inseridos + " inserido(s), " + atualizados + " atualizado(s), " + ignorados
+                    + " já cadastrado(s), " + comErro + " com erro.";
+        }
+    }
+
+    private record LinhaProduto(Integer idExistente, String nome, String tipo, double preco, int quantidade, LocalDate validade,
+                                String codigoBarras) {}
+
+    private final PoolConexoes pool;
+
+    public ImportadorCadastro(PoolConexoes pool) {
+        this.pool = pool;
+    }
+
+    // -------------------- Clientes --------------------
+    public Resultado importarClientes(File arquivo) throws IOException, SQLException {
+        Map<String, Integer> existentes = nomesExistentes("SELECT id, nome FROM cliente");
+        Map<String, Integer> noArquivo = new HashMap<>();
+        Contagem n = new Contagem();
+        List<String> lote = new ArrayList<>();
+
+        try (LeitorLinhas leitor = LeitorLinhas.abrir(arquivo)) {
+            int[] col = colunas(leitor, new String[]{"nome"}, new boolean[]{true});
+            String[] celulas;
+            while ((celulas = leitor.proxima()) != null) {
+                int linha = leitor.numeroLinha();
+                String nome = celula(celulas, col[0]);
+                if (nome.isEmpty()) { n.erro(linha, "Nome vazio."); continue; }
+                if (nome.length() > 200) { n.erro(linha, "Nome com mais de 200 caracteres."); continue; }
+                String chave = IndiceBusca.normalizar(nome);
+                Integer repetida = noArquivo.putIfAbsent(chave, linha);
+                if (repetida != null) { n.erro(linha, "Nome repetido (linha " + repetida + ")."); continue; }
+                if (existentes.containsKey(chave)) { n.ignorados++; continue; }
+                lote.add(nome);
+                if (lote.size() == TAMANHO_LOTE) gravarClientes(lote, n);
+            }
+        }
+        gravarClientes(lote, n);
+        return n.resultado();
+    }
+
+    private void gravarClientes(List<String> lote, Contagem n) throws SQLException {
+        if (lote.isEmpty()) return;
+        pool.transacao(c -> {
+            PreparedStatement ps = c.preparar("INSERT INTO cliente(nome) VALUES (?)");
+            for (String nome : lote) {
+                ps.setString(1, nome);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return null;
+        });
+        n.inseridos += lote.size();
+        lote.clear();
+    }
+
+    // -------------------- Produtos --------------------
+    public Resultado importarProdutos(File arquivo, boolean atualizarExistentes) throws IOException, SQLException {
+        Map<String, Integer> existentes = nomesExistentes("SELECT id, nome FROM produto");
+        Map<String, Integer> codigos = codigosExistentes();
+        Map<String, Integer> noArquivo = new HashMap<>();
+        Map<String, Integer> codigosNoArquivo = new HashMap<>();
+        Contagem n = new Contagem();
+        List<LinhaProduto> lote = new ArrayList<>();
+
+        try (LeitorLinhas leitor = LeitorLinhas.abrir(arquivo)) {
+            int[] col = colunas(leitor, new String[]{"nome", "tipo", "preco", "quantidade", "validade", "codigo barras"},
+                    new boolean[]{true, true, true, true, false, false});
+            String[] celulas;
+            while ((celulas = leitor.proxima()) != null) {
+                int linha = leitor.numeroLinha();
+                LinhaProduto p;
+                try {
+                    p = validarProduto(celulas, col);
+                } catch (IllegalArgumentException e) {
+                    n.erro(linha, e.getMessage());
+                    continue;
+                }
+                String chave = IndiceBusca.normalizar(p.nome());
+                Integer repetida = noArquivo.putIfAbsent(chave, linha);
+                if (repetida != null) { n.erro(linha, "Nome repetido (linha " + repetida + ")."); continue; }
+                Integer id = existentes.get(chave);
+                if (id != null && !atualizarExistentes) { n.ignorados++; continue; }
+                if (p.codigoBarras() != null) {
+                    Integer outraLinha = codigosNoArquivo.putIfAbsent(p.codigoBarras(), linha);
+                    if (outraLinha != null) { n.erro(linha, "Código de barras repetido (linha " + outraLinha + ")."); continue; }
+                    Integer dono = codigos.get(p.codigoBarras());
+                    if (dono != null && !dono.equals(id)) { n.erro(linha, "Código de barras já usado pelo produto " + dono + "."); continue; }
+                }
+                lote.add(id == null ? p : new LinhaProduto(id, p.nome(), p.tipo(), p.preco(), p.quantidade(), p.validade(), p.codigoBarras()));
+                if (lote.size() == TAMANHO_LOTE) gravarProdutos(lote, n, false);
+            }
+        }
+        gravarProdutos(lote, n, true);
+        return n.resultado();
+    }
+
+    private static LinhaProduto validarProduto(String[] celulas, int[] col) {
+        String nome = celula(celulas, col[0]);
+        if (nome.isEmpty()) throw new IllegalArgumentException("Nome vazio.");
+        if (nome.length() > 150) throw new IllegalArgumentException("Nome com mais de 150 caracteres.");
+
+        String tipoBruto = IndiceBusca.normalizar(celula(celulas, col[1]));
+        String tipo = switch (tipoBruto) {
+            case "salgado" -> "Salgado";
+            case "doce" -> "Doce";
+            default -> throw new IllegalArgumentException("Tipo \"" + celula(celulas, col[1]) + "\" inválido (Salgado ou Doce).");
+        };
+
+        double preco;
+        try {
+            preco = Double.parseDouble(decimal(celula(celulas, col[2])));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Preço \"" + celula(celulas, col[2]) + "\" inválido.");
+        }
+        if (!(preco > 0) || preco > 100_000) throw new IllegalArgumentException("Preço fora da faixa: " + celula(celulas, col[2]) + ".");
+
+        int quantidade;
+        try {
+            double q = Double.parseDouble(decimal(celula(celulas, col[3])));
+            if (q != Math.rint(q)) throw new NumberFormatException();
+            quantidade = (int) q;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Quantidade \"" + celula(celulas, col[3]) + "\" inválida (número inteiro).");
+        }
+        if (quantidade < 0) throw new IllegalArgumentException("Quantidade negativa.");
+
+        LocalDate validade = col[4] < 0 ? null : data(celula(celulas, col[4]));
+        String codigo = col[5] < 0 ? "" : celula(celulas, col[5]);
+        // O Excel guarda código numérico como número e pode gravá-lo em notação científica.
+        if (NUMERO_CIENTIFICO.matcher(codigo).matches()) codigo = new java.math.BigDecimal(codigo).toPlainString();
+        if (codigo.length() > 32) throw new IllegalArgumentException("Código de barras com mais de 32 caracteres.");
+        return new LinhaProduto(null, nome, tipo, preco, quantidade, validade, codigo.isEmpty() ? null : codigo);
+    }
+
+    // Inserções e atualizações do lote numa transação só. A versão do catálogo sobe só
+    // com o último lote: subir a cada lote faria os caixas recarregarem o catálogo
+    // inteiro várias vezes durante a importação.
+    private void gravarProdutos(List<LinhaProduto> lote, Contagem n, boolean ultimo) throws SQLException {
+        boolean gravouAntes = n.inseridos + n.atualizados > 0;
+        if (lote.isEmpty() && !(ultimo && gravouAntes)) return;
+        int[] contagem = pool.transacao(c -> {
+            PreparedStatement ins = c.preparar("INSERT INTO produto(nome, tipo, preco, quantidade, validade, codigo_barras) VALUES (?, ?, ?, ?, ?, ?)");
+            PreparedStatement upd = c.preparar("UPDATE produto SET tipo = ?, preco = ?, quantidade = ?, validade = ?, "
+                    + "codigo_barras = COALESCE(?, codigo_barras) WHERE id = ?");
+            PreparedStatement lotes = c.preparar("DELETE FROM produto_lote WHERE produto_id = ?");
+            int inseridos = 0, atualizados = 0;
+            for (LinhaProduto p : lote) {
+                if (p.idExistente() == null) {
+                    ins.setString(1, p.nome());
+                    ins.setString(2, p.tipo());
+                    ins.setDouble(3, p.preco());
+                    ins.setInt(4, p.quantidade());
+                    if (p.validade() != null) ins.setDate(5, java.sql.Date.valueOf(p.validade())); else ins.setNull(5, Types.DATE);
+                    ins.setString(6, p.codigoBarras());
+                    ins.addBatch();
+                    inseridos++;
+                } else {
+                    upd.setString(1, p.tipo());
+                    upd.setDouble(2, p.preco());
+                    upd.setInt(3, p.quantidade());
+                    if (p.validade() != null) upd.setDate(4, java.sql.Date.valueOf(p.validade())); else upd.setNull(4, Types.DATE);
+                    upd.setString(5, p.codigoBarras());
+                    upd.setInt(6, p.idExistente());
+                    upd.addBatch();
+                    lotes.setInt(1, p.idExistente());
+                    lotes.addBatch();
+                    atualizados++;
+                }
+            }
+            if (inseridos > 0) ins.executeBatch();
+            // Produto antes dos lotes, na mesma ordem de trava da venda.
+            if (atualizados > 0) {
+                upd.executeBatch();
+                lotes.executeBatch();
+            }
+            EstoqueLotes.criarLotesIniciais(c.jdbc());
+            if (ultimo) CatalogoProdutos.incrementarVersao(c.jdbc());
+            return new int[]{inseridos, atualizados};
+        });
+        n.inseridos += contagem[0];
+        n.atualizados += contagem[1];
+        lote.clear();
+    }
+
+    // -------------------- Auxiliares --------------------
+    private Map<String, Integer> nomesExistentes(String sql) throws SQLException {
+        return pool.executar(c -> {
+            Map<String, Integer> mapa = new HashMap<>();
+            try (Statement st = c.jdbc().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    String nome = rs.getString(2);
+                    if (nome != null) mapa.putIfAbsent(IndiceBusca.normalizar(nome), rs.getInt(1));
+                }
+            }
+            return mapa;
+        });
+    }
+
+    private Map<String, Integer> codigosExistentes() throws SQLException {
+        return pool.executar(c -> {
+            Map<String, Integer> mapa = new HashMap<>();
+            try (Statement st = c.jdbc().createStatement();
+                 ResultSet rs = st.executeQuery("SELECT codigo_barras, id FROM produto WHERE codigo_barras IS NOT NULL")) {
+                while (rs.next()) mapa.put(rs.getString(1), rs.getInt(2));
+            }
+            return mapa;
+        });
+    }
+
+    // Posição de cada coluna esperada no cabeçalho (-1 se opcional e ausente).
+    private static int[] colunas(LeitorLinhas leitor, String[] nomes, boolean[] obrigatoria) throws IOException {
+        String[] cabecalho = leitor.proxima();
+        if (cabecalho == null) throw new IOException("Arquivo vazio.");
+        int[] col = new int[nomes.length];
+        Arrays.fill(col, -1);
+        for (int i = 0; i < cabecalho.length; i++) {
+            String titulo = IndiceBusca.normalizar(cabecalho[i]);
+            for (int j = 0; j < nomes.length; j++) {
+                if (col[j] < 0 && titulo.equals(nomes[j])) col[j] = i;
+            }
+        }
+        List<String> faltando = new ArrayList<>();
+        for (int j = 0; j < nomes.length; j++) if (col[j] < 0 && obrigatoria[j]) faltando.add(nomes[j]);
+        if (!faltando.isEmpty()) throw new IOException("Cabeçalho sem a(s) coluna(s): " + String.join(", ", faltando) + ".");
+        return col;
+    }
+
+    private static String celula(String[] celulas, int i) {
+        return i < celulas.length && celulas[i] != null ? celulas[i].trim() : "";
+    }
+
+    // "1.234,50" e "1234,5" (Brasil) ou "1234.50": vírgula é sempre decimal se aparecer.
+    private static String decimal(String texto) {
+        String s = texto.replace("R$", "").replace(" ", "");
+        if (s.indexOf(',') >= 0) s = s.replace(".", "").replace(',', '.');
+        return s;
+    }
+
+    // AAAA-MM-DD, DD/MM/AAAA ou o número de série de data do Excel (dias desde 30/12/1899).
+    private static LocalDate data(String texto) {
+        if (texto.isEmpty()) return null;
+        try {
+            Matcher serieExcel = SERIE_EXCEL.matcher(texto);
+            if (serieExcel.matches()) {
+                long serie = Long.parseLong(serieExcel.group(1));
+                if (serie > 2_958_465) throw new NumberFormatException(); // 31/12/9999 no Excel
+                return EPOCA_EXCEL.plusDays(serie);
+            }
+            if (texto.contains("/")) return LocalDate.parse(texto, DATA_BR);
+            return LocalDate.parse(texto);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Validade \"" + texto + "\" inválida (AAAA-MM-DD ou DD/MM/AAAA).");
+        }
+    }
+
+    private static final class Contagem {
+        int inseridos, atualizados, ignorados, comErro;
+        final List<ErroLinha> erros = new ArrayList<>();
+
+        void erro(int linha, String mensagem) {
+            comErro++;
+            if (erros.size() < MAX_ERROS_LISTADOS) erros.add(new ErroLinha(linha, mensagem));
+        }
+
+        Resultado resultado() {
+            return new Resultado(inseridos, atualizados, ignorados, comErro, List.copyOf(erros));
+        }
+    }
+}
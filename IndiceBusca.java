@@ -0,0 +1,175 @@
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// -------------------- Índice de busca por nome --------------------
+// Busca "enquanto digita" em memória, sem acento e sem diferenciar maiúsculas
+// ("joao" acha "João"). Cada nome é quebrado em trigramas (trechos de 3 letras);
+// a consulta cruza as listas dos trigramas da maior palavra digitada e só confere
+// por extenso os candidatos que sobram. Com só 1 ou 2 letras por palavra, percorre
+// os nomes em ordem alfabética (começo de palavra) e para cedo.
+// Ordem dos resultados: nome que começa com o texto, palavra que começa com o
+// texto, demais; empate por nome.
+public class IndiceBusca {
+
+    public record Resultado(int id, String nome) {}
+
+    private record Entrada(int id, String nome, String normalizado, String[] palavras) {}
+
+    private final Map<Integer, Entrada> porId = new HashMap<>();
+    private final Map<String, Set<Integer>> porTrigrama = new HashMap<>();
+    private Entrada[] ordenadas;
+
+    private static final Comparator<Entrada> POR_NOME =
+            Comparator.comparing(Entrada::normalizado).thenComparingInt(Entrada::id);
+
+    public synchronized void adicionar(int id, String nome) {
+        remover(id);
+        String normalizado = normalizar(nome == null ? "" : nome);
+        String[] palavras = normalizado.isEmpty() ? new String[0] : normalizado.split(" ");
+        Entrada e = new Entrada(id, nome == null ? "" : nome, normalizado, palavras);
+        porId.put(id, e);
+        for (String t : trigramas(normalizado)) porTrigrama.computeIfAbsent(t, k -> new HashSet<>()).add(id);
+        ordenadas = null;
+    }
+
+    public synchronized void remover(int id) {
+        Entrada e = porId.remove(id);
+        if (e == null) return;
+        for (String t : trigramas(e.normalizado())) retirar(porTrigrama, t, id);
+        ordenadas = null;
+    }
+
+    public synchronized void substituirTudo(Map<Integer, String> nomes) {
+        porId.clear();
+        porTrigrama.clear();
+        ordenadas = null;
+        nomes.forEach(this::adicionar);
+    }
+
+    // null se o id não está no índice.
+    public synchronized String nome(int id) {
+        Entrada e = porId.get(id);
+        return e == null ? null : e.nome();
+    }
+
+    public synchronized int tamanho() {
+        return porId.size();
+    }
+
+    // Consulta vazia devolve os primeiros por nome.
+    public synchronized List<Resultado> buscar(String consulta, int limite) {
+        String q = normalizar(consulta == null ? "" : consulta);
+        Entrada[] ordenadas = ordenadas();
+        if (q.isEmpty()) return paraResultado(Arrays.asList(ordenadas).subList(0, Math.min(limite, ordenadas.length)));
+        String[] palavras = q.split(" ");
+        String maisLonga = palavras[0];
+        for (String p : palavras) if (p.length() > maisLonga.length()) maisLonga = p;
+
+        // Faixas de relevância, cada uma já em ordem de nome (basta guardar as primeiras).
+        List<List<Entrada>> faixas = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        if (maisLonga.length() >= 3) {
+            // Trigramas da palavra mais longa reduzem a poucos candidatos; ordena só eles.
+            List<Entrada> candidatas = new ArrayList<>();
+            for (int id : comTrigramas(maisLonga)) {
+                Entrada e = porId.get(id);
+                if (contemTodas(e, palavras)) candidatas.add(e);
+            }
+            candidatas.sort(POR_NOME);
+            for (Entrada e : candidatas) guardar(faixas, e, q, palavras[0], limite);
+        } else {
+            // Só palavras curtas. Nomes que começam com o texto são contíguos na ordem
+            // alfabética: se já bastam, nem percorre o resto.
+            int inicio = inicioPrefixo(ordenadas, q);
+            for (int i = inicio; i < ordenadas.length && faixas.get(0).size() < limite
+                    && ordenadas[i].normalizado().startsWith(q); i++) {
+                if (contemTodas(ordenadas[i], palavras)) faixas.get(0).add(ordenadas[i]);
+            }
+            if (faixas.get(0).size() >= limite) return paraResultado(faixas.get(0));
+            faixas.get(0).clear();
+            for (Entrada e : ordenadas) {
+                if (contemTodas(e, palavras)) guardar(faixas, e, q, palavras[0], limite);
+                if (faixas.get(0).size() >= limite) break;
+            }
+        }
+        List<Entrada> melhores = new ArrayList<>();
+        for (List<Entrada> faixa : faixas) melhores.addAll(faixa.subList(0, Math.min(faixa.size(), limite - melhores.size())));
+        return paraResultado(melhores);
+    }
+
+    // Sem acento, minúsculo, só letras/dígitos separados por um espaço.
+    // Padrões compilados uma vez: a importação em lote normaliza cada linha do arquivo.
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    static String normalizar(String texto) {
+        String semAcento = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcento.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private Set<Integer> comTrigramas(String palavra) {
+        // Começa pela lista mais curta: a interseção nunca cresce.
+        List<Set<Integer>> listas = new ArrayList<>();
+        for (String t : trigramas(palavra)) listas.add(porTrigrama.getOrDefault(t, Set.of()));
+        listas.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> ids = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !ids.isEmpty(); i++) ids.retainAll(listas.get(i));
+        return ids;
+    }
+
+    private static boolean contemTodas(Entrada e, String[] palavras) {
+        for (String palavra : palavras) {
+            if (palavra.length() >= 3 ? !e.normalizado().contains(palavra) : !comecaPalavra(e, palavra)) return false;
+        }
+        return true;
+    }
+
+    private static boolean comecaPalavra(Entrada e, String prefixo) {
+        for (String p : e.palavras()) if (p.startsWith(prefixo)) return true;
+        return false;
+    }
+
+    private static void guardar(List<List<Entrada>> faixas, Entrada e, String consulta, String primeira, int limite) {
+        int faixa = e.normalizado().startsWith(consulta) ? 0 : comecaPalavra(e, primeira) ? 1 : 2;
+        if (faixas.get(faixa).size() < limite) faixas.get(faixa).add(e);
+    }
+
+    private static int inicioPrefixo(Entrada[] ordenadas, String prefixo) {
+        int lo = 0, hi = ordenadas.length;
+        while (lo < hi) {
+            int meio = (lo + hi) >>> 1;
+            if (ordenadas[meio].normalizado().compareTo(prefixo) < 0) lo = meio + 1;
+            else hi = meio;
+        }
+        return lo;
+    }
+
+    private static List<Resultado> paraResultado(List<Entrada> entradas) {
+        List<Resultado> lista = new ArrayList<>(entradas.size());
+        for (Entrada e : entradas) lista.add(new Resultado(e.id(), e.nome()));
+        return lista;
+    }
+
+    private Entrada[] ordenadas() {
+        if (ordenadas == null) {
+            ordenadas = porId.values().toArray(new Entrada[0]);
+            Arrays.sort(ordenadas, POR_NOME);
+        }
+        return ordenadas;
+    }
+
+    private static Set<String> trigramas(String texto) {
+        Set<String> lista = new HashSet<>();
+        for (String palavra : texto.split(" ")) {
+            for (int i = 0; i + 3 <= palavra.length(); i++) lista.add(palavra.substring(i, i + 3));
+        }
+        return lista;
+    }
+
+    private static void retirar(Map<String, Set<Integer>> mapa, String chave, int id) {
+        Set<Integer> lista = mapa.get(chave);
+        if (lista == null) return;
+        lista.remove(id);
+        if (lista.isEmpty()) mapa.remove(chave);
+    }
+}
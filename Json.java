@@ -0,0 +1,200 @@
+import java.util.*;
+
+// -------------------- JSON mínimo --------------------
+// Só o que a API dos totens precisa, sem biblioteca: lê objetos, listas, textos,
+// números (double), booleanos e null para Map/List/String/Double/Boolean/null,
+// e escreve os mesmos tipos (mais Integer/Long e qualquer outro valor via toString).
+public final class Json {
+
+    private final String texto;
+    private int pos;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    public static Object ler(String texto) {
+        Json j = new Json(texto);
+        j.espacos();
+        Object valor = j.valor();
+        j.espacos();
+        if (j.pos != texto.length()) throw j.erro("conteúdo depois do fim");
+        return valor;
+    }
+
+    // Objeto com as chaves na ordem dada: objeto("id", 1, "nome", "Ana").
+    public static Map<String, Object> objeto(Object... chavesEValores) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < chavesEValores.length; i += 2) m.put((String) chavesEValores[i], chavesEValores[i + 1]);
+        return m;
+    }
+
+    public static String escrever(Object valor) {
+        StringBuilder sb = new StringBuilder();
+        escrever(sb, valor);
+        return sb.toString();
+    }
+
+    private static void escrever(StringBuilder sb, Object valor) {
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof Map<?, ?> m) {
+            sb.append('{');
+            boolean primeiro = true;
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                if (!primeiro) sb.append(',');
+                primeiro = false;
+                texto(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                escrever(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (valor instanceof Collection<?> lista) {
+            sb.append('[');
+            boolean primeiro = true;
+            for (Object o : lista) {
+                if (!primeiro) sb.append(',');
+                primeiro = false;
+                escrever(sb, o);
+            }
+            sb.append(']');
+        } else if (valor instanceof Double || valor instanceof Float) {
+            double d = ((Number) valor).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) sb.append("null");
+            else if (d == Math.rint(d) && Math.abs(d) < 1e15) sb.append((long) d);
+            else sb.append(d);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else {
+            texto(sb, valor.toString());
+        }
+    }
+
+    private static void texto(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    // -------------------- Leitura --------------------
+    private Object valor() {
+        if (pos >= texto.length()) throw erro("fim inesperado");
+        char c = texto.charAt(pos);
+        return switch (c) {
+            case '{' -> objeto();
+            case '[' -> lista();
+            case '"' -> texto();
+            case 't' -> palavra("true", Boolean.TRUE);
+            case 'f' -> palavra("false", Boolean.FALSE);
+            case 'n' -> palavra("null", null);
+            default -> numero();
+        };
+    }
+
+    private Map<String, Object> objeto() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        pos++;
+        espacos();
+        if (consumir('}')) return m;
+        do {
+            espacos();
+            if (pos >= texto.length() || texto.charAt(pos) != '"') throw erro("esperava nome do campo");
+            String chave = texto();
+            espacos();
+            if (!consumir(':')) throw erro("esperava ':'");
+            espacos();
+            m.put(chave, valor());
+            espacos();
+        } while (consumir(','));
+        if (!consumir('}')) throw erro("esperava '}'");
+        return m;
+    }
+
+    private List<Object> lista() {
+        List<Object> l = new ArrayList<>();
+        pos++;
+        espacos();
+        if (consumir(']')) return l;
+        do {
+            espacos();
+            l.add(valor());
+            espacos();
+        } while (consumir(','));
+        if (!consumir(']')) throw erro("esperava ']'");
+        return l;
+    }
+
+    private String texto() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= texto.length()) break;
+            char e = texto.charAt(pos++);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (pos + 4 > texto.length()) throw erro("\\u incompleto");
+                    sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> sb.append(e);
+            }
+        }
+        throw erro("texto sem fim");
+    }
+
+    private Object palavra(String palavra, Object valor) {
+        if (!texto.startsWith(palavra, pos)) throw erro("valor inválido");
+        pos += palavra.length();
+        return valor;
+    }
+
+    private Double numero() {
+        int inicio = pos;
+        while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) pos++;
+        try {
+            return Double.valueOf(texto.substring(inicio, pos));
+        } catch (NumberFormatException e) {
+            throw erro("número inválido");
+        }
+    }
+
+    private boolean consumir(char c) {
+        if (pos < texto.length() && texto.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void espacos() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException erro(String motivo) {
+        return new IllegalArgumentException("JSON inválido (posição " + pos + "): " + motivo);
+    }
+}
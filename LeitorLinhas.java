@@ -0,0 +1,299 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// -------------------- Leitura de CSV / XLSX em fluxo --------------------
+// Devolve uma linha por vez (células como texto), sem carregar o arquivo:
+//  - CSV: UTF-8 (com ou sem BOM), separador ',' ou ';' (detectado na 1ª linha),
+//    campos entre aspas com aspas dobradas e quebras de linha.
+//  - XLSX: a primeira aba, lida com StAX direto do zip. O poi-5.0.0.jar do projeto
+//    não traz o XSSF (poi-ooxml), e o XSSF carregaria a planilha toda na memória.
+//    Só a tabela de strings compartilhadas fica em memória; números vêm como o
+//    texto gravado no arquivo (datas do Excel são o número de dias, ver ImportadorCadastro).
+public abstract class LeitorLinhas implements Closeable {
+
+    // null no fim do arquivo.
+    public abstract String[] proxima() throws IOException;
+
+    // Número (1, 2, ...) da linha devolvida por último, como aparece no arquivo.
+    public abstract int numeroLinha();
+
+    public static LeitorLinhas abrir(File arquivo) throws IOException {
+        String nome = arquivo.getName().toLowerCase();
+        if (nome.endsWith(".xlsx")) return new Xlsx(arquivo);
+        if (nome.endsWith(".xls")) throw new IOException("Formato .xls antigo não suportado: salve como .xlsx ou .csv.");
+        return new Csv(new InputStreamReader(new FileInputStream(arquivo), StandardCharsets.UTF_8));
+    }
+
+    // -------------------- CSV --------------------
+    static final class Csv extends LeitorLinhas {
+        private final Reader in;
+        private char separador;
+        private int linha;
+        private int linhaFisica = 1;
+        private int pendente = -2;
+
+        Csv(Reader in) {
+            this.in = new BufferedReader(in, 64 * 1024);
+        }
+
+        @Override
+        public String[] proxima() throws IOException {
+            int c = ler();
+            if (c == '\uFEFF' && linha == 0) c = ler();
+            while (c == '\r' || c == '\n') c = ler(); // linhas em branco
+            if (c == -1) return null;
+            linha = linhaFisica;
+
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean aspas = false;
+            while (true) {
+                if (c == -1) break;
+                if (aspas) {
+                    if (c == '"') {
+                        int d = ler();
+                        if (d == '"') campo.append('"');
+                        else { aspas = false; c = d; continue; }
+                    } else {
+                        if (c == '\n') linhaFisica++;
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.isEmpty()) {
+                    aspas = true;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int d = ler();
+                        if (d != '\n') pendente = d;
+                    }
+                    linhaFisica++;
+                    break;
+                } else {
+                    // O primeiro separador fora de aspas no cabeçalho decide (Excel em português grava ';').
+                    if (separador == 0 && linha == 1 && (c == ',' || c == ';')) separador = (char) c;
+                    if (c == separador) {
+                        campos.add(campo.toString());
+                        campo.setLength(0);
+                    } else {
+                        campo.append((char) c);
+                    }
+                }
+                c = ler();
+            }
+            campos.add(campo.toString());
+            if (separador == 0) separador = ',';
+            return campos.toArray(new String[0]);
+        }
+
+        private int ler() throws IOException {
+            if (pendente != -2) {
+                int c = pendente;
+                pendente = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        @Override
+        public int numeroLinha() {
+            return linha;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // -------------------- XLSX --------------------
+    static final class Xlsx extends LeitorLinhas {
+        private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+        private final ZipFile zip;
+        private final InputStream entrada;
+        private final XMLStreamReader xml;
+        private final List<String> compartilhadas = new ArrayList<>();
+        private int linha;
+
+        Xlsx(File arquivo) throws IOException {
+            zip = new ZipFile(arquivo);
+            try {
+                lerCompartilhadas();
+                ZipEntry aba = zip.getEntry(primeiraAba());
+                if (aba == null) throw new IOException("Planilha sem abas.");
+                entrada = new BufferedInputStream(zip.getInputStream(aba), 64 * 1024);
+                xml = fabrica().createXMLStreamReader(entrada);
+            } catch (XMLStreamException e) {
+                zip.close();
+                throw new IOException("XLSX inválido: " + e.getMessage(), e);
+            } catch (IOException | RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        private static XMLInputFactory fabrica() {
+            XMLInputFactory f = XMLInputFactory.newInstance();
+            f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return f;
+        }
+
+        // workbook.xml diz qual é a 1ª aba; o rels dela diz o arquivo (normalmente sheet1.xml).
+        private String primeiraAba() throws IOException, XMLStreamException {
+            String rid = null;
+            ZipEntry wb = zip.getEntry("xl/workbook.xml");
+            if (wb != null) {
+                try (InputStream in = zip.getInputStream(wb)) {
+                    XMLStreamReader r = fabrica().createXMLStreamReader(in);
+                    while (r.hasNext() && rid == null) {
+                        if (r.next() == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("sheet")) {
+                            rid = r.getAttributeValue(NS_REL, "id");
+                        }
+                    }
+                }
+            }
+            ZipEntry rels = zip.getEntry("xl/_rels/workbook.xml.rels");
+            if (rid != null && rels != null) {
+                try (InputStream in = zip.getInputStream(rels)) {
+                    XMLStreamReader r = fabrica().createXMLStreamReader(in);
+                    while (r.hasNext()) {
+                        if (r.next() == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("Relationship")
+                                && rid.equals(r.getAttributeValue(null, "Id"))) {
+                            String alvo = r.getAttributeValue(null, "Target");
+                            return alvo.startsWith("/") ? alvo.substring(1) : "xl/" + alvo;
+                        }
+                    }
+                }
+            }
+            return "xl/worksheets/sheet1.xml";
+        }
+
+        private void lerCompartilhadas() throws IOException, XMLStreamException {
+            ZipEntry e = zip.getEntry("xl/sharedStrings.xml");
+            if (e == null) return;
+            try (InputStream in = new BufferedInputStream(zip.getInputStream(e), 64 * 1024)) {
+                XMLStreamReader r = fabrica().createXMLStreamReader(in);
+                StringBuilder atual = null;
+                boolean emTexto = false;
+                while (r.hasNext()) {
+                    int ev = r.next();
+                    if (ev == XMLStreamConstants.START_ELEMENT) {
+                        switch (r.getLocalName()) {
+                            case "si" -> atual = new StringBuilder();
+                            case "t" -> emTexto = atual != null;
+                            case "rPh" -> pularElemento(r); // leitura fonética (japonês): não faz parte do texto
+                            default -> {}
+                        }
+                    } else if (ev == XMLStreamConstants.CHARACTERS && emTexto) {
+                        atual.append(r.getText());
+                    } else if (ev == XMLStreamConstants.END_ELEMENT) {
+                        if (r.getLocalName().equals("t")) emTexto = false;
+                        else if (r.getLocalName().equals("si")) {
+                            compartilhadas.add(atual.toString());
+                            atual = null;
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void pularElemento(XMLStreamReader r) throws XMLStreamException {
+            int nivel = 1;
+            while (nivel > 0 && r.hasNext()) {
+                int ev = r.next();
+                if (ev == XMLStreamConstants.START_ELEMENT) nivel++;
+                else if (ev == XMLStreamConstants.END_ELEMENT) nivel--;
+            }
+        }
+
+        @Override
+        public String[] proxima() throws IOException {
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("row")) {
+                        String r = xml.getAttributeValue(null, "r");
+                        linha = r != null ? Integer.parseInt(r) : linha + 1;
+                        String[] celulas = lerLinha();
+                        if (celulas.length > 0) return celulas;
+                    }
+                }
+                return null;
+            } catch (XMLStreamException e) {
+                throw new IOException("XLSX inválido na linha " + linha + ": " + e.getMessage(), e);
+            }
+        }
+
+        private String[] lerLinha() throws XMLStreamException {
+            List<String> celulas = new ArrayList<>();
+            String tipo = null;
+            int coluna = -1;
+            StringBuilder valor = new StringBuilder();
+            boolean emValor = false;
+            while (xml.hasNext()) {
+                int ev = xml.next();
+                if (ev == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "c" -> {
+                            String ref = xml.getAttributeValue(null, "r");
+                            coluna = ref != null ? coluna(ref) : coluna + 1;
+                            tipo = xml.getAttributeValue(null, "t");
+                            valor.setLength(0);
+                        }
+                        case "v", "t" -> emValor = true;
+                        case "rPh" -> pularElemento(xml);
+                        default -> {}
+                    }
+                } else if (ev == XMLStreamConstants.CHARACTERS && emValor) {
+                    valor.append(xml.getText());
+                } else if (ev == XMLStreamConstants.END_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "v", "t" -> emValor = false;
+                        case "c" -> {
+                            while (celulas.size() < coluna) celulas.add("");
+                            String texto = valor.toString();
+                            if ("s".equals(tipo) && !texto.isEmpty()) texto = compartilhadas.get(Integer.parseInt(texto.trim()));
+                            else if ("b".equals(tipo)) texto = texto.equals("1") ? "TRUE" : "FALSE";
+                            celulas.add(texto);
+                        }
+                        case "row" -> {
+                            return celulas.toArray(new String[0]);
+                        }
+                        default -> {}
+                    }
+                }
+            }
+            return celulas.toArray(new String[0]);
+        }
+
+        // "C12" -> 2 (coluna A = 0).
+        private static int coluna(String ref) {
+            int n = 0;
+            for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+                n = n * 26 + (Character.toUpperCase(ref.charAt(i)) - 'A' + 1);
+            }
+            return n - 1;
+        }
+
+        @Override
+        public int numeroLinha() {
+            return linha;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                xml.close();
+            } catch (XMLStreamException ignored) {}
+            entrada.close();
+            zip.close();
+        }
+    }
+}
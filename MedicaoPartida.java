@@ -0,0 +1,146 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// -------------------- Medição da partida do caixa --------------------
+// Ferramenta sem interface: gera um banco sintético (GeradorDados) e abre o caixa
+// várias vezes, cada uma numa JVM nova (partida a frio de verdade: JVM, classes,
+// arquivo do banco). Compara a ordem antiga, em que a EDT abria o banco, conferia o
+// esquema e carregava o catálogo antes de mostrar a tela, com a partida atual
+// (SistemaCantinaComBalanco): tela na hora e banco, catálogo e aquecimento da venda
+// na thread de partida. O funcionário leva --login-ms para digitar usuário e senha,
+// a partir da tela; a venda é pedida quando o login terminou e o banco está pronto.
+// Tempos contados do início da JVM:
+//   tela   - quando a EDT fica livre para montar a tela inicial
+//   pronto - banco aberto, catálogo carregado (login liberado)
+//   venda  - primeira venda gravada
+// e "1ª venda", o tempo da primeira venda em si (do pedido ao commit).
+// A montagem das janelas Swing é igual nos dois casos e não entra (roda sem monitor);
+// no caixa, "partida · tela" e "partida · banco" ficam em Metricas.
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar MedicaoPartida
+//        [--rodadas 10] [--login-ms 2000] [--pedidos 300000] [--banco DIR]
+// Com --banco apontando para um banco já gerado, a geração é pulada.
+public class MedicaoPartida {
+
+    private static final String[] MODOS = {"antes", "depois"};
+    private static final String[] FASES = {"tela", "pronto", "venda", "1ª venda"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--filho")) {
+            filho(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), Long.parseLong(args[5]));
+            return;
+        }
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) opcoes.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int rodadas = Integer.parseInt(opcoes.getOrDefault("rodadas", "10"));
+        long loginMs = Long.parseLong(opcoes.getOrDefault("login-ms", "2000"));
+        int pedidos = Integer.parseInt(opcoes.getOrDefault("pedidos", "300000"));
+        File dir = new File(opcoes.getOrDefault("banco",
+                new File(System.getProperty("java.io.tmpdir"), "cantina-partida-" + System.nanoTime()).getPath()));
+        dir.mkdirs();
+        // Como o caixa abre: arquivo local com AUTO_SERVER (ver cantina.properties)
+        String url = "jdbc:h2:file:" + new File(dir, "cantina").getAbsolutePath() + ";AUTO_SERVER=TRUE;LOCK_TIMEOUT=10000";
+
+        int funcionarioId, clienteId;
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            SistemaCantinaComBalanco.criarEsquema(conn);
+            if (contar(conn, "pedido") == 0) {
+                System.out.printf("Gerando %,d pedidos em %s%n", pedidos, dir);
+                new GeradorDados(new GeradorDados.Parametros(pedidos, 3000, 150, 4, 365, 42)).gerar(conn);
+            }
+            System.out.printf("Banco: %,d pedidos, %,d clientes, %,d produtos%n",
+                    contar(conn, "pedido"), contar(conn, "cliente"), contar(conn, "produto"));
+            funcionarioId = primeiro(conn, "funcionario");
+            clienteId = primeiro(conn, "cliente");
+        }
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Map<String, List<long[]>> tempos = new HashMap<>();
+        // Uma rodada a mais, descartada: a primeira abertura ainda arruma o arquivo do banco.
+        for (int r = 0; r <= rodadas; r++) {
+            for (String modo : MODOS) {
+                Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "MedicaoPartida",
+                        "--filho", modo, url, String.valueOf(funcionarioId), String.valueOf(clienteId), String.valueOf(loginMs))
+                        .redirectErrorStream(true).start();
+                String ultima = null;
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                    for (String linha; (linha = in.readLine()) != null; ) ultima = linha;
+                }
+                if (p.waitFor() != 0 || ultima == null || !ultima.startsWith("partida ")) {
+                    throw new IllegalStateException("Caixa (" + modo + ") falhou: " + ultima);
+                }
+                String[] v = ultima.split(" ");
+                if (r > 0) {
+                    tempos.computeIfAbsent(modo, k -> new ArrayList<>())
+                            .add(new long[]{Long.parseLong(v[1]), Long.parseLong(v[2]), Long.parseLong(v[3]), Long.parseLong(v[4])});
+                }
+            }
+        }
+
+        System.out.printf("%d partidas de cada, login em %d ms; ms desde o início da JVM (p50 / máx)%n", rodadas, loginMs);
+        for (String modo : MODOS) {
+            StringBuilder sb = new StringBuilder(String.format("%-7s", modo));
+            for (int f = 0; f < FASES.length; f++) {
+                int fase = f;
+                long[] ord = tempos.get(modo).stream().mapToLong(t -> t[fase]).sorted().toArray();
+                sb.append(String.format("  %s %5d / %5d", FASES[f], ord[ord.length / 2], ord[ord.length - 1]));
+            }
+            System.out.println(sb);
+        }
+    }
+
+    // Um caixa abrindo: imprime "partida <tela> <pronto> <venda> <1ª venda>".
+    private static void filho(String modo, String url, int funcionarioId, int clienteId, long loginMs) throws Exception {
+        long jvm = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long tela;
+        ServicoCantina servico;
+        if (modo.equals("antes")) {
+            servico = new ServicoCantina(new PoolConexoes(url, "sa", "", 4, 5000));
+            servico.iniciar();
+            tela = System.currentTimeMillis();
+        } else {
+            tela = System.currentTimeMillis();
+            CompletableFuture<ServicoCantina> partida = CompletableFuture.supplyAsync(() -> {
+                try {
+                    ServicoCantina s = new ServicoCantina(new PoolConexoes(url, "sa", "", 4, 5000));
+                    s.iniciar();
+                    return s;
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            partida.thenAccept(ServicoCantina::aquecer);
+            servico = partida.join();
+        }
+        long pronto = System.currentTimeMillis();
+        Thread.sleep(Math.max(0, tela + loginMs - pronto));
+        long pedido = System.currentTimeMillis();
+        CatalogoProdutos.Produto produto = servico.listarProdutos().stream()
+                .filter(CatalogoProdutos.Produto::disponivel).findFirst().orElseThrow();
+        MotorPedido.ResultadoPedido r = servico.enviarPedido(funcionarioId, clienteId, "Pago",
+                List.of(new MotorPedido.ItemPedido(produto.id(), 1))).get();
+        if (!r.sucesso()) throw new IllegalStateException(r.falhas().toString());
+        long venda = System.currentTimeMillis();
+        servico.close();
+        servico.getPool().close();
+        System.out.printf("partida %d %d %d %d%n", tela - jvm, pronto - jvm, venda - jvm, venda - pedido);
+    }
+
+    private static int primeiro(Connection conn, String tabela) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT MIN(id) FROM " + tabela)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static long contar(Connection conn, String tabela) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabela)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
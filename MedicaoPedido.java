@@ -0,0 +1,177 @@
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+
+// -------------------- Medição de latência da gravação de pedidos --------------------
+// Ferramenta sem interface: compara o caminho antigo (um statement por item) com o
+// MotorPedido para um pedido de 10 itens, num banco temporário acessado via TCP,
+// como um segundo terminal enxerga o banco aberto com AUTO_SERVER. Depois mede vendas
+// por segundo com vários caixas ao mesmo tempo: cada um com sua transação
+// (MotorPedido.registrar) e pela fila de commit em grupo (FilaGravacao).
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar MedicaoPedido [repeticoes] [caixas]
+public class MedicaoPedido {
+
+    private static final int ITENS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int repeticoes = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int caixas = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        File dir = new File(System.getProperty("java.io.tmpdir"), "cantina-medicao-" + System.nanoTime());
+        dir.mkdirs();
+        org.h2.tools.Server servidor = org.h2.tools.Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/" + new File(dir, "cantina").getAbsolutePath();
+
+        try (PoolConexoes pool = new PoolConexoes(url, "sa", "", 1, 5000)) {
+            int funcionarioId = pool.executar(c -> {
+                SistemaCantinaComBalanco.criarEsquema(c.jdbc());
+                return semear(c.jdbc());
+            });
+
+            List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+            for (int i = 1; i <= ITENS; i++) itens.add(new MotorPedido.ItemPedido(i, 1));
+
+            long[] antes = new long[repeticoes];
+            long[] depois = new long[repeticoes];
+            MotorPedido motor = new MotorPedido(pool);
+            PoolConexoes.Trabalho<Void> legado = c -> {
+                registrarLegado(c.jdbc(), funcionarioId, itens);
+                return null;
+            };
+            // aquecimento
+            for (int i = 0; i < 200; i++) {
+                pool.executar(legado);
+                motor.registrar(funcionarioId, 1, "Pago", itens);
+            }
+            for (int i = 0; i < repeticoes; i++) {
+                long t0 = System.nanoTime();
+                pool.executar(legado);
+                long t1 = System.nanoTime();
+                motor.registrar(funcionarioId, 1, "Pago", itens);
+                long t2 = System.nanoTime();
+                antes[i] = t1 - t0;
+                depois[i] = t2 - t1;
+            }
+
+            System.out.printf("Pedido com %d itens, %d repetições%n", ITENS, repeticoes);
+            imprimir("antes (statement por item)", antes);
+            imprimir("depois (MotorPedido)      ", depois);
+
+            try (PoolConexoes varios = new PoolConexoes(url, "sa", "", caixas, 5000)) {
+                MotorPedido motorVarios = new MotorPedido(varios);
+                try (FilaGravacao fila = new FilaGravacao(varios, motorVarios)) {
+                    PedidoCaixa avulso = () -> motorVarios.registrar(funcionarioId, 1, "Pago", itens);
+                    PedidoCaixa emGrupo = () -> fila.enviar(funcionarioId, 1, "Pago", itens).get();
+                    vazao(caixas, 100, avulso);
+                    vazao(caixas, 100, emGrupo);
+                    System.out.printf("%d caixas simultâneos, %d pedidos cada%n", caixas, repeticoes);
+                    System.out.printf("uma transação por pedido  %7.0f pedidos/s%n", vazao(caixas, repeticoes, avulso));
+                    System.out.printf("fila com commit em grupo  %7.0f pedidos/s%n", vazao(caixas, repeticoes, emGrupo));
+                }
+            }
+        } finally {
+            servidor.stop();
+        }
+    }
+
+    private interface PedidoCaixa {
+        void registrar() throws Exception;
+    }
+
+    // Pedidos por segundo com `caixas` threads registrando `porCaixa` pedidos cada.
+    private static double vazao(int caixas, int porCaixa, PedidoCaixa pedido) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Exception> erros = Collections.synchronizedList(new ArrayList<>());
+        long inicio = System.nanoTime();
+        for (int t = 0; t < caixas; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < porCaixa; i++) pedido.registrar();
+                } catch (Exception e) {
+                    erros.add(e);
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        if (!erros.isEmpty()) throw erros.get(0);
+        return caixas * porCaixa / ((System.nanoTime() - inicio) / 1e9);
+    }
+
+    private static int semear(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES ('medicao', '', 'Medição', 0)");
+            st.executeUpdate("INSERT INTO cliente(nome) VALUES ('Cliente Medição')");
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO produto(nome, tipo, preco, quantidade) VALUES (?, 'Salgado', ?, ?)")) {
+            for (int i = 1; i <= ITENS; i++) {
+                ps.setString(1, "Produto " + i);
+                ps.setDouble(2, 2.5 + i);
+                ps.setInt(3, Integer.MAX_VALUE);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        EstoqueLotes.criarLotesIniciais(conn);
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT MAX(id) FROM funcionario")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Reprodução do caminho anterior de registrarPedidoComValidacaoCliente.
+    private static void registrarLegado(Connection conn, int funcionarioId, List<MotorPedido.ItemPedido> itens) throws SQLException {
+        double total = 0;
+        for (MotorPedido.ItemPedido item : itens) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT preco FROM produto WHERE id = ?")) {
+                ps.setInt(1, item.produtoId());
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()) total += rs.getDouble("preco") * item.quantidade();
+            }
+        }
+        conn.setAutoCommit(false);
+        try (PreparedStatement psPedido = conn.prepareStatement(
+                "INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento) VALUES (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            psPedido.setInt(1, funcionarioId);
+            psPedido.setInt(2, 1);
+            psPedido.setDouble(3, total);
+            psPedido.setString(4, "Pago");
+            psPedido.executeUpdate();
+            ResultSet gen = psPedido.getGeneratedKeys();
+            gen.next();
+            int pedidoId = gen.getInt(1);
+            for (MotorPedido.ItemPedido item : itens) {
+                double precoUnit;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT preco FROM produto WHERE id = ?")) {
+                    ps.setInt(1, item.produtoId());
+                    ResultSet rs = ps.executeQuery();
+                    precoUnit = rs.next() ? rs.getDouble("preco") : 0;
+                }
+                try (PreparedStatement psItem = conn.prepareStatement("INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario) VALUES (?, ?, ?, ?)")) {
+                    psItem.setInt(1, pedidoId);
+                    psItem.setInt(2, item.produtoId());
+                    psItem.setInt(3, item.quantidade());
+                    psItem.setDouble(4, precoUnit);
+                    psItem.executeUpdate();
+                }
+                try (PreparedStatement up = conn.prepareStatement("UPDATE produto SET quantidade = quantidade - ? WHERE id = ?")) {
+                    up.setInt(1, item.quantidade());
+                    up.setInt(2, item.produtoId());
+                    up.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void imprimir(String rotulo, long[] amostras) {
+        long[] ord = amostras.clone();
+        Arrays.sort(ord);
+        System.out.printf("%s  p50 %7.1f µs | p95 %7.1f µs | p99 %7.1f µs%n", rotulo,
+                ord[ord.length / 2] / 1000.0, ord[(int) (ord.length * 0.95)] / 1000.0, ord[(int) (ord.length * 0.99)] / 1000.0);
+    }
+}
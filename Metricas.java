@@ -0,0 +1,295 @@
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// -------------------- Métricas de desempenho --------------------
+// Histogramas de latência e contadores por operação (login, venda, balanço,
+// exportação...). medir(...) marca a operação da thread; os statements e commits
+// feitos dentro dela pelo pool entram como "sql · operação" e "commit · operação".
+// Statements lentos guardam o SQL numa amostra (últimos 50).
+// Cada métrica aparece no JMX (cantina:type=Metrica,name=...) e, com
+// iniciarArquivo(...), é gravada a cada minuto em metricas/metricas-AAAA-MM-DD.log
+// (um arquivo por dia, os 7 mais recentes são mantidos).
+public final class Metricas {
+
+    public interface Medido<T, E extends Exception> {
+        T executar() throws E;
+    }
+
+    public record ConsultaLenta(LocalDateTime quando, String operacao, double ms, String sql) {}
+
+    public record Resumo(String nome, long quantidade, long erros, double mediaMs, double p50Ms, double p95Ms,
+                         double p99Ms, double maxMs, long quantidadeRecente, double p95RecenteMs) {}
+
+    public interface MetricaMXBean {
+        long getQuantidade();
+        long getErros();
+        double getMediaMs();
+        double getP50Ms();
+        double getP95Ms();
+        double getP99Ms();
+        double getMaxMs();
+        double getP95RecenteMs();
+    }
+
+    static final long LIMIAR_LENTA_MS = 200;
+    private static final int MAX_LENTAS = 50;
+    private static final int DIAS_ARQUIVO = 7;
+
+    private static final Map<String, Metrica> metricas = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedDeque<ConsultaLenta> lentas = new ConcurrentLinkedDeque<>();
+    private static final ThreadLocal<String> operacaoAtual = new ThreadLocal<>();
+    private static ScheduledExecutorService gravador;
+    // Subir o servidor JMX da plataforma leva ~0,6 s na primeira vez: o registro vai para
+    // esta thread e não atrasa a operação que criou a métrica (na partida, a primeira consulta).
+    private static final Executor registroJmx = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "metricas-jmx");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Metricas() {}
+
+    // Mede o trabalho como a operação dada; exceção conta como erro e é relançada.
+    public static <T, E extends Exception> T medir(String operacao, Medido<T, E> trabalho) throws E {
+        String anterior = operacaoAtual.get();
+        operacaoAtual.set(operacao);
+        long inicio = System.nanoTime();
+        boolean ok = false;
+        try {
+            T r = trabalho.executar();
+            ok = true;
+            return r;
+        } finally {
+            metrica(operacao).registrar(System.nanoTime() - inicio, ok);
+            if (anterior == null) operacaoAtual.remove(); else operacaoAtual.set(anterior);
+        }
+    }
+
+    // Para operações que começam numa thread e terminam em outra (ex.: FilaGravacao).
+    public static void registrar(String operacao, long nanos, boolean ok) {
+        metrica(operacao).registrar(nanos, ok);
+    }
+
+    public static String operacaoAtual() {
+        String op = operacaoAtual.get();
+        return op == null ? "geral" : op;
+    }
+
+    // Chamado pelo pool a cada execução de statement.
+    static void statement(String sql, long nanos, boolean ok) {
+        String op = operacaoAtual();
+        metrica("sql · " + op).registrar(nanos, ok);
+        double ms = nanos / 1e6;
+        if (ms >= LIMIAR_LENTA_MS) {
+            lentas.addFirst(new ConsultaLenta(LocalDateTime.now(), op, ms, sql.strip().replaceAll("\\s+", " ")));
+            while (lentas.size() > MAX_LENTAS) lentas.pollLast();
+        }
+    }
+
+    static void commit(long nanos, boolean ok) {
+        metrica("commit · " + operacaoAtual()).registrar(nanos, ok);
+    }
+
+    public static List<Resumo> resumos() {
+        List<Resumo> lista = new ArrayList<>();
+        for (Metrica m : metricas.values()) lista.add(m.resumo());
+        lista.sort(Comparator.comparing(Resumo::nome));
+        return lista;
+    }
+
+    // Resumo de uma operação só; null se ela nunca foi medida.
+    public static Resumo resumo(String operacao) {
+        Metrica m = metricas.get(operacao);
+        return m == null ? null : m.resumo();
+    }
+
+    public static List<ConsultaLenta> consultasLentas() {
+        return new ArrayList<>(lentas);
+    }
+
+    // Grava um resumo por minuto no diretório dado e apaga arquivos com mais de 7 dias.
+    public static synchronized void iniciarArquivo(File dir) {
+        if (gravador != null) return;
+        dir.mkdirs();
+        gravador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metricas-arquivo");
+            t.setDaemon(true);
+            return t;
+        });
+        gravador.scheduleAtFixedRate(() -> gravar(dir), 1, 1, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void pararArquivo(File dir) {
+        if (gravador == null) return;
+        gravador.shutdownNow();
+        gravador = null;
+        gravar(dir);
+    }
+
+    private static void gravar(File dir) {
+        LocalDateTime agora = LocalDateTime.now().withNano(0);
+        File arquivo = new File(dir, "metricas-" + agora.toLocalDate() + ".log");
+        try (PrintWriter out = new PrintWriter(new FileWriter(arquivo, true))) {
+            for (Metrica m : metricas.values()) {
+                Resumo r = m.virarJanela();
+                if (r.quantidade() == 0) continue;
+                out.printf(Locale.ROOT, "%s\t%s\tqtd=%d\terros=%d\tmedia=%.2fms\tp50=%.2fms\tp95=%.2fms\tp99=%.2fms\tmax=%.2fms%n",
+                        agora, r.nome(), r.quantidade(), r.erros(), r.mediaMs(), r.p50Ms(), r.p95Ms(), r.p99Ms(), r.maxMs());
+            }
+            for (ConsultaLenta c : lentas) {
+                if (c.quando().isAfter(agora.minusMinutes(1))) {
+                    out.printf(Locale.ROOT, "%s\tlenta\t%s\t%.1fms\t%s%n", c.quando().withNano(0), c.operacao(), c.ms(), c.sql());
+                }
+            }
+        } catch (IOException ignored) {
+            // Métrica nunca derruba o caixa.
+        }
+        File[] antigos = dir.listFiles((d, nome) -> nome.startsWith("metricas-") && nome.endsWith(".log")
+                && nome.compareTo("metricas-" + LocalDate.now().minusDays(DIAS_ARQUIVO - 1) + ".log") < 0);
+        if (antigos != null) for (File f : antigos) f.delete();
+    }
+
+    private static Metrica metrica(String nome) {
+        Metrica m = metricas.get(nome);
+        if (m != null) return m;
+        return metricas.computeIfAbsent(nome, n -> {
+            Metrica nova = new Metrica(n);
+            registroJmx.execute(() -> {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(nova,
+                            new ObjectName("cantina:type=Metrica,name=" + ObjectName.quote(n)));
+                } catch (Exception ignored) {
+                    // Sem JMX (ou nome já registrado por outra instância na mesma JVM): segue só em memória.
+                }
+            });
+            return nova;
+        });
+    }
+
+    // Total desde o início e janela recente (minuto atual + anterior) para o "ao vivo".
+    private static final class Metrica implements MetricaMXBean {
+        private final String nome;
+        private final Histograma total = new Histograma();
+        private volatile Histograma atual = new Histograma();
+        private volatile Histograma anterior = new Histograma();
+
+        Metrica(String nome) {
+            this.nome = nome;
+        }
+
+        void registrar(long nanos, boolean ok) {
+            total.registrar(nanos, ok);
+            atual.registrar(nanos, ok);
+        }
+
+        // Fecha o minuto: devolve o resumo dele e começa outro.
+        Resumo virarJanela() {
+            Histograma fechado = atual;
+            anterior = fechado;
+            atual = new Histograma();
+            return fechado.resumo(nome, null);
+        }
+
+        Resumo resumo() {
+            Histograma recente = new Histograma();
+            recente.somar(anterior);
+            recente.somar(atual);
+            return total.resumo(nome, recente);
+        }
+
+        public long getQuantidade() { return total.quantidade.sum(); }
+        public long getErros() { return total.erros.sum(); }
+        public double getMediaMs() { return total.mediaMs(); }
+        public double getP50Ms() { return total.percentilMs(0.50); }
+        public double getP95Ms() { return total.percentilMs(0.95); }
+        public double getP99Ms() { return total.percentilMs(0.99); }
+        public double getMaxMs() { return total.max.get() / 1e3; }
+        public double getP95RecenteMs() { return resumo().p95RecenteMs(); }
+    }
+
+    // Histograma em microssegundos com faixas logarítmicas (16 por potência de 2, erro < 7%),
+    // sem trava: cada faixa é um contador atômico.
+    static final class Histograma {
+        private static final int SUB = 16;
+        private final AtomicLongArray faixas = new AtomicLongArray(64 * SUB);
+        final LongAdder quantidade = new LongAdder();
+        final LongAdder erros = new LongAdder();
+        final LongAdder somaMicros = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void registrar(long nanos, boolean ok) {
+            long micros = Math.max(0, nanos / 1000);
+            faixas.incrementAndGet(faixa(micros));
+            quantidade.increment();
+            somaMicros.add(micros);
+            max.accumulate(micros);
+            if (!ok) erros.increment();
+        }
+
+        void somar(Histograma outro) {
+            for (int i = 0; i < faixas.length(); i++) {
+                long v = outro.faixas.get(i);
+                if (v != 0) faixas.addAndGet(i, v);
+            }
+            quantidade.add(outro.quantidade.sum());
+            erros.add(outro.erros.sum());
+            somaMicros.add(outro.somaMicros.sum());
+            max.accumulate(outro.max.get());
+        }
+
+        double mediaMs() {
+            long n = quantidade.sum();
+            return n == 0 ? 0 : somaMicros.sum() / (double) n / 1e3;
+        }
+
+        double percentilMs(double p) {
+            long n = 0;
+            for (int i = 0; i < faixas.length(); i++) n += faixas.get(i);
+            if (n == 0) return 0;
+            long alvo = (long) Math.ceil(n * p);
+            long acumulado = 0;
+            for (int i = 0; i < faixas.length(); i++) {
+                acumulado += faixas.get(i);
+                if (acumulado >= alvo) return Math.min(limite(i), max.get()) / 1e3;
+            }
+            return max.get() / 1e3;
+        }
+
+        Resumo resumo(String nome, Histograma recente) {
+            return new Resumo(nome, quantidade.sum(), erros.sum(), mediaMs(), percentilMs(0.50), percentilMs(0.95),
+                    percentilMs(0.99), max.get() / 1e3, recente == null ? 0 : recente.quantidade.sum(),
+                    recente == null ? 0 : recente.percentilMs(0.95));
+        }
+
+        private static int faixa(long micros) {
+            if (micros < SUB) return (int) micros;
+            int expoente = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (expoente - 4)) & (SUB - 1);
+            return (expoente - 3) * SUB + sub;
+        }
+
+        // Maior valor (µs) que cai na faixa i.
+        private static long limite(int i) {
+            if (i < SUB) return i;
+            int expoente = i / SUB + 3;
+            long sub = i % SUB;
+            return ((SUB + sub + 1) << (expoente - 4)) - 1;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.sql.*;
+import java.util.List;
+
+// -------------------- Migrações do esquema --------------------
+// Passos numerados, aplicados em ordem na inicialização; schema_version guarda os
+// que já rodaram, então um cantina.mv.db antigo recebe só o que falta.
+// Cada passo é idempotente (IF NOT EXISTS): no H2 DDL faz commit implícito, e dois
+// caixas abrindo o mesmo banco ao mesmo tempo podem rodar o mesmo passo.
+// Para mudar o esquema, acrescente um passo no fim da lista; nunca altere um que já foi publicado.
+public class MigracoesEsquema {
+
+    interface Passo {
+        void aplicar(Connection conn, Statement st) throws SQLException;
+    }
+
+    record Migracao(int versao, String descricao, Passo passo) {}
+
+    private static final List<Migracao> MIGRACOES = List.of(
+            new Migracao(1, "Tabelas originais", MigracoesEsquema::tabelasOriginais),
+            new Migracao(2, "Resumo diário de vendas", (conn, st) -> {
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS venda_diaria (
+                            dia DATE,
+                            produto_id INT,
+                            cliente_id INT,
+                            forma_pagamento VARCHAR(30),
+                            quantidade INT,
+                            valor DOUBLE,
+                            PRIMARY KEY (dia, produto_id, cliente_id, forma_pagamento)
+                        )
+                        """);
+                VendaDiaria.preencherSeVazia(conn);
+            }),
+            new Migracao(3, "Versão do catálogo de produtos", (conn, st) -> {
+                st.execute("CREATE TABLE IF NOT EXISTS catalogo_versao (versao BIGINT NOT NULL)");
+                st.execute("INSERT INTO catalogo_versao SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM catalogo_versao)");
+            }),
+            // pedido.cliente_id e pedido_item.pedido_id já têm índice: o H2 cria um para cada FOREIGN KEY.
+            new Migracao(4, "Índices de data do pedido e de nome", (conn, st) -> {
+                st.execute("CREATE INDEX IF NOT EXISTS idx_pedido_data ON pedido(data)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_cliente_nome ON cliente(nome)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_produto_nome ON produto(nome)");
+            }),
+            new Migracao(5, "Conta do cliente (saldo em aberto)", (conn, st) -> {
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS conta_cliente (
+                            cliente_id INT PRIMARY KEY,
+                            saldo_aberto DOUBLE NOT NULL DEFAULT 0,
+                            pedidos_abertos INT NOT NULL DEFAULT 0,
+                            ultima_compra TIMESTAMP
+                        )
+                        """);
+                ContaCliente.reconstruir(conn);
+            }),
+            // Sem AUTO_INCREMENT: os pedidos chegam do vivo com o id que já tinham (ver ArquivoPedidos).
+            new Migracao(6, "Arquivo de pedidos de anos encerrados", (conn, st) -> {
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS pedido_arquivo (
+                            id INT PRIMARY KEY,
+                            funcionario_id INT,
+                            cliente_id INT,
+                            valor_total DOUBLE,
+                            forma_pagamento VARCHAR(30),
+                            data TIMESTAMP,
+                            FOREIGN KEY (funcionario_id) REFERENCES funcionario(id),
+                            FOREIGN KEY (cliente_id) REFERENCES cliente(id)
+                        )
+                        """);
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS pedido_item_arquivo (
+                            id INT PRIMARY KEY,
+                            pedido_id INT,
+                            produto_id INT,
+                            quantidade INT,
+                            preco_unitario DOUBLE,
+                            FOREIGN KEY (pedido_id) REFERENCES pedido_arquivo(id),
+                            FOREIGN KEY (produto_id) REFERENCES produto(id)
+                        )
+                        """);
+                st.execute("CREATE INDEX IF NOT EXISTS idx_pedido_arquivo_data ON pedido_arquivo(data)");
+                st.execute("CREATE TABLE IF NOT EXISTS arquivo_limite (id INT PRIMARY KEY, limite DATE NOT NULL)");
+            }),
+            // Opcional: produto sem código continua sendo vendido pelo id.
+            new Migracao(7, "Código de barras do produto", (conn, st) -> {
+                st.execute("ALTER TABLE produto ADD COLUMN IF NOT EXISTS codigo_barras VARCHAR(32)");
+                st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_produto_codigo_barras ON produto(codigo_barras)");
+            }),
+            // O estoque que já existia vira um lote por produto, com a validade do cadastro.
+            new Migracao(8, "Estoque por lote com validade", (conn, st) -> {
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS produto_lote (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            produto_id INT NOT NULL,
+                            quantidade INT NOT NULL,
+                            validade DATE,
+                            entrada TIMESTAMP DEFAULT LOCALTIMESTAMP,
+                            FOREIGN KEY (produto_id) REFERENCES produto(id) ON DELETE CASCADE
+                        )
+                        """);
+                st.execute("CREATE INDEX IF NOT EXISTS idx_lote_produto_validade ON produto_lote(produto_id, validade)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_lote_validade ON produto_lote(validade)");
+                EstoqueLotes.criarLotesIniciais(conn);
+            }),
+            // uuid: identidade do pedido dada pelo caixa, para a fila local (FilaLocal) reenviar
+            // sem gravar duas vezes. acerto_estoque: falta descoberta ao gravar uma venda feita sem servidor.
+            new Migracao(9, "Pedido com uuid e acerto de estoque", (conn, st) -> {
+                st.execute("ALTER TABLE pedido ADD COLUMN IF NOT EXISTS uuid UUID");
+                st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_pedido_uuid ON pedido(uuid)");
+                st.execute("""
+                        CREATE TABLE IF NOT EXISTS acerto_estoque (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            produto_id INT NOT NULL,
+                            quantidade INT NOT NULL,
+                            pedido_uuid UUID,
+                            data TIMESTAMP DEFAULT LOCALTIMESTAMP,
+                            FOREIGN KEY (produto_id) REFERENCES produto(id) ON DELETE CASCADE
+                        )
+                        """);
+            })
+    );
+
+    private MigracoesEsquema() {}
+
+    // Aplica as migrações pendentes; devolve a versão final do esquema.
+    // Esquema em dia (toda partida, menos a primeira depois de uma atualização): uma
+    // consulta à versão e nenhum DDL, que no H2 faz commit e trava o catálogo do banco.
+    public static int aplicar(Connection conn) throws SQLException {
+        int ultima = MIGRACOES.get(MIGRACOES.size() - 1).versao();
+        try {
+            int atual = versaoAtual(conn);
+            if (atual >= ultima) return atual;
+        } catch (SQLException e) {
+            // Tabela não existe (42S02; 42S04 no H2 com o banco vazio): banco novo.
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("42S0")) throw e;
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        versao INT PRIMARY KEY,
+                        descricao VARCHAR(200),
+                        aplicada_em TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+        }
+        int atual = versaoAtual(conn);
+        for (Migracao m : MIGRACOES) {
+            if (m.versao() <= atual) continue;
+            try (Statement st = conn.createStatement()) {
+                m.passo().aplicar(conn, st);
+            } catch (SQLException e) {
+                throw new SQLException("Migração " + m.versao() + " (" + m.descricao() + ") falhou: " + e.getMessage(), e);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("MERGE INTO schema_version(versao, descricao) KEY(versao) VALUES (?, ?)")) {
+                ps.setInt(1, m.versao());
+                ps.setString(2, m.descricao());
+                ps.executeUpdate();
+            }
+            atual = m.versao();
+        }
+        return atual;
+    }
+
+    public static int versaoAtual(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(versao), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void tabelasOriginais(Connection conn, Statement st) throws SQLException {
+        st.execute("""
+                CREATE TABLE IF NOT EXISTS funcionario (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    usuario VARCHAR(50) UNIQUE,
+                    senha VARCHAR(50),
+                    nome VARCHAR(100),
+                    is_admin INT DEFAULT 0
+                )
+                """);
+        st.execute("""
+                CREATE TABLE IF NOT EXISTS cliente (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    nome VARCHAR(200)
+                )
+                """);
+        st.execute("""
+                CREATE TABLE IF NOT EXISTS produto (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    nome VARCHAR(150),
+                    tipo VARCHAR(30),
+                    preco DOUBLE,
+                    quantidade INT,
+                    validade DATE
+                )
+                """);
+        st.execute("""
+                CREATE TABLE IF NOT EXISTS pedido (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    funcionario_id INT,
+                    cliente_id INT,
+                    valor_total DOUBLE,
+                    forma_pagamento VARCHAR(30),
+                    data TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (funcionario_id) REFERENCES funcionario(id),
+                    FOREIGN KEY (cliente_id) REFERENCES cliente(id)
+                )
+                """);
+        st.execute("""
+                CREATE TABLE IF NOT EXISTS pedido_item (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    pedido_id INT,
+                    produto_id INT,
+                    quantidade INT,
+                    preco_unitario DOUBLE,
+                    FOREIGN KEY (pedido_id) REFERENCES pedido(id),
+                    FOREIGN KEY (produto_id) REFERENCES produto(id)
+                )
+                """);
+    }
+}
@@ -0,0 +1,109 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// -------------------- Modelo de tabela paginado --------------------
+// A JTable só pede as linhas visíveis; cada página é buscada em segundo plano na
+// primeira vez que aparece e guardada num cache LRU pequeno. Página que falhou não
+// é pedida de novo até setLinhas (nova consulta): o repaint depois do aviso de erro
+// pediria a página outra vez e, com o banco fora, o aviso voltaria sem parar.
+// Todo o estado do modelo é acessado apenas na thread do Swing (EDT).
+public class ModeloTabelaPaginada<T> extends AbstractTableModel {
+
+    public interface CarregadorPagina<T> {
+        List<T> carregar(int offset, int limite) throws SQLException;
+    }
+
+    private static final int MAX_PAGINAS = 20;
+
+    private final String[] colunas;
+    private final Function<T, Object[]> conversor;
+    private final CarregadorPagina<T> carregador;
+    private final ExecutorService executor;
+    private final int tamanhoPagina;
+    private final Consumer<Exception> aoFalhar;
+
+    private int linhas;
+    private final Map<Integer, List<Object[]>> paginas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+            return size() > MAX_PAGINAS;
+        }
+    };
+    private final Set<Integer> pendentes = new HashSet<>();
+    private final Set<Integer> falhas = new HashSet<>();
+
+    public ModeloTabelaPaginada(String[] colunas, Function<T, Object[]> conversor, CarregadorPagina<T> carregador,
+                                ExecutorService executor, int tamanhoPagina, Consumer<Exception> aoFalhar) {
+        this.colunas = colunas;
+        this.conversor = conversor;
+        this.carregador = carregador;
+        this.executor = executor;
+        this.tamanhoPagina = tamanhoPagina;
+        this.aoFalhar = aoFalhar;
+    }
+
+    public void setLinhas(int linhas) {
+        this.linhas = linhas;
+        paginas.clear();
+        pendentes.clear();
+        falhas.clear();
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return linhas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return colunas.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return colunas[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        int pagina = row / tamanhoPagina;
+        List<Object[]> dados = paginas.get(pagina);
+        if (dados == null) {
+            if (falhas.contains(pagina)) return col == 0 ? "erro ao carregar" : null;
+            solicitar(pagina);
+            return col == 0 ? "carregando..." : null;
+        }
+        int i = row % tamanhoPagina;
+        return i < dados.size() ? dados.get(i)[col] : null;
+    }
+
+    private void solicitar(int pagina) {
+        if (!pendentes.add(pagina)) return;
+        executor.submit(() -> {
+            try {
+                List<Object[]> convertidos = new ArrayList<>();
+                for (T item : carregador.carregar(pagina * tamanhoPagina, tamanhoPagina)) convertidos.add(conversor.apply(item));
+                SwingUtilities.invokeLater(() -> {
+                    if (!pendentes.remove(pagina)) return; // modelo reiniciado enquanto carregava
+                    paginas.put(pagina, convertidos);
+                    int ultima = Math.min(linhas, (pagina + 1) * tamanhoPagina) - 1;
+                    if (ultima >= pagina * tamanhoPagina) fireTableRowsUpdated(pagina * tamanhoPagina, ultima);
+                });
+            } catch (SQLException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!pendentes.remove(pagina)) return;
+                    falhas.add(pagina);
+                    int ultima = Math.min(linhas, (pagina + 1) * tamanhoPagina) - 1;
+                    if (ultima >= pagina * tamanhoPagina) fireTableRowsUpdated(pagina * tamanhoPagina, ultima);
+                    aoFalhar.accept(e);
+                });
+            }
+        });
+    }
+}
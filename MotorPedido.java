@@ -0,0 +1,312 @@
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// -------------------- Motor de gravação de pedidos --------------------
+// Reaproveita os PreparedStatements da conexão (cache do pool), carrega todos os
+// preços do pedido numa única consulta (WHERE id IN (...)) e grava itens e baixas
+// de estoque em lote (JDBC batch), numa única transação.
+// A baixa de estoque é condicional (só acontece se ainda houver quantidade), então
+// vários caixas no mesmo banco nunca vendem além do estoque; com a linha do produto
+// travada, a quantidade sai dos lotes dentro da validade, o que vence primeiro antes
+// (EstoqueLotes). Se algum item falhar, nada é gravado e as falhas voltam por item.
+// Na mesma transação o pedido é somado ao resumo diário (venda_diaria) e à conta
+// do cliente (conta_cliente).
+// Pedido com uuid é gravado uma vez só: reenviado (fila local, commit de resultado
+// desconhecido), devolve o que já está no banco.
+public class MotorPedido {
+
+    public record ItemPedido(int produtoId, int quantidade) {}
+
+    // uuid e data vêm do caixa; null: pedido sem identidade, gravado com a hora do banco.
+    public record Pedido(UUID uuid, LocalDateTime data, int funcionarioId, int clienteId, String status,
+                         List<ItemPedido> itens) {}
+
+    public enum MotivoFalha { PRODUTO_INEXISTENTE, ESTOQUE_INSUFICIENTE, PRODUTO_VENCIDO }
+
+    public record FalhaItem(int produtoId, String nome, int solicitado, int disponivel, MotivoFalha motivo) {
+        public String descricao() {
+            return switch (motivo) {
+                case PRODUTO_INEXISTENTE -> "Produto " + produtoId + " não encontrado.";
+                case PRODUTO_VENCIDO -> disponivel == 0
+                        ? "Produto '" + nome + "' vencido — não pode ser vendido."
+                        : "Produto '" + nome + "': pedido " + solicitado + ", dentro da validade " + disponivel + ".";
+                case ESTOQUE_INSUFICIENTE -> "Produto '" + nome + "': pedido " + solicitado + ", em estoque " + disponivel + ".";
+            };
+        }
+    }
+
+    // pedidoId 0 sem falhas: guardado na fila local do caixa, ainda sem número no banco.
+    public record ResultadoPedido(int pedidoId, double total, List<FalhaItem> falhas) {
+        public boolean sucesso() {
+            return falhas.isEmpty();
+        }
+
+        public boolean pendente() {
+            return pedidoId == 0 && falhas.isEmpty();
+        }
+    }
+
+    private static final String SQL_PEDIDO = """
+            INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento, uuid, data)
+            VALUES (?, ?, ?, ?, ?, COALESCE(CAST(? AS TIMESTAMP), CURRENT_TIMESTAMP))
+            """;
+    // Savepoint com nome fixo e comandos do cache: setSavepoint() do JDBC prepara um
+    // comando novo a cada pedido. Cada pedido redeclara o seu, então num grupo
+    // (FilaGravacao) o rollback desfaz só o pedido corrente.
+    private static final String SQL_SAVEPOINT = "SAVEPOINT pedido";
+    private static final String SQL_DESFAZER = "ROLLBACK TO SAVEPOINT pedido";
+    private static final String SQL_JA_GRAVADO = "SELECT id, valor_total FROM pedido WHERE uuid = ?";
+    private static final String SQL_ACERTO = "INSERT INTO acerto_estoque(produto_id, quantidade, pedido_uuid) VALUES (?, ?, ?)";
+    private static final String SQL_ITEM =
+            "INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario) VALUES (?, ?, ?, ?)";
+    private static final String SQL_ESTOQUE =
+            "UPDATE produto SET quantidade = quantidade - ? WHERE id = ? AND quantidade >= ?";
+    // Total e parte vendável hoje, pelos lotes (a baixa que falhou já foi desfeita pelo savepoint ou nem aconteceu).
+    private static final String SQL_SITUACAO = """
+            SELECT p.nome, COALESCE(SUM(l.quantidade), 0),
+                   COALESCE(SUM(CASE WHEN l.validade IS NULL OR l.validade >= CURRENT_DATE THEN l.quantidade END), 0)
+            FROM produto p LEFT JOIN produto_lote l ON l.produto_id = p.id
+            WHERE p.id = ? GROUP BY p.nome
+            """;
+
+    private final PoolConexoes pool;
+
+    public MotorPedido(PoolConexoes pool) {
+        this.pool = pool;
+    }
+
+    // Pedido avulso: uma transação só para ele.
+    public ResultadoPedido registrar(int funcionarioId, int clienteId, String status, List<ItemPedido> itens) throws SQLException {
+        return Metricas.medir("venda", () -> pool.transacao(c -> gravar(c, funcionarioId, clienteId, status, itens)));
+    }
+
+    public ResultadoPedido gravar(PoolConexoes.Conexao c, int funcionarioId, int clienteId, String status,
+                                  List<ItemPedido> itens) throws SQLException {
+        return gravar(c, new Pedido(null, null, funcionarioId, clienteId, status, itens), false);
+    }
+
+    // Grava o pedido dentro da transação já aberta em c, sem commit. Se algum item
+    // falhar, desfaz só o que este pedido fez (savepoint) e devolve as falhas.
+    // acertarFaltas: a venda já aconteceu (feita sem servidor); faltando estoque ou
+    // lote na validade, a diferença entra como lote de acerto (acerto_estoque) e a
+    // venda é gravada. Produto que não existe mais continua sendo falha.
+    public ResultadoPedido gravar(PoolConexoes.Conexao c, Pedido pedido, boolean acertarFaltas) throws SQLException {
+        List<ItemPedido> itens = pedido.itens();
+        if (itens.isEmpty()) throw new SQLException("Pedido sem itens.");
+        if (pedido.uuid() != null) {
+            PreparedStatement ps = c.preparar(SQL_JA_GRAVADO);
+            ps.setObject(1, pedido.uuid());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return new ResultadoPedido(rs.getInt(1), rs.getDouble(2), List.of());
+            }
+        }
+        int funcionarioId = pedido.funcionarioId();
+        int clienteId = pedido.clienteId();
+        String status = pedido.status();
+
+        PreparedStatement desfazer = c.preparar(SQL_DESFAZER);
+        c.preparar(SQL_SAVEPOINT).executeUpdate();
+        // Statements com addBatch neste pedido: só esses têm lote a limpar num erro.
+        List<PreparedStatement> emLote = new ArrayList<>(4);
+        try {
+            Map<Integer, Double> precos = carregarPrecos(c, itens);
+            List<FalhaItem> falhas = reservarEstoque(c, itens, precos, emLote);
+            if (!falhas.isEmpty() && acertarFaltas && falhas.stream().noneMatch(f -> f.motivo() == MotivoFalha.PRODUTO_INEXISTENTE)) {
+                desfazer.executeUpdate();
+                acertar(c, pedido.uuid(), falhas);
+                falhas = reservarEstoque(c, itens, precos, emLote);
+            }
+            if (!falhas.isEmpty()) {
+                desfazer.executeUpdate();
+                return new ResultadoPedido(0, 0, falhas);
+            }
+
+            double total = 0;
+            for (ItemPedido item : itens) total += precos.get(item.produtoId()) * item.quantidade();
+
+            PreparedStatement psPedido = c.prepararComChaves(SQL_PEDIDO);
+            psPedido.setInt(1, funcionarioId);
+            psPedido.setInt(2, clienteId);
+            psPedido.setDouble(3, total);
+            psPedido.setString(4, status);
+            psPedido.setObject(5, pedido.uuid());
+            psPedido.setTimestamp(6, pedido.data() == null ? null : Timestamp.valueOf(pedido.data()));
+            psPedido.executeUpdate();
+            int pedidoId;
+            try (ResultSet gen = psPedido.getGeneratedKeys()) {
+                gen.next();
+                pedidoId = gen.getInt(1);
+            }
+
+            PreparedStatement psItem = c.preparar(SQL_ITEM);
+            emLote.add(psItem);
+            for (ItemPedido item : itens) {
+                psItem.setInt(1, pedidoId);
+                psItem.setInt(2, item.produtoId());
+                psItem.setInt(3, item.quantidade());
+                psItem.setDouble(4, precos.get(item.produtoId()));
+                psItem.addBatch();
+            }
+            psItem.executeBatch();
+            // Conta antes do resumo: a quitação trava na mesma ordem (conta, depois resumo).
+            ContaCliente.registrarVenda(c, clienteId, status, total);
+            acumularResumo(c, clienteId, status, itens, precos, pedido.data(), emLote);
+
+            return new ResultadoPedido(pedidoId, total, List.of());
+        } catch (SQLException e) {
+            for (PreparedStatement ps : emLote) {
+                try {
+                    ps.clearBatch();
+                } catch (SQLException r) {
+                    e.addSuppressed(r);
+                }
+            }
+            // Num deadlock o H2 já desfez a transação inteira e o savepoint não existe mais.
+            try {
+                desfazer.executeUpdate();
+            } catch (SQLException r) {
+                e.addSuppressed(r);
+            }
+            throw e;
+        }
+    }
+
+    // Partida do caixa: prepara nesta conexão os comandos da venda e roda só as consultas
+    // de leitura dela (uuid, preço, situação do estoque) para um produto de verdade.
+    // Nada que escreve é executado. A primeira venda não paga análise de SQL nem a
+    // carga da maior parte das classes.
+    void aquecer(PoolConexoes.Conexao c, int produtoId) throws SQLException {
+        PreparedStatement ps = c.preparar(SQL_JA_GRAVADO);
+        ps.setObject(1, UUID.randomUUID());
+        ps.executeQuery().close();
+        carregarPrecos(c, List.of(new ItemPedido(produtoId, 1)));
+        diagnosticar(c, produtoId, 1);
+        c.preparar(SQL_SAVEPOINT);
+        c.preparar(SQL_DESFAZER);
+        c.preparar(SQL_ESTOQUE);
+        c.preparar(EstoqueLotes.SQL_PRIMEIRO_LOTE);
+        c.prepararComChaves(SQL_PEDIDO);
+        c.preparar(SQL_ITEM);
+        c.preparar(ContaCliente.SQL_VENDA);
+        c.preparar(VendaDiaria.SQL_ACUMULAR);
+    }
+
+    // Baixa condicional em lote, uma linha por produto e sempre em ordem crescente de id:
+    // caixas concorrentes travam as linhas de produto na mesma ordem e não entram em deadlock.
+    private List<FalhaItem> reservarEstoque(PoolConexoes.Conexao c, List<ItemPedido> itens, Map<Integer, Double> precos,
+                                            List<PreparedStatement> emLote) throws SQLException {
+        SortedMap<Integer, Integer> porProduto = new TreeMap<>();
+        for (ItemPedido item : itens) {
+            if (item.quantidade() <= 0) throw new SQLException("Quantidade inválida para o produto " + item.produtoId());
+            porProduto.merge(item.produtoId(), item.quantidade(), Integer::sum);
+        }
+
+        List<FalhaItem> falhas = new ArrayList<>();
+        List<Integer> reservados = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : porProduto.entrySet()) {
+            if (!precos.containsKey(e.getKey())) {
+                falhas.add(new FalhaItem(e.getKey(), null, e.getValue(), 0, MotivoFalha.PRODUTO_INEXISTENTE));
+            } else {
+                reservados.add(e.getKey());
+            }
+        }
+        if (!falhas.isEmpty()) return falhas;
+
+        PreparedStatement psEstoque = c.preparar(SQL_ESTOQUE);
+        emLote.add(psEstoque);
+        for (int produtoId : reservados) {
+            int qtd = porProduto.get(produtoId);
+            psEstoque.setInt(1, qtd);
+            psEstoque.setInt(2, produtoId);
+            psEstoque.setInt(3, qtd);
+            psEstoque.addBatch();
+        }
+        int[] linhas = psEstoque.executeBatch();
+
+        for (int i = 0; i < linhas.length; i++) {
+            if (linhas[i] == 0) falhas.add(diagnosticar(c, reservados.get(i), porProduto.get(reservados.get(i))));
+        }
+        if (!falhas.isEmpty()) return falhas;
+
+        // Total suficiente, mas parte dele pode estar em lote vencido.
+        for (int produtoId : EstoqueLotes.baixar(c, porProduto, emLote).keySet()) {
+            falhas.add(diagnosticar(c, produtoId, porProduto.get(produtoId)));
+        }
+        return falhas;
+    }
+
+    private void acumularResumo(PoolConexoes.Conexao c, int clienteId, String status, List<ItemPedido> itens,
+                                Map<Integer, Double> precos, LocalDateTime data, List<PreparedStatement> emLote) throws SQLException {
+        SortedMap<Integer, Integer> porProduto = new TreeMap<>();
+        for (ItemPedido item : itens) porProduto.merge(item.produtoId(), item.quantidade(), Integer::sum);
+
+        PreparedStatement psResumo = c.preparar(VendaDiaria.SQL_ACUMULAR);
+        emLote.add(psResumo);
+        for (Map.Entry<Integer, Integer> e : porProduto.entrySet()) {
+            psResumo.setDate(1, data == null ? null : java.sql.Date.valueOf(data.toLocalDate()));
+            psResumo.setInt(2, e.getKey());
+            psResumo.setInt(3, clienteId);
+            psResumo.setString(4, status);
+            psResumo.setInt(5, e.getValue());
+            psResumo.setDouble(6, precos.get(e.getKey()) * e.getValue());
+            psResumo.addBatch();
+        }
+        psResumo.executeBatch();
+    }
+
+    // O que faltou de cada produto entra como lote sem validade (vendido primeiro por
+    // ser o único que cobre a venda toda) e fica registrado para conferência do estoque.
+    // Falhas em ordem de id, a mesma da baixa.
+    private void acertar(PoolConexoes.Conexao c, UUID uuid, List<FalhaItem> falhas) throws SQLException {
+        PreparedStatement ps = c.preparar(SQL_ACERTO);
+        for (FalhaItem f : falhas) {
+            int falta = f.solicitado() - f.disponivel();
+            EstoqueLotes.entrada(c, f.produtoId(), falta, null);
+            ps.setInt(1, f.produtoId());
+            ps.setInt(2, falta);
+            ps.setObject(3, uuid);
+            ps.executeUpdate();
+        }
+    }
+
+    // Vencido quando são os lotes fora da validade que impedem a venda: o total daria
+    // para o pedido, ou tudo o que sobrou já venceu.
+    private FalhaItem diagnosticar(PoolConexoes.Conexao c, int produtoId, int solicitado) throws SQLException {
+        PreparedStatement psSituacao = c.preparar(SQL_SITUACAO);
+        psSituacao.setInt(1, produtoId);
+        try (ResultSet rs = psSituacao.executeQuery()) {
+            if (!rs.next()) return new FalhaItem(produtoId, null, solicitado, 0, MotivoFalha.PRODUTO_INEXISTENTE);
+            String nome = rs.getString(1);
+            int total = rs.getInt(2);
+            int vendavel = rs.getInt(3);
+            if (vendavel < total && (total >= solicitado || vendavel == 0)) {
+                return new FalhaItem(produtoId, nome, solicitado, vendavel, MotivoFalha.PRODUTO_VENCIDO);
+            }
+            return new FalhaItem(produtoId, nome, solicitado, vendavel, MotivoFalha.ESTOQUE_INSUFICIENTE);
+        }
+    }
+
+    // Consultas de preço por tamanho de lista (1, 2, 4, 8, ...): a lista de ids é
+    // completada repetindo o último id, assim poucas variantes vão para o cache.
+    private Map<Integer, Double> carregarPrecos(PoolConexoes.Conexao c, List<ItemPedido> itens) throws SQLException {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(itens.stream().map(ItemPedido::produtoId).toList()));
+        int tamanho = tamanhoLista(ids.size());
+
+        String marcadores = String.join(", ", Collections.nCopies(tamanho, "?"));
+        PreparedStatement ps = c.preparar("SELECT id, preco FROM produto WHERE id IN (" + marcadores + ")");
+        for (int i = 0; i < tamanho; i++) ps.setInt(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+
+        Map<Integer, Double> precos = new HashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) precos.put(rs.getInt("id"), rs.getDouble("preco"));
+        }
+        return precos;
+    }
+
+    // Menor potência de 2 >= n: tamanho das listas IN (...) (ver carregarPrecos).
+    static int tamanhoLista(int n) {
+        int tamanho = Integer.highestOneBit(n);
+        return tamanho < n ? tamanho << 1 : tamanho;
+    }
+}
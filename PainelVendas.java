@@ -0,0 +1,116 @@
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DefaultPieDataset;
+import org.jfree.data.time.Day;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+
+import javax.swing.*;
+import java.awt.*;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// -------------------- Painel de vendas (gráficos) --------------------
+// Faturamento por dia, produtos mais vendidos e em aberto x pago, lidos apenas do
+// resumo venda_diaria, em segundo plano, numa conexão emprestada do pool de relatórios
+// (a cópia de relatórios, se houver; ver ServicoCantina.poolRelatorios).
+public class PainelVendas extends JFrame {
+
+    private final ServicoCantina servico;
+    private final JComboBox<String> periodo = new JComboBox<>(new String[]{"Últimos 30 dias", "Últimos 90 dias", "Último ano"});
+    private final JLabel status = new JLabel(" ");
+    private final JPanel graficos = new JPanel(new GridLayout(1, 3, 8, 8));
+
+    public PainelVendas(ServicoCantina servico) {
+        super("Painel de Vendas");
+        this.servico = servico;
+        setSize(1200, 480);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JPanel topo = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topo.add(new JLabel("Período:"));
+        topo.add(periodo);
+        topo.add(status);
+        add(topo, BorderLayout.NORTH);
+        add(graficos, BorderLayout.CENTER);
+
+        periodo.addActionListener(e -> atualizar());
+    }
+
+    public void iniciar() {
+        setVisible(true);
+        atualizar();
+    }
+
+    private void atualizar() {
+        int dias = switch (periodo.getSelectedIndex()) {
+            case 0 -> 30;
+            case 1 -> 90;
+            default -> 365;
+        };
+        LocalDate desde = LocalDate.now().minusDays(dias - 1);
+        status.setText("Carregando...");
+        periodo.setEnabled(false);
+
+        new SwingWorker<JFreeChart[], Void>() {
+            private long inicio;
+            private List<VendaDiaria.PontoDia> porDia;
+            private List<VendaDiaria.TotalRotulo> top;
+            private List<VendaDiaria.TotalRotulo> porStatus;
+
+            @Override
+            protected JFreeChart[] doInBackground() throws SQLException {
+                PoolConexoes pool = servico.poolRelatorios();
+                inicio = System.nanoTime();
+                Metricas.medir("painel", () -> {
+                    porDia = pool.executar(c -> VendaDiaria.faturamentoPorDia(c.jdbc(), desde));
+                    top = pool.executar(c -> VendaDiaria.produtosMaisVendidos(c.jdbc(), desde, 10));
+                    porStatus = pool.executar(c -> VendaDiaria.totaisPorStatus(c.jdbc(), desde));
+                    return null;
+                });
+
+                TimeSeries serie = new TimeSeries("Faturamento");
+                for (VendaDiaria.PontoDia p : porDia) {
+                    serie.add(new Day(p.dia().getDayOfMonth(), p.dia().getMonthValue(), p.dia().getYear()), p.valor());
+                }
+                DefaultCategoryDataset produtos = new DefaultCategoryDataset();
+                for (VendaDiaria.TotalRotulo t : top) produtos.addValue(t.valor(), "R$", t.rotulo());
+                DefaultPieDataset<String> situacao = new DefaultPieDataset<>();
+                for (VendaDiaria.TotalRotulo t : porStatus) situacao.setValue(t.rotulo(), t.valor());
+
+                return new JFreeChart[]{
+                        ChartFactory.createTimeSeriesChart("Faturamento por dia", "Dia", "R$",
+                                new TimeSeriesCollection(serie), false, true, false),
+                        ChartFactory.createBarChart("Produtos mais vendidos", null, "R$", produtos,
+                                PlotOrientation.HORIZONTAL, false, true, false),
+                        ChartFactory.createPieChart("Em aberto x Pago", situacao, true, true, false)
+                };
+            }
+
+            @Override
+            protected void done() {
+                periodo.setEnabled(true);
+                try {
+                    JFreeChart[] charts = get();
+                    graficos.removeAll();
+                    for (JFreeChart c : charts) graficos.add(new ChartPanel(c));
+                    graficos.revalidate();
+                    graficos.repaint();
+                    String dados = servico.origemRelatorios();
+                    status.setText(String.format("Consultado em %.1f ms", (System.nanoTime() - inicio) / 1e6)
+                            + (dados == null ? "" : " · " + dados));
+                } catch (Exception e) {
+                    status.setText("Erro ao carregar gráficos.");
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(PainelVendas.this, "Erro ao carregar gráficos: " + causa.getMessage());
+                }
+            }
+        }.execute();
+    }
+}
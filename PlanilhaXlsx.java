@@ -0,0 +1,188 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// -------------------- Escrita de planilha .xlsx em fluxo --------------------
+// Cada linha vai direto para a entrada da aba dentro do zip: nada fica retido em
+// memória além do buffer do writer. Textos são gravados como inlineStr (sem tabela
+// de strings compartilhadas), então o consumo não cresce com o número de linhas.
+// Uso: iniciarAba(...), cabecalho(...), linha(...)..., outra aba..., close().
+public class PlanilhaXlsx implements Closeable {
+
+    public static final int MAX_LINHAS_ABA = 1_048_576;
+
+    private static final int ESTILO_CABECALHO = 1;
+    private static final int ESTILO_DECIMAL = 2;
+
+    private final ZipOutputStream zip;
+    private final Writer w;
+    private final List<String> abas = new ArrayList<>();
+    private boolean abaAberta;
+    private int linhasNaAba;
+
+    public PlanilhaXlsx(OutputStream destino) {
+        zip = new ZipOutputStream(new BufferedOutputStream(destino, 64 * 1024));
+        zip.setLevel(Deflater.BEST_SPEED);
+        w = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public void iniciarAba(String nome) throws IOException {
+        fecharAba();
+        abas.add(nome);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + abas.size() + ".xml"));
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        abaAberta = true;
+        linhasNaAba = 0;
+    }
+
+    public int linhasNaAba() {
+        return linhasNaAba;
+    }
+
+    public void cabecalho(String... titulos) throws IOException {
+        abrirLinha();
+        for (String t : titulos) texto(t, ESTILO_CABECALHO);
+        w.write("</row>");
+    }
+
+    // String vira texto; Integer/Long, número inteiro; Double, número com 2 casas; null, célula vazia.
+    // NaN e infinito não existem como número no xlsx (o Excel acusa arquivo corrompido): viram célula vazia.
+    public void linha(Object... valores) throws IOException {
+        abrirLinha();
+        for (Object v : valores) {
+            if (v == null || v instanceof Double d && !Double.isFinite(d)) {
+                w.write("<c/>");
+            } else if (v instanceof Double d) {
+                w.write("<c s=\"" + ESTILO_DECIMAL + "\"><v>");
+                w.write(Double.toString(d));
+                w.write("</v></c>");
+            } else if (v instanceof Number n) {
+                w.write("<c><v>");
+                w.write(n.toString());
+                w.write("</v></c>");
+            } else {
+                texto(v.toString(), 0);
+            }
+        }
+        w.write("</row>");
+    }
+
+    @Override
+    public void close() throws IOException {
+        fecharAba();
+        entrada("[Content_Types].xml", conteudoTipos());
+        entrada("_rels/.rels", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+                <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+                </Relationships>""");
+        entrada("xl/workbook.xml", pastaDeTrabalho());
+        entrada("xl/_rels/workbook.xml.rels", relacoesPasta());
+        entrada("xl/styles.xml", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+                <fonts count="2"><font><sz val="11"/><name val="Calibri"/></font><font><b/><sz val="11"/><name val="Calibri"/></font></fonts>\
+                <fills count="2"><fill><patternFill patternType="none"/></fill><fill><patternFill patternType="gray125"/></fill></fills>\
+                <borders count="1"><border><left/><right/><top/><bottom/><diagonal/></border></borders>\
+                <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>\
+                <cellXfs count="3"><xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/>\
+                <xf numFmtId="0" fontId="1" fillId="0" borderId="0" xfId="0" applyFont="1"/>\
+                <xf numFmtId="2" fontId="0" fillId="0" borderId="0" xfId="0" applyNumberFormat="1"/></cellXfs>\
+                </styleSheet>""");
+        w.flush();
+        zip.close();
+    }
+
+    private void abrirLinha() throws IOException {
+        if (!abaAberta) throw new IllegalStateException("Nenhuma aba iniciada.");
+        if (linhasNaAba >= MAX_LINHAS_ABA) throw new IllegalStateException("Aba cheia: " + MAX_LINHAS_ABA + " linhas.");
+        linhasNaAba++;
+        w.write("<row r=\"");
+        w.write(Integer.toString(linhasNaAba));
+        w.write("\">");
+    }
+
+    private void texto(String valor, int estilo) throws IOException {
+        w.write(estilo == 0 ? "<c t=\"inlineStr\"><is><t>" : "<c t=\"inlineStr\" s=\"" + estilo + "\"><is><t>");
+        escapar(valor);
+        w.write("</t></is></c>");
+    }
+
+    private void escapar(String valor) throws IOException {
+        for (int i = 0; i < valor.length(); i++) {
+            char ch = valor.charAt(i);
+            switch (ch) {
+                case '&' -> w.write("&amp;");
+                case '<' -> w.write("&lt;");
+                case '>' -> w.write("&gt;");
+                case '"' -> w.write("&quot;");
+                default -> {
+                    // caracteres de controle não são permitidos em XML 1.0
+                    if (ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r') w.write(ch);
+                }
+            }
+        }
+    }
+
+    private void fecharAba() throws IOException {
+        if (!abaAberta) return;
+        w.write("</sheetData></worksheet>");
+        w.flush();
+        zip.closeEntry();
+        abaAberta = false;
+    }
+
+    private void entrada(String nome, String conteudo) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        w.write(conteudo);
+        w.flush();
+        zip.closeEntry();
+    }
+
+    private String conteudoTipos() {
+        StringBuilder sb = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+                <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+                <Default Extension="xml" ContentType="application/xml"/>\
+                <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+                <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>""");
+        for (int i = 1; i <= abas.size(); i++) {
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return sb.append("</Types>").toString();
+    }
+
+    private String pastaDeTrabalho() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 1; i <= abas.size(); i++) {
+            // nomes de aba: no máximo 31 caracteres e sem : \ / ? * [ ]
+            String nome = abas.get(i - 1).replaceAll("[:\\\\/?*\\[\\]]", "-");
+            if (nome.length() > 31) nome = nome.substring(0, 31);
+            sb.append("<sheet name=\"").append(nome.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;"))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return sb.append("</sheets></workbook>").toString();
+    }
+
+    private String relacoesPasta() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= abas.size(); i++) {
+            sb.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(abas.size() + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>");
+        return sb.append("</Relationships>").toString();
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// -------------------- Pool de conexões --------------------
+// Número limitado de conexões, criadas sob demanda, cada uma com seu cache de
+// PreparedStatements. Todo acesso ao banco passa por executar(...) (autocommit) ou
+// transacao(...) (commit no fim, rollback em erro): a conexão é emprestada só
+// durante o trabalho, então caixa, relatórios e exportações rodam em paralelo.
+// Dentro de um trabalho não se pede outra conexão ao pool (evita esgotá-lo).
+// Cada execução de statement e cada commit é cronometrado em Metricas, sob a
+// operação que estiver sendo medida na thread.
+public class PoolConexoes implements AutoCloseable {
+
+    public interface Trabalho<T> {
+        T executar(Conexao c) throws SQLException;
+    }
+
+    // Conexão emprestada. Statements vindos de preparar(...) são do cache: não fechar.
+    public static final class Conexao {
+        private static final int MAX_STATEMENTS = 64;
+
+        private final Connection jdbc;
+        private final Map<String, PreparedStatement> cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_STATEMENTS) return false;
+                try { eldest.getValue().close(); } catch (SQLException ignored) {}
+                return true;
+            }
+        };
+
+        private Conexao(Connection jdbc) {
+            this.jdbc = jdbc;
+        }
+
+        public Connection jdbc() {
+            return jdbc;
+        }
+
+        public PreparedStatement preparar(String sql) throws SQLException {
+            PreparedStatement ps = cache.get(sql);
+            if (ps == null) {
+                ps = jdbc.prepareStatement(sql);
+                cache.put(sql, ps);
+            }
+            return ps;
+        }
+
+        public PreparedStatement prepararComChaves(String sql) throws SQLException {
+            String chave = "#chaves " + sql;
+            PreparedStatement ps = cache.get(chave);
+            if (ps == null) {
+                ps = jdbc.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                cache.put(chave, ps);
+            }
+            return ps;
+        }
+
+        private void fechar() {
+            for (PreparedStatement ps : cache.values()) {
+                try { ps.close(); } catch (SQLException ignored) {}
+            }
+            cache.clear();
+            try { jdbc.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanho;
+    private final long esperaMs;
+    private final BlockingQueue<Conexao> livres;
+    private final AtomicInteger criadas = new AtomicInteger();
+    private volatile boolean fechado;
+
+    public PoolConexoes(String url, String usuario, String senha, int tamanho, long esperaMs) {
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanho = tamanho;
+        this.esperaMs = esperaMs;
+        this.livres = new ArrayBlockingQueue<>(tamanho);
+    }
+
+    // Lê cantina.properties do diretório atual (se existir) sobre os valores padrão.
+    // Chaves h2.* viram parâmetros da URL (;CHAVE=valor).
+    public static PoolConexoes deConfiguracao() throws IOException {
+        Properties padrao = new Properties();
+        padrao.setProperty("banco.url", "jdbc:h2:file:./banco/cantina");
+        padrao.setProperty("banco.usuario", "sa");
+        padrao.setProperty("banco.senha", "");
+        padrao.setProperty("pool.tamanho", "4");
+        padrao.setProperty("pool.espera.ms", "5000");
+        padrao.setProperty("h2.AUTO_SERVER", "TRUE");
+        padrao.setProperty("h2.LOCK_TIMEOUT", "10000");
+        Properties cfg = configuracao(padrao);
+
+        StringBuilder url = new StringBuilder(cfg.getProperty("banco.url"));
+        for (String chave : new TreeSet<>(cfg.stringPropertyNames())) {
+            if (chave.startsWith("h2.")) url.append(';').append(chave.substring(3)).append('=').append(cfg.getProperty(chave).trim());
+        }
+        return new PoolConexoes(url.toString(), cfg.getProperty("banco.usuario"), cfg.getProperty("banco.senha"),
+                Integer.parseInt(cfg.getProperty("pool.tamanho").trim()), Long.parseLong(cfg.getProperty("pool.espera.ms").trim()));
+    }
+
+    // cantina.properties do diretório atual sobre os padrões dados (outros módulos configuráveis usam também).
+    static Properties configuracao(Properties padrao) throws IOException {
+        Properties cfg = new Properties(padrao);
+        File arquivo = new File("cantina.properties");
+        if (arquivo.isFile()) {
+            try (InputStream in = new FileInputStream(arquivo)) {
+                cfg.load(in);
+            }
+        }
+        return cfg;
+    }
+
+    // Erro de quem perdeu o banco (servidor AUTO_SERVER fora, rede caiu), e não do comando:
+    // o H2 usa SQLNonTransientConnectionException (90067, 90098...). Quem chama pode
+    // guardar o trabalho para depois (ver FilaLocal).
+    public static boolean semConexao(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLNonTransientConnectionException || t instanceof SQLTransientConnectionException) return true;
+            if (t instanceof SQLException s && s.getSQLState() != null && s.getSQLState().startsWith("08")) return true;
+        }
+        return false;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public <T> T executar(Trabalho<T> trabalho) throws SQLException {
+        Conexao c = emprestar();
+        boolean ok = false;
+        try {
+            T r = trabalho.executar(c);
+            ok = true;
+            return r;
+        } finally {
+            devolver(c, ok);
+        }
+    }
+
+    public <T> T transacao(Trabalho<T> trabalho) throws SQLException {
+        Conexao c = emprestar();
+        boolean ok = false;
+        try {
+            c.jdbc.setAutoCommit(false);
+            T r = trabalho.executar(c);
+            c.jdbc.commit();
+            ok = true;
+            return r;
+        } finally {
+            if (!ok) {
+                try { c.jdbc.rollback(); } catch (SQLException ignored) {}
+            }
+            try { c.jdbc.setAutoCommit(true); } catch (SQLException ignored) {}
+            devolver(c, ok);
+        }
+    }
+
+    private Conexao emprestar() throws SQLException {
+        if (fechado) throw new SQLException("Pool de conexões encerrado.");
+        Conexao c = livres.poll();
+        if (c != null) return c;
+        if (criadas.incrementAndGet() <= tamanho) {
+            try {
+                return new Conexao(medida(DriverManager.getConnection(url, usuario, senha)));
+            } catch (SQLException e) {
+                criadas.decrementAndGet();
+                throw e;
+            }
+        }
+        criadas.decrementAndGet();
+        try {
+            c = livres.poll(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido esperando conexão do pool.");
+        }
+        if (c == null) throw new SQLException("Tempo esgotado esperando conexão livre (" + tamanho + " em uso).");
+        return c;
+    }
+
+    // Depois de um erro a conexão é validada; se caiu (ex.: servidor AUTO_SERVER reiniciado), é descartada.
+    private void devolver(Conexao c, boolean ok) {
+        boolean valida = ok;
+        if (!ok) {
+            try { valida = c.jdbc.isValid(1); } catch (SQLException e) { valida = false; }
+        }
+        if (fechado || !valida || !livres.offer(c)) {
+            c.fechar();
+            criadas.decrementAndGet();
+        }
+    }
+
+    // -------------------- Medição --------------------
+    // Proxy da conexão: statements criados por ela também são proxies, e execute*
+    // (inclusive executeBatch) e commit vão para Metricas. O resto passa direto.
+    private static Connection medida(Connection real) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> {
+                    String nome = metodo.getName();
+                    if (nome.equals("commit")) {
+                        long inicio = System.nanoTime();
+                        boolean ok = false;
+                        try {
+                            invocar(real, metodo, args);
+                            ok = true;
+                            return null;
+                        } finally {
+                            Metricas.commit(System.nanoTime() - inicio, ok);
+                        }
+                    }
+                    Object r = invocar(real, metodo, args);
+                    if (r instanceof Statement st) {
+                        String sql = nome.equals("createStatement") ? null : (String) args[0];
+                        return medido(st, sql);
+                    }
+                    return r;
+                });
+    }
+
+    private static Statement medido(Statement real, String sqlPreparado) {
+        Class<?> tipo = real instanceof CallableStatement ? CallableStatement.class
+                : real instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        InvocationHandler h = (proxy, metodo, args) -> {
+            if (!metodo.getName().startsWith("execute")) return invocar(real, metodo, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : sqlPreparado;
+            long inicio = System.nanoTime();
+            boolean ok = false;
+            try {
+                Object r = invocar(real, metodo, args);
+                ok = true;
+                return r;
+            } finally {
+                Metricas.statement(sql == null ? "(batch)" : sql, System.nanoTime() - inicio, ok);
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, h);
+    }
+
+    private static Object invocar(Object alvo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        Conexao c;
+        while ((c = livres.poll()) != null) {
+            c.fechar();
+            criadas.decrementAndGet();
+        }
+    }
+}
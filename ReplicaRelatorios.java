@@ -0,0 +1,399 @@
+import java.io.File;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// -------------------- Cópia de relatórios (só leitura) --------------------
+// Balanço, exportação e painel leem de um H2 local deste computador, e não do banco
+// dos caixas: uma consulta pesada de fechamento de mês não disputa o servidor
+// AUTO_SERVER, o cache de páginas nem as conexões com as vendas. Mesmo esquema
+// (MigracoesEsquema), sem conferência de chave estrangeira (só esta classe grava).
+// Criada no primeiro relatório e atualizada a cada metade do atraso máximo, numa
+// transação REPEATABLE_READ no banco principal (uma fotografia, sem travar nada):
+//  - pedidos e itens a partir do menor id entre o último copiado + 1 e os gravados
+//    desde a atualização anterior menos a folga de uma transação (como o incremental
+//    do BackupBanco); o que vem de novo é regravado igual (MERGE pelo id);
+//  - quitação: se a soma de conta_cliente.pedidos_abertos não bate com os "Em aberto"
+//    da cópia, os clientes com menos em aberto no principal têm os ids relidos, e os
+//    que saíram viram "Pago";
+//  - arquivamento: se pedido_arquivo mudou de tamanho, os pedidos arquivados no
+//    principal mudam de tabela aqui também (ArquivoPedidos.mover);
+//  - clientes quando muda MAX(id)/COUNT(*), produtos quando muda a versão do catálogo;
+//  - venda_diaria refeita aqui para os dias que mudaram.
+// No fim as contagens de pedido e pedido_arquivo das duas pontas são comparadas; se
+// não batem (banco restaurado de um backup, por exemplo), a cópia é refeita do zero.
+// relatorio.dir e relatorio.atraso.segundos em cantina.properties (ver ServicoCantina).
+public class ReplicaRelatorios implements AutoCloseable {
+
+    // Avisos ao ServicoCantina, na thread que atualizou, para o cache do balanço.
+    public interface Ouvinte {
+        void atualizada(Set<LocalDate> dias);
+
+        void refeita();
+    }
+
+    private record Marca(int ultimoPedido, Timestamp hora) {}
+
+    private static final int LOTE = 1000;
+    private static final String[] TABELAS = {"pedido_item", "pedido", "pedido_item_arquivo", "pedido_arquivo",
+            "cliente", "produto", "arquivo_limite", "venda_diaria", "replica_marca"};
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DIA_HORA = DateTimeFormatter.ofPattern("dd/MM HH:mm:ss");
+
+    private final PoolConexoes principal;
+    private final PoolConexoes replica;
+    private final long atrasoMaxMs;
+    private final Ouvinte ouvinte;
+    private ScheduledExecutorService agendador;
+    private boolean aberta;
+    // Relógio deste computador no início da última atualização que deu certo.
+    private volatile long atualizadaEm;
+    // Hora do banco principal na fotografia copiada; null enquanto não há cópia.
+    private volatile Timestamp dadosAte;
+    private volatile String falha;
+
+    public ReplicaRelatorios(PoolConexoes principal, File dir, long atrasoMaxMs, Ouvinte ouvinte) {
+        this.principal = principal;
+        this.replica = new PoolConexoes("jdbc:h2:file:" + new File(dir, "relatorio").getAbsolutePath(), "sa", "", 4, 5000);
+        this.atrasoMaxMs = atrasoMaxMs;
+        this.ouvinte = ouvinte;
+    }
+
+    // Pool da cópia. A primeira chamada cria (ou põe em dia) a cópia e começa a atualização
+    // periódica; depois, espera uma atualização só se a última passou do atraso máximo.
+    // Se ela falha (banco principal fora), a cópia que já existe continua valendo, com a hora dela.
+    public PoolConexoes pool() throws SQLException {
+        iniciar();
+        synchronized (this) {
+            if (System.currentTimeMillis() - atualizadaEm > atrasoMaxMs) {
+                try {
+                    atualizar();
+                } catch (SQLException e) {
+                    if (dadosAte == null) throw e;
+                }
+            }
+        }
+        return replica;
+    }
+
+    // Para as telas: até quando vão os dados e, se a última atualização falhou, por quê.
+    public String descricao() {
+        Timestamp ate = dadosAte;
+        String erro = falha;
+        if (ate == null) {
+            return erro == null ? "Atualizando a cópia de relatórios..."
+                    : "Cópia de relatórios indisponível (" + erro + "); lendo o banco dos caixas.";
+        }
+        boolean hoje = ate.toLocalDateTime().toLocalDate().equals(LocalDate.now());
+        String texto = "Dados até " + ate.toLocalDateTime().format(hoje ? HORA : DIA_HORA)
+                + " (cópia de relatórios, atraso máximo de " + atrasoMaxMs / 1000 + " s)";
+        return erro == null ? texto : texto + "; última atualização falhou: " + erro;
+    }
+
+    private synchronized void iniciar() {
+        if (agendador != null) return;
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "relatorio-copia");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(1000, atrasoMaxMs / 2);
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                atualizar();
+            } catch (SQLException | RuntimeException e) {
+                // Fica em falha (descricao); tenta de novo no próximo ciclo.
+            }
+        }, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void atualizar() throws SQLException {
+        try {
+            Metricas.medir("relatório · cópia", () -> {
+                if (!aberta) abrir();
+                sincronizar(true);
+                return null;
+            });
+            falha = null;
+        } catch (SQLException e) {
+            falha = e.getMessage();
+            throw e;
+        }
+    }
+
+    private void abrir() throws SQLException {
+        Marca marca = replica.executar(r -> {
+            MigracoesEsquema.aplicar(r.jdbc());
+            try (Statement st = r.jdbc().createStatement()) {
+                st.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                st.execute("CREATE TABLE IF NOT EXISTS replica_marca (id INT PRIMARY KEY, ultimo_pedido INT NOT NULL, hora TIMESTAMP NOT NULL)");
+            }
+            return lerMarca(r.jdbc());
+        });
+        if (marca != null) dadosAte = marca.hora();
+        aberta = true;
+    }
+
+    // Sem marca (cópia nova ou condenada) refaz tudo; se as contagens não batem no fim
+    // de uma atualização incremental, refaz tudo uma vez.
+    private void sincronizar(boolean refazerSeDiferente) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        Marca anterior = replica.executar(r -> lerMarca(r.jdbc()));
+        if (anterior == null) limpar();
+        Set<LocalDate> dias = new TreeSet<>();
+        Marca[] nova = new Marca[1];
+        boolean confere = principal.executar(p -> {
+            Connection pc = p.jdbc();
+            int nivel = pc.getTransactionIsolation();
+            pc.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            pc.setAutoCommit(false);
+            try {
+                return replica.transacao(r -> {
+                    nova[0] = copiar(pc, r, anterior, dias);
+                    return contar(pc, "pedido") == contar(r.jdbc(), "pedido")
+                            && contar(pc, "pedido_arquivo") == contar(r.jdbc(), "pedido_arquivo");
+                });
+            } finally {
+                try { pc.rollback(); } catch (SQLException ignored) {}
+                pc.setTransactionIsolation(nivel);
+                pc.setAutoCommit(true);
+            }
+        });
+        if (!confere) {
+            if (anterior == null || !refazerSeDiferente) {
+                throw new SQLException("A cópia de relatórios não confere com o banco principal.");
+            }
+            replica.executar(r -> {
+                try (Statement st = r.jdbc().createStatement()) {
+                    return st.executeUpdate("DELETE FROM replica_marca");
+                }
+            });
+            sincronizar(false);
+            return;
+        }
+        atualizadaEm = inicio;
+        dadosAte = nova[0].hora();
+        if (anterior == null) ouvinte.refeita();
+        else if (!dias.isEmpty()) ouvinte.atualizada(dias);
+    }
+
+    // TRUNCATE confirma na hora; só acontece com a cópia sem marca, que ninguém ainda lê.
+    private void limpar() throws SQLException {
+        replica.executar(r -> {
+            try (Statement st = r.jdbc().createStatement()) {
+                for (String tabela : TABELAS) st.execute("TRUNCATE TABLE " + tabela);
+            }
+            return null;
+        });
+    }
+
+    // Tudo dentro da transação aberta em r e da fotografia de pc; devolve a nova marca.
+    private Marca copiar(Connection pc, PoolConexoes.Conexao r, Marca anterior, Set<LocalDate> dias) throws SQLException {
+        Connection rc = r.jdbc();
+        Marca marca;
+        try (Statement st = pc.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0), LOCALTIMESTAMP FROM pedido")) {
+            rs.next();
+            marca = new Marca(rs.getInt(1), rs.getTimestamp(2));
+        }
+        int desde = 1;
+        if (anterior != null) {
+            desde = anterior.ultimoPedido() + 1;
+            try (PreparedStatement ps = pc.prepareStatement("SELECT MIN(id) FROM pedido WHERE data >= ?")) {
+                ps.setTimestamp(1, new Timestamp(anterior.hora().getTime() - ConsultaBalanco.FOLGA_TRANSACAO_MS));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getObject(1) != null) desde = Math.min(desde, rs.getInt(1));
+                }
+            }
+        }
+        // Cópia do zero: commit a cada lote (uma transação com o banco inteiro custa mais
+        // que a cópia no commit). Interrompida, fica sem marca e recomeça do zero.
+        boolean tudo = anterior == null;
+        copiarTabela(pc, rc, "pedido", "SELECT * FROM pedido WHERE id >= ?", desde, tudo ? null : dias, tudo);
+        copiarTabela(pc, rc, "pedido_item", "SELECT * FROM pedido_item WHERE pedido_id >= ?", desde, null, tudo);
+        if (tudo) {
+            copiarTabela(pc, rc, "pedido_arquivo", "SELECT * FROM pedido_arquivo", null, null, true);
+            copiarTabela(pc, rc, "pedido_item_arquivo", "SELECT * FROM pedido_item_arquivo", null, null, true);
+        } else {
+            quitacoes(pc, rc, dias);
+            arquivamento(pc, r);
+        }
+        cadastros(pc, rc, tudo);
+
+        if (tudo) VendaDiaria.somar(rc, null);
+        else VendaDiaria.refazerDias(rc, dias);
+        try (PreparedStatement ps = rc.prepareStatement("MERGE INTO replica_marca (id, ultimo_pedido, hora) KEY(id) VALUES (1, ?, ?)")) {
+            ps.setInt(1, marca.ultimoPedido());
+            ps.setTimestamp(2, marca.hora());
+            ps.executeUpdate();
+        }
+        return marca;
+    }
+
+    // Pedidos pagos no principal desde a última atualização: só clientes com menos
+    // "Em aberto" lá do que aqui (quitar paga todos os em aberto do cliente de uma vez).
+    private static void quitacoes(Connection pc, Connection rc, Set<LocalDate> dias) throws SQLException {
+        String emAberto = "'" + ContaCliente.EM_ABERTO + "'";
+        if (um(pc, "SELECT COALESCE(SUM(pedidos_abertos), 0) FROM conta_cliente")
+                == um(rc, "SELECT COUNT(*) FROM pedido WHERE forma_pagamento = " + emAberto)) return;
+        Map<Integer, Long> noPrincipal = contagens(pc, "SELECT cliente_id, pedidos_abertos FROM conta_cliente WHERE pedidos_abertos > 0");
+        Map<Integer, Long> naCopia = contagens(rc,
+                "SELECT cliente_id, COUNT(*) FROM pedido WHERE forma_pagamento = " + emAberto + " GROUP BY cliente_id");
+        try (PreparedStatement principal = pc.prepareStatement("SELECT id FROM pedido WHERE cliente_id = ? AND forma_pagamento = " + emAberto);
+             PreparedStatement copia = rc.prepareStatement("SELECT id, CAST(data AS DATE) FROM pedido WHERE cliente_id = ? AND forma_pagamento = " + emAberto);
+             PreparedStatement pagar = rc.prepareStatement("UPDATE pedido SET forma_pagamento = '" + ContaCliente.PAGO + "' WHERE id = ANY(?)")) {
+            for (Map.Entry<Integer, Long> e : naCopia.entrySet()) {
+                if (e.getValue() <= noPrincipal.getOrDefault(e.getKey(), 0L)) continue;
+                Set<Integer> abertos = new HashSet<>();
+                principal.setInt(1, e.getKey());
+                try (ResultSet rs = principal.executeQuery()) {
+                    while (rs.next()) abertos.add(rs.getInt(1));
+                }
+                List<Integer> pagos = new ArrayList<>();
+                copia.setInt(1, e.getKey());
+                try (ResultSet rs = copia.executeQuery()) {
+                    while (rs.next()) {
+                        if (abertos.contains(rs.getInt(1))) continue;
+                        pagos.add(rs.getInt(1));
+                        dias.add(rs.getDate(2).toLocalDate());
+                    }
+                }
+                pagar.setObject(1, pagos.toArray(new Integer[0]));
+                pagar.executeUpdate();
+            }
+        }
+    }
+
+    // Pedidos que o principal passou para o arquivo e aqui ainda estão nas tabelas vivas.
+    // Commit a cada lote, como no principal: cada pedido está sempre numa das duas
+    // tabelas, e o que já foi copiado antes na atualização é regravado igual se ela cair.
+    private static void arquivamento(Connection pc, PoolConexoes.Conexao r) throws SQLException {
+        if (contar(pc, "pedido_arquivo") == contar(r.jdbc(), "pedido_arquivo")) return;
+        Set<Integer> jaArquivados = new HashSet<>();
+        try (Statement st = r.jdbc().createStatement(); ResultSet rs = st.executeQuery("SELECT id FROM pedido_arquivo")) {
+            while (rs.next()) jaArquivados.add(rs.getInt(1));
+        }
+        List<Integer> lote = new ArrayList<>(ArquivoPedidos.TAMANHO_LOTE);
+        try (Statement st = pc.createStatement(); ResultSet rs = st.executeQuery("SELECT id FROM pedido_arquivo")) {
+            while (rs.next()) {
+                if (jaArquivados.contains(rs.getInt(1))) continue;
+                lote.add(rs.getInt(1));
+                if (lote.size() == ArquivoPedidos.TAMANHO_LOTE) {
+                    ArquivoPedidos.mover(r, lote.toArray(new Integer[0]));
+                    r.jdbc().commit();
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) ArquivoPedidos.mover(r, lote.toArray(new Integer[0]));
+    }
+
+    // Só nomes entram nos relatórios; funcionários e estoque não são copiados.
+    private static void cadastros(Connection pc, Connection rc, boolean tudo) throws SQLException {
+        String assinatura = "SELECT CAST(COALESCE(MAX(id), 0) AS BIGINT) * 1000003 + COUNT(*) FROM cliente";
+        if (tudo || um(pc, assinatura) != um(rc, assinatura)) {
+            try (Statement st = rc.createStatement()) {
+                st.executeUpdate("DELETE FROM cliente");
+            }
+            copiarTabela(pc, rc, "cliente", "SELECT * FROM cliente", null, null, false);
+        }
+        String versao = "SELECT versao FROM catalogo_versao";
+        long catalogo = um(pc, versao);
+        if (tudo || catalogo != um(rc, versao)) {
+            try (Statement st = rc.createStatement()) {
+                st.executeUpdate("DELETE FROM produto");
+                st.executeUpdate("UPDATE catalogo_versao SET versao = " + catalogo);
+            }
+            copiarTabela(pc, rc, "produto", "SELECT * FROM produto", null, null, false);
+        }
+        try (Statement st = rc.createStatement()) {
+            st.executeUpdate("DELETE FROM arquivo_limite");
+        }
+        copiarTabela(pc, rc, "arquivo_limite", "SELECT * FROM arquivo_limite", null, null, false);
+    }
+
+    // Linhas da consulta no principal para a mesma tabela aqui, pelas colunas do resultado,
+    // em lotes (com confirmar, commit a cada um). Com dias, guarda o dia de cada pedido copiado.
+    private static void copiarTabela(Connection pc, Connection rc, String tabela, String sql, Integer desde,
+                                     Set<LocalDate> dias, boolean confirmar) throws SQLException {
+        try (PreparedStatement ps = pc.prepareStatement(sql)) {
+            if (desde != null) ps.setInt(1, desde);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                int n = md.getColumnCount();
+                StringJoiner colunas = new StringJoiner(", ");
+                StringJoiner valores = new StringJoiner(", ");
+                int data = 0;
+                for (int i = 1; i <= n; i++) {
+                    colunas.add(md.getColumnLabel(i));
+                    valores.add("?");
+                    if (md.getColumnLabel(i).equalsIgnoreCase("data")) data = i;
+                }
+                try (PreparedStatement ins = rc.prepareStatement("MERGE INTO " + tabela + " (" + colunas + ") KEY(id) VALUES (" + valores + ")")) {
+                    int pendentes = 0;
+                    while (rs.next()) {
+                        for (int i = 1; i <= n; i++) ins.setObject(i, rs.getObject(i));
+                        if (dias != null && data > 0 && rs.getTimestamp(data) != null) {
+                            dias.add(rs.getTimestamp(data).toLocalDateTime().toLocalDate());
+                        }
+                        ins.addBatch();
+                        if (++pendentes == LOTE) {
+                            ins.executeBatch();
+                            if (confirmar) rc.commit();
+                            pendentes = 0;
+                        }
+                    }
+                    if (pendentes > 0) ins.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static Marca lerMarca(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ultimo_pedido, hora FROM replica_marca WHERE id = 1")) {
+            return rs.next() ? new Marca(rs.getInt(1), rs.getTimestamp(2)) : null;
+        }
+    }
+
+    private static Map<Integer, Long> contagens(Connection conn, String sql) throws SQLException {
+        Map<Integer, Long> mapa = new HashMap<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) mapa.put(rs.getInt(1), rs.getLong(2));
+        }
+        return mapa;
+    }
+
+    private static long contar(Connection conn, String tabela) throws SQLException {
+        return um(conn, "SELECT COUNT(*) FROM " + tabela);
+    }
+
+    private static long um(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Não interrompe uma atualização em andamento (interromper o H2 no meio de uma escrita fecha o banco).
+    @Override
+    public void close() {
+        ScheduledExecutorService a;
+        synchronized (this) {
+            a = agendador;
+        }
+        if (a != null) {
+            a.shutdown();
+            try {
+                a.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        replica.close();
+    }
+}
@@ -0,0 +1,141 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Function;
+
+// -------------------- Seletor com busca enquanto digita --------------------
+// Diálogo modal: a lista é refeita a cada tecla a partir de um índice em memória.
+// Setas movem a seleção, Enter (ou duplo clique) escolhe, Esc cancela.
+// O botão extra opcional (ex.: "Novo cliente") recebe o texto digitado e pode
+// devolver o item criado, que passa a ser a escolha.
+public class SeletorBusca<T> extends JDialog {
+
+    // Quantos resultados as buscas devem devolver
+    public static final int LIMITE = 30;
+
+    private final Function<String, List<T>> busca;
+    private final Function<T, String> rotulo;
+    private final JTextField campo = new JTextField(30);
+    private final DefaultListModel<T> modelo = new DefaultListModel<>();
+    private final JList<T> lista = new JList<>(modelo);
+    private final JLabel status = new JLabel(" ");
+    private T escolhido;
+
+    public SeletorBusca(Component pai, String titulo, Function<String, List<T>> busca, Function<T, String> rotulo,
+                        String textoExtra, Function<String, T> acaoExtra) {
+        super(SwingUtilities.getWindowAncestor(pai), titulo, ModalityType.APPLICATION_MODAL);
+        this.busca = busca;
+        this.rotulo = rotulo;
+
+        lista.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lista.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Component getListCellRendererComponent(JList<?> l, Object valor, int i, boolean sel, boolean foco) {
+                return super.getListCellRendererComponent(l, rotulo.apply((T) valor), i, sel, foco);
+            }
+        });
+        lista.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) escolher(lista.getSelectedValue());
+            }
+        });
+
+        campo.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { atualizar(); }
+            public void removeUpdate(DocumentEvent e) { atualizar(); }
+            public void changedUpdate(DocumentEvent e) { atualizar(); }
+        });
+        campo.addActionListener(e -> escolher(lista.getSelectedValue()));
+        InputMap teclas = campo.getInputMap(JComponent.WHEN_FOCUSED);
+        teclas.put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "descer");
+        teclas.put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "subir");
+        campo.getActionMap().put("descer", acao(() -> mover(1)));
+        campo.getActionMap().put("subir", acao(() -> mover(-1)));
+        getRootPane().registerKeyboardAction(e -> dispose(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+        JPanel botoes = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        if (acaoExtra != null) {
+            JButton extra = new JButton(textoExtra);
+            extra.addActionListener(e -> {
+                T criado = acaoExtra.apply(campo.getText().trim());
+                if (criado != null) escolher(criado);
+            });
+            botoes.add(extra);
+        }
+        JButton ok = new JButton("OK");
+        ok.addActionListener(e -> escolher(lista.getSelectedValue()));
+        JButton cancelar = new JButton("Cancelar");
+        cancelar.addActionListener(e -> dispose());
+        botoes.add(ok);
+        botoes.add(cancelar);
+
+        JPanel topo = new JPanel(new BorderLayout(4, 4));
+        topo.add(new JLabel("Buscar:"), BorderLayout.WEST);
+        topo.add(campo, BorderLayout.CENTER);
+        JPanel sul = new JPanel(new BorderLayout());
+        sul.add(status, BorderLayout.WEST);
+        sul.add(botoes, BorderLayout.EAST);
+
+        setLayout(new BorderLayout(4, 4));
+        add(topo, BorderLayout.NORTH);
+        JScrollPane scroll = new JScrollPane(lista);
+        scroll.setPreferredSize(new Dimension(520, 320));
+        add(scroll, BorderLayout.CENTER);
+        add(sul, BorderLayout.SOUTH);
+        pack();
+        setLocationRelativeTo(pai);
+    }
+
+    // Abre o diálogo e devolve o item escolhido, ou null se cancelou.
+    public T abrir() {
+        atualizar();
+        setVisible(true);
+        return escolhido;
+    }
+
+    // Idem, já com o texto digitado em outro campo (ex.: nome digitado no caixa).
+    public T abrir(String textoInicial) {
+        campo.setText(textoInicial);
+        return abrir();
+    }
+
+    private void atualizar() {
+        long inicio = System.nanoTime();
+        List<T> itens = busca.apply(campo.getText());
+        long micros = (System.nanoTime() - inicio) / 1000;
+        modelo.clear();
+        modelo.addAll(itens);
+        if (!itens.isEmpty()) lista.setSelectedIndex(0);
+        status.setText(itens.isEmpty() ? "Nada encontrado." : itens.size() + (itens.size() == LIMITE ? "+" : "") + " resultado(s) em " + micros + " µs");
+    }
+
+    private void mover(int passo) {
+        if (modelo.isEmpty()) return;
+        int i = Math.max(0, Math.min(modelo.size() - 1, lista.getSelectedIndex() + passo));
+        lista.setSelectedIndex(i);
+        lista.ensureIndexIsVisible(i);
+    }
+
+    private void escolher(T item) {
+        if (item == null) return;
+        escolhido = item;
+        dispose();
+    }
+
+    private static Action acao(Runnable r) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                r.run();
+            }
+        };
+    }
+}
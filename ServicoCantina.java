@@ -0,0 +1,536 @@
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// -------------------- Serviço da cantina (sem interface) --------------------
+// As operações do caixa sem nada de Swing: login, catálogo, clientes, conta
+// (fiado), estoque por lote, pedido, balanço e arquivo de anos encerrados. A tela (SistemaCantinaComBalanco) e o servidor HTTP
+// dos totens (ServidorCantina) são clientes deste serviço. Todos os métodos podem ser chamados
+// de várias threads ao mesmo tempo: catálogo e clientes são fotografias em memória
+// (sincronizadas com os outros caixas a cada 5 s) e o banco é acessado pelo pool.
+// Com diretório de fila local (offline.dir), o caixa continua vendendo sem o banco:
+// pedidos vão para a FilaLocal, catálogo e login para a CopiaLocal.
+// Com diretório de relatórios (relatorio.dir), balanço, exportação e painel leem de
+// uma cópia local só de leitura (ReplicaRelatorios), não do banco dos caixas.
+public class ServicoCantina implements AutoCloseable {
+
+    public record Funcionario(int id, String nome, boolean admin) {}
+
+    private final PoolConexoes pool;
+    private final MotorPedido motorPedido;
+    private final FilaGravacao filaGravacao;
+    private final CatalogoProdutos catalogo = new CatalogoProdutos();
+    private final CadastroClientes clientes = new CadastroClientes();
+    private final CacheBalanco cacheBalanco = new CacheBalanco();
+    private final FilaLocal filaLocal;
+    private final CopiaLocal copiaLocal;
+    private long ultimaCopia;
+    private ReplicaRelatorios relatorios;
+    private final ScheduledExecutorService sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catalogo-sincronizacao");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final long INTERVALO_COPIA_MS = 5 * 60 * 1000L;
+
+    // Sem fila local: sem banco, a venda falha (ferramentas e medições).
+    public ServicoCantina(PoolConexoes pool) {
+        this.pool = pool;
+        this.motorPedido = new MotorPedido(pool);
+        this.filaGravacao = new FilaGravacao(pool, motorPedido);
+        this.filaLocal = null;
+        this.copiaLocal = null;
+    }
+
+    public ServicoCantina(PoolConexoes pool, File dirOffline) throws IOException {
+        this.pool = pool;
+        this.motorPedido = new MotorPedido(pool);
+        this.filaGravacao = new FilaGravacao(pool, motorPedido);
+        this.filaLocal = new FilaLocal(dirOffline, pool, filaGravacao, new FilaLocal.Ouvinte() {
+            @Override
+            public void gravado(MotorPedido.Pedido pedido) {
+                cacheBalanco.pedidoGravado(clientes.nome(pedido.clienteId()), pedido.data().toLocalDate());
+            }
+
+            @Override
+            public void voltou() {
+                try {
+                    sincronizar();
+                } catch (SQLException ignored) {}
+            }
+        });
+        this.copiaLocal = new CopiaLocal(dirOffline);
+    }
+
+    // Pool, diretório da fila local e cópia de relatórios de cantina.properties
+    // (offline.dir vazio: sem fila local; relatorio.dir vazio: relatórios no banco dos caixas).
+    public static ServicoCantina deConfiguracao() throws IOException {
+        Properties padrao = new Properties();
+        padrao.setProperty("offline.dir", "offline");
+        padrao.setProperty("relatorio.dir", "relatorio");
+        padrao.setProperty("relatorio.atraso.segundos", "60");
+        Properties cfg = PoolConexoes.configuracao(padrao);
+        String dir = cfg.getProperty("offline.dir").trim();
+        PoolConexoes pool = PoolConexoes.deConfiguracao();
+        ServicoCantina servico = dir.isEmpty() ? new ServicoCantina(pool) : new ServicoCantina(pool, new File(dir));
+        String relatorio = cfg.getProperty("relatorio.dir").trim();
+        if (!relatorio.isEmpty()) {
+            servico.usarCopiaRelatorios(new File(relatorio),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(cfg.getProperty("relatorio.atraso.segundos").trim())));
+        }
+        return servico;
+    }
+
+    // A cópia só é criada no primeiro relatório (poolRelatorios): caixa que não abre relatório não a tem.
+    private void usarCopiaRelatorios(File dir, long atrasoMaxMs) {
+        relatorios = new ReplicaRelatorios(pool, dir, atrasoMaxMs, new ReplicaRelatorios.Ouvinte() {
+            @Override
+            public void atualizada(Set<LocalDate> dias) {
+                for (LocalDate dia : dias) cacheBalanco.pedidoGravado(null, dia);
+            }
+
+            @Override
+            public void refeita() {
+                cacheBalanco.limpar();
+            }
+        });
+    }
+
+    public PoolConexoes getPool() {
+        return pool;
+    }
+
+    // Aplica as migrações, carrega catálogo e clientes e começa a sincronização periódica.
+    // Sem banco e com cópia local, abre sem servidor (vendas na fila local).
+    public void iniciar() throws SQLException {
+        try {
+            pool.executar(c -> {
+                SistemaCantinaComBalanco.criarEsquema(c.jdbc());
+                catalogo.recarregar(c.jdbc());
+                clientes.recarregar(c.jdbc());
+                return null;
+            });
+        } catch (SQLException e) {
+            if (filaLocal == null || !PoolConexoes.semConexao(e) || !copiaLocal.carregar(catalogo, clientes)) throw e;
+            filaLocal.perdeuServidor();
+        }
+        sincronizador.scheduleWithFixedDelay(() -> {
+            if (semServidor()) return;
+            try {
+                sincronizar();
+                copiar();
+            } catch (SQLException e) {
+                if (filaLocal != null && PoolConexoes.semConexao(e)) filaLocal.perdeuServidor();
+            }
+        }, 5, 5, TimeUnit.SECONDS);
+        if (filaLocal != null) filaLocal.iniciar();
+    }
+
+    // Depois de iniciar(), fora da EDT: a primeira venda custa o mesmo que as outras
+    // (ver MotorPedido.aquecer). Sem produtos ou sem servidor, não há o que aquecer.
+    public void aquecer() {
+        List<CatalogoProdutos.Produto> produtos = catalogo.listarPorNome();
+        if (produtos.isEmpty() || semServidor()) return;
+        try {
+            pool.executar(c -> {
+                motorPedido.aquecer(c, produtos.get(0).id());
+                return null;
+            });
+        } catch (SQLException ignored) {}
+    }
+
+    public void sincronizar() throws SQLException {
+        pool.executar(c -> {
+            catalogo.sincronizar(c.jdbc());
+            clientes.sincronizar(c.jdbc());
+            return null;
+        });
+    }
+
+    // Cópia local a cada 5 min (a primeira 5 s depois da abertura), na thread de sincronização.
+    private void copiar() throws SQLException {
+        if (copiaLocal == null || System.currentTimeMillis() - ultimaCopia < INTERVALO_COPIA_MS) return;
+        pool.executar(c -> {
+            try {
+                copiaLocal.gravar(c.jdbc());
+            } catch (IOException e) {
+                throw new SQLException("Erro gravando a cópia local: " + e.getMessage(), e);
+            }
+            return null;
+        });
+        ultimaCopia = System.currentTimeMillis();
+    }
+
+    // Caixa gravando na fila local porque o banco não responde.
+    public boolean semServidor() {
+        return filaLocal != null && filaLocal.semServidor();
+    }
+
+    // Pedidos da fila local ainda não gravados no banco.
+    public int pedidosNaFilaLocal() {
+        return filaLocal == null ? 0 : filaLocal.pendentes();
+    }
+
+    // -------------------- Funcionários --------------------
+    // Devolve null se usuário ou senha não conferem. Sem servidor, confere na cópia local.
+    public Funcionario login(String usuario, String senha) throws SQLException {
+        if (semServidor()) return copiaLocal.login(usuario, senha);
+        try {
+            return loginNoBanco(usuario, senha);
+        } catch (SQLException e) {
+            if (filaLocal == null || !PoolConexoes.semConexao(e)) throw e;
+            filaLocal.perdeuServidor();
+            return copiaLocal.login(usuario, senha);
+        }
+    }
+
+    private Funcionario loginNoBanco(String usuario, String senha) throws SQLException {
+        return Metricas.medir("login", () -> pool.executar(c -> {
+            PreparedStatement ps = c.preparar("SELECT id, nome, is_admin FROM funcionario WHERE usuario = ? AND senha = ?");
+            ps.setString(1, usuario);
+            ps.setString(2, senha);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return new Funcionario(rs.getInt("id"), rs.getString("nome"), rs.getInt("is_admin") == 1);
+            }
+        }));
+    }
+
+    public void cadastrarFuncionario(String usuario, String senha, String nome, boolean admin) throws SQLException {
+        pool.executar(c -> {
+            PreparedStatement ps = c.preparar("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES (?, ?, ?, ?)");
+            ps.setString(1, usuario);
+            ps.setString(2, senha);
+            ps.setString(3, nome);
+            ps.setInt(4, admin ? 1 : 0);
+            return ps.executeUpdate();
+        });
+    }
+
+    // -------------------- Catálogo --------------------
+    public List<CatalogoProdutos.Produto> listarProdutos() {
+        return catalogo.listarPorNome();
+    }
+
+    public CatalogoProdutos.Produto produto(int id) {
+        return catalogo.produto(id);
+    }
+
+    public List<CatalogoProdutos.Produto> buscarProdutos(String texto, int limite) {
+        return catalogo.buscar(texto, limite);
+    }
+
+    public CatalogoProdutos.Produto produtoPorCodigo(String codigoBarras) {
+        return catalogo.porCodigo(codigoBarras);
+    }
+
+    public String codigoDe(int produtoId) {
+        return catalogo.codigoDe(produtoId);
+    }
+
+    // codigoBarras vazio ou null: produto sem código. A quantidade inicial entra como o primeiro lote.
+    public void adicionarProduto(String nome, String tipo, double preco, int quantidade, LocalDate validade,
+                                 String codigoBarras) throws SQLException {
+        String codigo = conferirCodigo(codigoBarras, null);
+        alterarCatalogo(c -> {
+            PreparedStatement ps = c.prepararComChaves("INSERT INTO produto(nome, tipo, preco, quantidade, validade, codigo_barras) VALUES (?, ?, ?, 0, ?, ?)");
+            ps.setString(1, nome);
+            ps.setString(2, tipo);
+            ps.setDouble(3, preco);
+            if (validade != null) ps.setDate(4, Date.valueOf(validade)); else ps.setNull(4, Types.DATE);
+            ps.setString(5, codigo);
+            int n = ps.executeUpdate();
+            if (quantidade > 0) {
+                try (ResultSet gen = ps.getGeneratedKeys()) {
+                    gen.next();
+                    EstoqueLotes.entrada(c, gen.getInt(1), quantidade, validade);
+                }
+            }
+            return n;
+        });
+    }
+
+    // Só o cadastro; o estoque muda por entrada de lote, venda e descarte.
+    // Devolve false se o produto não existe mais.
+    public boolean editarProduto(int id, String nome, String tipo, double preco, String codigoBarras) throws SQLException {
+        String codigo = conferirCodigo(codigoBarras, id);
+        return alterarCatalogo(c -> {
+            PreparedStatement ps = c.preparar("UPDATE produto SET nome = ?, tipo = ?, preco = ?, codigo_barras = ? WHERE id = ?");
+            ps.setString(1, nome);
+            ps.setString(2, tipo);
+            ps.setDouble(3, preco);
+            ps.setString(4, codigo);
+            ps.setInt(5, id);
+            return ps.executeUpdate();
+        }) > 0;
+    }
+
+    // -------------------- Estoque (lotes) --------------------
+    // Devolve false se o produto não existe mais.
+    public boolean entradaLote(int produtoId, int quantidade, LocalDate validade) throws SQLException {
+        boolean ok = pool.transacao(c -> EstoqueLotes.entrada(c, produtoId, quantidade, validade));
+        if (ok) sincronizar();
+        return ok;
+    }
+
+    public List<EstoqueLotes.Lote> lotesVencendo(int dias) throws SQLException {
+        return pool.executar(c -> EstoqueLotes.vencendo(c, dias));
+    }
+
+    // Devolve as unidades descartadas.
+    public int descartarVencidos() throws SQLException {
+        int n = pool.transacao(EstoqueLotes::descartarVencidos);
+        if (n > 0) sincronizar();
+        return n;
+    }
+
+    // Aviso legível antes do índice único recusar; null se vazio.
+    private String conferirCodigo(String codigoBarras, Integer produtoId) {
+        if (codigoBarras == null || codigoBarras.isBlank()) return null;
+        String codigo = codigoBarras.trim();
+        if (codigo.length() > 32) throw new IllegalArgumentException("Código de barras com mais de 32 caracteres.");
+        CatalogoProdutos.Produto dono = catalogo.porCodigo(codigo);
+        if (dono != null && (produtoId == null || dono.id() != produtoId)) {
+            throw new IllegalArgumentException("Código de barras já usado por " + dono.id() + " - " + dono.nome() + ".");
+        }
+        return codigo;
+    }
+
+    public boolean removerProduto(int id) throws SQLException {
+        return alterarCatalogo(c -> {
+            PreparedStatement ps = c.preparar("DELETE FROM produto WHERE id = ?");
+            ps.setInt(1, id);
+            return ps.executeUpdate();
+        }) > 0;
+    }
+
+    // Altera o cadastro e, na mesma transação, avisa os outros caixas (versão do
+    // catálogo); depois recarrega o catálogo local. Devolve as linhas afetadas.
+    private int alterarCatalogo(PoolConexoes.Trabalho<Integer> alteracao) throws SQLException {
+        int aff = pool.transacao(c -> {
+            int n = alteracao.executar(c);
+            if (n > 0) CatalogoProdutos.incrementarVersao(c.jdbc());
+            return n;
+        });
+        if (aff > 0) {
+            pool.executar(c -> {
+                catalogo.recarregar(c.jdbc());
+                return null;
+            });
+        }
+        return aff;
+    }
+
+    // -------------------- Clientes --------------------
+    public List<CadastroClientes.Cliente> buscarClientes(String texto, int limite) {
+        return clientes.buscar(texto, limite);
+    }
+
+    public List<CadastroClientes.Cliente> listarClientes() throws SQLException {
+        return pool.executar(c -> {
+            List<CadastroClientes.Cliente> lista = new ArrayList<>();
+            try (ResultSet rs = c.preparar("SELECT id, nome FROM cliente ORDER BY nome").executeQuery()) {
+                while (rs.next()) lista.add(new CadastroClientes.Cliente(rs.getInt(1), rs.getString(2)));
+            }
+            return lista;
+        });
+    }
+
+    public CadastroClientes.Cliente inserirCliente(String nome) throws SQLException {
+        int id = pool.executar(c -> {
+            PreparedStatement ps = c.prepararComChaves("INSERT INTO cliente(nome) VALUES (?)");
+            ps.setString(1, nome);
+            ps.executeUpdate();
+            try (ResultSet gen = ps.getGeneratedKeys()) {
+                gen.next();
+                return gen.getInt(1);
+            }
+        });
+        clientes.adicionado(id, nome);
+        return new CadastroClientes.Cliente(id, nome);
+    }
+
+    public boolean removerCliente(int id) throws SQLException {
+        int aff = pool.executar(c -> {
+            PreparedStatement ps = c.preparar("DELETE FROM cliente WHERE id = ?");
+            ps.setInt(1, id);
+            return ps.executeUpdate();
+        });
+        if (aff > 0) clientes.removido(id);
+        return aff > 0;
+    }
+
+    // -------------------- Importação em lote --------------------
+    public ImportadorCadastro.Resultado importarProdutos(java.io.File arquivo, boolean atualizarExistentes) throws Exception {
+        ImportadorCadastro.Resultado r = Metricas.medir("importação",
+                () -> new ImportadorCadastro(pool).importarProdutos(arquivo, atualizarExistentes));
+        pool.executar(c -> {
+            catalogo.recarregar(c.jdbc());
+            return null;
+        });
+        return r;
+    }
+
+    public ImportadorCadastro.Resultado importarClientes(java.io.File arquivo) throws Exception {
+        ImportadorCadastro.Resultado r = Metricas.medir("importação", () -> new ImportadorCadastro(pool).importarClientes(arquivo));
+        pool.executar(c -> {
+            clientes.recarregar(c.jdbc());
+            return null;
+        });
+        return r;
+    }
+
+    // -------------------- Arquivo de anos letivos encerrados --------------------
+    public List<ArquivoPedidos.AnoLetivo> anosArquivaveis() throws SQLException {
+        return new ArquivoPedidos(pool).anosArquivaveis();
+    }
+
+    public ArquivoPedidos.Resultado arquivar(int ultimoAno, ArquivoPedidos.Andamento andamento) throws SQLException {
+        return Metricas.medir("arquivamento", () -> new ArquivoPedidos(pool).arquivarAte(ultimoAno, andamento));
+    }
+
+    // -------------------- Conta do cliente (fiado) --------------------
+    // null se o cliente não existe.
+    public ContaCliente.Conta conta(int clienteId) throws SQLException {
+        return pool.executar(c -> ContaCliente.consultar(c, clienteId));
+    }
+
+    public List<ContaCliente.Conta> devedores(int limite) throws SQLException {
+        return pool.executar(c -> ContaCliente.devedores(c, limite));
+    }
+
+    public ContaCliente.Quitacao quitar(int clienteId) throws SQLException {
+        return Metricas.medir("quitação", () -> pool.transacao(c -> ContaCliente.quitar(c, clienteId)));
+    }
+
+    // -------------------- Pedido --------------------
+    // Entra na fila de gravação (commit em grupo, ver FilaGravacao) e devolve na hora;
+    // o futuro termina depois do commit. O catálogo local é ajustado em seguida, na
+    // thread de sincronização (refazer a fotografia não atrasa o escritor da fila): com
+    // sucesso baixa o estoque e derruba os balanços guardados que a venda alcança; se o
+    // estoque mudou em outro caixa, ressincroniza para a próxima tentativa já ver o novo.
+    // Com fila local o pedido leva um uuid: se o banco cair antes ou durante o commit, ele
+    // vai para a FilaLocal com o mesmo uuid e é gravado uma vez só quando o banco voltar.
+    public CompletableFuture<MotorPedido.ResultadoPedido> enviarPedido(int funcionarioId, int clienteId, String status,
+                                                                       List<MotorPedido.ItemPedido> itens) {
+        LocalDateTime hora = LocalDateTime.now();
+        MotorPedido.Pedido pedido = new MotorPedido.Pedido(filaLocal == null ? null : UUID.randomUUID(), null,
+                funcionarioId, clienteId, status, List.copyOf(itens));
+        if (semServidor()) return guardarLocal(pedido, hora);
+        CompletableFuture<MotorPedido.ResultadoPedido> futuro = filaGravacao.enviar(pedido);
+        futuro.thenAcceptAsync(resultado -> {
+            if (resultado.sucesso()) {
+                cacheBalanco.pedidoGravado(clientes.nome(clienteId), LocalDate.now());
+                catalogo.aplicarVenda(itens);
+                return;
+            }
+            try {
+                pool.executar(c -> {
+                    catalogo.sincronizar(c.jdbc());
+                    return null;
+                });
+            } catch (SQLException ignored) {}
+        }, sincronizador);
+        if (filaLocal == null) return futuro;
+        return futuro.exceptionallyCompose(e -> PoolConexoes.semConexao(e) ? guardarLocal(pedido, hora)
+                : CompletableFuture.failedFuture(e));
+    }
+
+    // Venda sem servidor: preço e existência do produto pelo catálogo local; o estoque é
+    // conferido quando o pedido chegar ao banco (falta vira acerto, ver MotorPedido.gravar).
+    private CompletableFuture<MotorPedido.ResultadoPedido> guardarLocal(MotorPedido.Pedido pedido, LocalDateTime hora) {
+        long inicio = System.nanoTime();
+        List<MotorPedido.FalhaItem> falhas = new ArrayList<>();
+        double total = 0;
+        for (MotorPedido.ItemPedido item : pedido.itens()) {
+            CatalogoProdutos.Produto p = catalogo.produto(item.produtoId());
+            if (p == null) {
+                falhas.add(new MotorPedido.FalhaItem(item.produtoId(), null, item.quantidade(), 0,
+                        MotorPedido.MotivoFalha.PRODUTO_INEXISTENTE));
+            } else {
+                total += p.preco() * item.quantidade();
+            }
+        }
+        if (!falhas.isEmpty()) return CompletableFuture.completedFuture(new MotorPedido.ResultadoPedido(0, 0, falhas));
+        try {
+            filaLocal.guardar(new MotorPedido.Pedido(pedido.uuid(), hora, pedido.funcionarioId(), pedido.clienteId(),
+                    pedido.status(), pedido.itens()));
+        } catch (IOException e) {
+            Metricas.registrar("venda · local", System.nanoTime() - inicio, false);
+            return CompletableFuture.failedFuture(new SQLException("Sem servidor e sem gravar na fila local: " + e.getMessage(), e));
+        }
+        catalogo.aplicarVenda(pedido.itens());
+        Metricas.registrar("venda · local", System.nanoTime() - inicio, true);
+        return CompletableFuture.completedFuture(new MotorPedido.ResultadoPedido(0, total, List.of()));
+    }
+
+    // Mesmo caminho, esperando o commit (servidor dos totens: cada requisição na sua thread).
+    public MotorPedido.ResultadoPedido registrarPedido(int funcionarioId, int clienteId, String status,
+                                                       List<MotorPedido.ItemPedido> itens) throws SQLException {
+        try {
+            return enviarPedido(funcionarioId, clienteId, status, itens).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido esperando a gravação do pedido.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException s) throw s;
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    // -------------------- Balanço e relatórios --------------------
+    // Pool das consultas de relatório: a cópia (em dia dentro do atraso máximo; pode
+    // esperar uma atualização, então fora da EDT) ou, sem ela, o do banco dos caixas.
+    // Se a cópia não pode ser criada (outro programa usando o diretório, banco fora),
+    // os relatórios leem o banco dos caixas e origemRelatorios() diz por quê.
+    public PoolConexoes poolRelatorios() {
+        if (relatorios == null) return pool;
+        try {
+            return relatorios.pool();
+        } catch (SQLException e) {
+            return pool;
+        }
+    }
+
+    // De onde e de quando são os dados dos relatórios; null sem cópia de relatórios.
+    public String origemRelatorios() {
+        return relatorios == null ? null : relatorios.descricao();
+    }
+
+    public ConsultaBalanco consultaBalanco(FiltroBalanco filtro) {
+        return new ConsultaBalanco(poolRelatorios(), filtro);
+    }
+
+    // Totais e contagens passam pelo cache (ver CacheBalanco); páginas e exportação
+    // vão direto à ConsultaBalanco.
+    public List<ConsultaBalanco.TotalCliente> balanco(FiltroBalanco filtro) throws SQLException {
+        return resumoBalanco(consultaBalanco(filtro)).totais();
+    }
+
+    public ConsultaBalanco.Resumo resumoBalanco(ConsultaBalanco consulta) throws SQLException {
+        return Metricas.medir("balanço", () -> cacheBalanco.resumo(consulta));
+    }
+
+    @Override
+    public void close() {
+        if (relatorios != null) relatorios.close();
+        if (filaLocal != null) filaLocal.close();
+        filaGravacao.close();
+        sincronizador.shutdownNow();
+        pool.close();
+    }
+}
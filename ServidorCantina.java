@@ -0,0 +1,313 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// -------------------- Servidor HTTP/JSON para totens e tablets --------------------
+// Expõe o ServicoCantina (o mesmo que a tela do caixa usa) em JSON, com o
+// HttpServer do JDK e uma virtual thread por requisição: a requisição que espera
+// conexão do pool ou o banco não segura thread de plataforma.
+// Com AUTO_SERVER (cantina.properties) divide o banco com os caixas Swing.
+//
+//   POST /api/login      {"usuario","senha"}            -> {"token","funcionario"}
+//   POST /api/logout
+//   GET  /api/produtos?busca=...&limite=30
+//   GET  /api/clientes?busca=...&limite=30
+//   POST /api/clientes   {"nome"}
+//   POST /api/pedidos    {"clienteId","status","itens":[{"produtoId","quantidade"}]}
+//                        -> 201 {"pedidoId","total"} | 409 {"falhas":[...]}
+//   GET  /api/balanco?inicio=AAAA-MM-DD&fim=AAAA-MM-DD&cliente=...   (admin)
+//   GET  /api/conta?clienteId=...                            -> saldo em aberto do cliente
+//   GET  /api/contas?limite=...                              -> devedores (admin)
+//   POST /api/contas/quitar {"clienteId"}                    (admin)
+//   GET  /api/saude
+// Tudo menos login e saude pede "Authorization: Bearer <token>".
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar ServidorCantina [--porta 8080]
+public class ServidorCantina implements AutoCloseable {
+
+    private static final long SESSAO_MAX_MS = 12 * 60 * 60 * 1000L;
+    private static final Set<String> ROTAS = Set.of("GET /api/saude", "POST /api/login", "POST /api/logout",
+            "GET /api/produtos", "GET /api/clientes", "POST /api/clientes", "POST /api/pedidos", "GET /api/balanco",
+            "GET /api/conta", "GET /api/contas", "POST /api/contas/quitar");
+
+    // Sem TCP_NODELAY o HttpServer manda cabeçalho e corpo em pacotes separados e o
+    // par Nagle/ACK atrasado segura cada resposta ~40 ms. Lido na 1ª criação de servidor.
+    static {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private record Sessao(ServicoCantina.Funcionario funcionario, long criadaEm) {}
+
+    private static final class ErroHttp extends RuntimeException {
+        final int status;
+
+        ErroHttp(int status, String mensagem) {
+            super(mensagem);
+            this.status = status;
+        }
+    }
+
+    private final ServicoCantina servico;
+    private final HttpServer http;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+
+    public ServidorCantina(ServicoCantina servico, int porta) throws IOException {
+        this.servico = servico;
+        this.http = HttpServer.create(new InetSocketAddress(porta), 256);
+        http.createContext("/api/", this::atender);
+        http.setExecutor(executor);
+    }
+
+    public void iniciar() {
+        http.start();
+    }
+
+    public int getPorta() {
+        return http.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        http.stop(1);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int porta = 8080;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--porta")) porta = Integer.parseInt(args[i + 1]);
+        }
+        Metricas.iniciarArquivo(new java.io.File("metricas"));
+        ServicoCantina servico = new ServicoCantina(PoolConexoes.deConfiguracao());
+        servico.iniciar();
+        ServidorCantina servidor = new ServidorCantina(servico, porta);
+        BackupBanco backup = BackupBanco.deConfiguracao(servico.getPool());
+        if (backup != null) backup.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            if (backup != null) backup.close();
+            servico.close();
+            Metricas.pararArquivo(new java.io.File("metricas"));
+        }));
+        servidor.iniciar();
+        System.out.println("Servidor da cantina em http://localhost:" + servidor.getPorta() + "/api/");
+    }
+
+    // -------------------- Roteamento --------------------
+    private void atender(HttpExchange troca) throws IOException {
+        String rota = troca.getRequestMethod() + " " + troca.getRequestURI().getPath().replaceAll("/+$", "");
+        int status = 200;
+        Object resposta;
+        try {
+            // Rotas desconhecidas não viram métrica (cada URL inventada seria um histograma novo).
+            Object[] r = ROTAS.contains(rota) ? Metricas.medir("api " + rota, () -> rotear(rota, troca)) : rotear(rota, troca);
+            status = (Integer) r[0];
+            resposta = r[1];
+        } catch (ErroHttp e) {
+            status = e.status;
+            resposta = Json.objeto("erro", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            resposta = Json.objeto("erro", e.getMessage());
+        } catch (SQLException e) {
+            status = 500;
+            resposta = Json.objeto("erro", "Erro no banco: " + e.getMessage());
+        } catch (Exception e) {
+            status = 500;
+            resposta = Json.objeto("erro", String.valueOf(e));
+        }
+        byte[] corpo = Json.escrever(resposta).getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+
+    // Devolve {status, corpo}.
+    private Object[] rotear(String rota, HttpExchange troca) throws Exception {
+        return switch (rota) {
+            case "GET /api/saude" -> new Object[]{200, Json.objeto("ok", true)};
+            case "POST /api/login" -> login(lerCorpo(troca));
+            case "POST /api/logout" -> {
+                sessoes.remove(token(troca));
+                yield new Object[]{200, Json.objeto("ok", true)};
+            }
+            case "GET /api/produtos" -> {
+                sessao(troca);
+                Map<String, String> q = parametros(troca);
+                List<Object> lista = new ArrayList<>();
+                for (CatalogoProdutos.Produto p : servico.buscarProdutos(q.getOrDefault("busca", ""), limite(q))) lista.add(produto(p));
+                yield new Object[]{200, lista};
+            }
+            case "GET /api/clientes" -> {
+                sessao(troca);
+                Map<String, String> q = parametros(troca);
+                List<Object> lista = new ArrayList<>();
+                for (CadastroClientes.Cliente c : servico.buscarClientes(q.getOrDefault("busca", ""), limite(q))) {
+                    lista.add(Json.objeto("id", c.id(), "nome", c.nome()));
+                }
+                yield new Object[]{200, lista};
+            }
+            case "POST /api/clientes" -> {
+                sessao(troca);
+                String nome = texto(lerCorpo(troca), "nome");
+                CadastroClientes.Cliente c = servico.inserirCliente(nome);
+                yield new Object[]{201, Json.objeto("id", c.id(), "nome", c.nome())};
+            }
+            case "POST /api/pedidos" -> pedido(sessao(troca), lerCorpo(troca));
+            case "GET /api/balanco" -> {
+                if (!sessao(troca).admin()) throw new ErroHttp(403, "Balanço só para administrador.");
+                Map<String, String> q = parametros(troca);
+                FiltroBalanco filtro = new FiltroBalanco(q.get("cliente"), data(q.get("inicio")), data(q.get("fim")));
+                List<Object> lista = new ArrayList<>();
+                double soma = 0;
+                for (ConsultaBalanco.TotalCliente t : servico.balanco(filtro)) {
+                    lista.add(Json.objeto("clienteId", t.clienteId(), "cliente", t.cliente(), "pedidos", t.pedidos(), "total", t.total()));
+                    soma += t.total();
+                }
+                yield new Object[]{200, Json.objeto("filtro", filtro.descricao(), "total", soma, "clientes", lista)};
+            }
+            case "GET /api/conta" -> {
+                sessao(troca);
+                String id = parametros(troca).get("clienteId");
+                if (id == null) throw new IllegalArgumentException("Parâmetro clienteId obrigatório.");
+                ContaCliente.Conta conta = servico.conta(Integer.parseInt(id));
+                if (conta == null) throw new ErroHttp(404, "Cliente não encontrado.");
+                yield new Object[]{200, conta(conta)};
+            }
+            case "GET /api/contas" -> {
+                if (!sessao(troca).admin()) throw new ErroHttp(403, "Contas só para administrador.");
+                List<Object> lista = new ArrayList<>();
+                for (ContaCliente.Conta c : servico.devedores(limite(parametros(troca)))) lista.add(conta(c));
+                yield new Object[]{200, lista};
+            }
+            case "POST /api/contas/quitar" -> {
+                if (!sessao(troca).admin()) throw new ErroHttp(403, "Quitação só para administrador.");
+                ContaCliente.Quitacao q = servico.quitar(inteiro(lerCorpo(troca), "clienteId"));
+                yield new Object[]{200, Json.objeto("clienteId", q.clienteId(), "pedidos", q.pedidos(), "valor", q.valor())};
+            }
+            default -> throw new ErroHttp(404, "Rota desconhecida: " + rota);
+        };
+    }
+
+    // -------------------- Operações --------------------
+    private Object[] login(Map<String, Object> corpo) throws SQLException {
+        ServicoCantina.Funcionario f = servico.login(texto(corpo, "usuario"), texto(corpo, "senha"));
+        if (f == null) throw new ErroHttp(401, "Usuário ou senha incorretos.");
+        String token = UUID.randomUUID().toString();
+        sessoes.put(token, new Sessao(f, System.currentTimeMillis()));
+        return new Object[]{200, Json.objeto("token", token,
+                "funcionario", Json.objeto("id", f.id(), "nome", f.nome(), "admin", f.admin()))};
+    }
+
+    private Object[] pedido(ServicoCantina.Funcionario funcionario, Map<String, Object> corpo) throws SQLException {
+        int clienteId = inteiro(corpo, "clienteId");
+        String status = corpo.get("status") == null ? "Pago" : texto(corpo, "status");
+        if (!status.equals("Pago") && !status.equals("Em aberto")) throw new IllegalArgumentException("status deve ser \"Pago\" ou \"Em aberto\".");
+        if (!(corpo.get("itens") instanceof List<?> lista) || lista.isEmpty()) throw new IllegalArgumentException("Pedido sem itens.");
+        List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+        for (Object o : lista) {
+            if (!(o instanceof Map<?, ?> item)) throw new IllegalArgumentException("Item inválido.");
+            @SuppressWarnings("unchecked") Map<String, Object> m = (Map<String, Object>) item;
+            int qtd = inteiro(m, "quantidade");
+            if (qtd <= 0) throw new IllegalArgumentException("Quantidade inválida.");
+            itens.add(new MotorPedido.ItemPedido(inteiro(m, "produtoId"), qtd));
+        }
+
+        MotorPedido.ResultadoPedido r = servico.registrarPedido(funcionario.id(), clienteId, status, itens);
+        if (r.sucesso()) return new Object[]{201, Json.objeto("pedidoId", r.pedidoId(), "total", r.total())};
+        List<Object> falhas = new ArrayList<>();
+        for (MotorPedido.FalhaItem f : r.falhas()) {
+            falhas.add(Json.objeto("produtoId", f.produtoId(), "motivo", f.motivo().name(), "disponivel", f.disponivel(),
+                    "mensagem", f.descricao()));
+        }
+        return new Object[]{409, Json.objeto("falhas", falhas)};
+    }
+
+    private static Map<String, Object> conta(ContaCliente.Conta c) {
+        return Json.objeto("clienteId", c.clienteId(), "cliente", c.cliente(), "saldoAberto", c.saldoAberto(),
+                "pedidosAbertos", c.pedidosAbertos(), "ultimaCompra", c.ultimaCompra());
+    }
+
+    private static Map<String, Object> produto(CatalogoProdutos.Produto p) {
+        return Json.objeto("id", p.id(), "nome", p.nome(), "tipo", p.tipo(), "preco", p.preco(),
+                "quantidade", p.quantidade(), "validade", p.validade(), "disponivel", p.disponivel());
+    }
+
+    // -------------------- Requisição --------------------
+    private ServicoCantina.Funcionario sessao(HttpExchange troca) {
+        String token = token(troca);
+        Sessao s = token == null ? null : sessoes.get(token);
+        if (s != null && System.currentTimeMillis() - s.criadaEm() > SESSAO_MAX_MS) {
+            sessoes.remove(token);
+            s = null;
+        }
+        if (s == null) throw new ErroHttp(401, "Faça login (Authorization: Bearer <token>).");
+        return s.funcionario();
+    }
+
+    private static String token(HttpExchange troca) {
+        String auth = troca.getRequestHeaders().getFirst("Authorization");
+        return auth != null && auth.startsWith("Bearer ") ? auth.substring(7).trim() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lerCorpo(HttpExchange troca) throws IOException {
+        String texto;
+        try (InputStream in = troca.getRequestBody()) {
+            texto = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (!(Json.ler(texto) instanceof Map<?, ?> m)) throw new IllegalArgumentException("Esperava um objeto JSON.");
+        return (Map<String, Object>) m;
+    }
+
+    private static Map<String, String> parametros(HttpExchange troca) {
+        Map<String, String> q = new HashMap<>();
+        String bruto = troca.getRequestURI().getRawQuery();
+        if (bruto == null) return q;
+        for (String par : bruto.split("&")) {
+            int i = par.indexOf('=');
+            if (i <= 0) continue;
+            q.put(URLDecoder.decode(par.substring(0, i), StandardCharsets.UTF_8),
+                    URLDecoder.decode(par.substring(i + 1), StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static int limite(Map<String, String> q) {
+        int limite = Integer.parseInt(q.getOrDefault("limite", String.valueOf(SeletorBusca.LIMITE)));
+        return Math.max(1, Math.min(limite, 200));
+    }
+
+    private static LocalDate data(String valor) {
+        if (valor == null || valor.isBlank()) return null;
+        try {
+            return LocalDate.parse(valor);
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Data inválida (use AAAA-MM-DD): " + valor);
+        }
+    }
+
+    private static String texto(Map<String, Object> corpo, String campo) {
+        if (!(corpo.get(campo) instanceof String s) || s.isBlank()) throw new IllegalArgumentException("Campo \"" + campo + "\" obrigatório.");
+        return s.trim();
+    }
+
+    private static int inteiro(Map<String, Object> corpo, String campo) {
+        if (!(corpo.get(campo) instanceof Double d) || d != Math.rint(d)) throw new IllegalArgumentException("Campo \"" + campo + "\" deve ser inteiro.");
+        return d.intValue();
+    }
+}
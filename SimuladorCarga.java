@@ -0,0 +1,243 @@
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// -------------------- Simulador de carga (vários caixas) --------------------
+// Ferramenta sem interface: gera um banco sintético (GeradorDados) e depois põe N
+// caixas para vender ao mesmo tempo durante um tempo fixo. Cada caixa é como um
+// terminal de verdade: conexão própria via TCP (como o AUTO_SERVER), catálogo e
+// clientes em memória, e o mesmo caminho de uma venda no caixa (TelaCaixa):
+// busca do cliente, busca e conferência de cada produto no catálogo, gravação
+// pelo MotorPedido, baixa local ou ressincronização se o estoque mudou.
+// No fim imprime vazão e p50/p95/p99 por operação, e o tempo de banco medido por Metricas.
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar SimuladorCarga
+//        [--pedidos 1000000] [--clientes 3000] [--produtos 150] [--dias 365]
+//        [--terminais 20] [--segundos 60] [--pausa-ms 0] [--semente 42] [--banco DIR]
+// Com --banco apontando para um banco já gerado, a geração é pulada.
+public class SimuladorCarga {
+
+    private static final String[] OPERACOES = {"buscar cliente", "buscar produto", "registrar pedido",
+            "sincronizar catálogo", "venda completa"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) opcoes.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int pedidos = Integer.parseInt(opcoes.getOrDefault("pedidos", "1000000"));
+        int terminais = Integer.parseInt(opcoes.getOrDefault("terminais", "20"));
+        int segundos = Integer.parseInt(opcoes.getOrDefault("segundos", "60"));
+        long pausaMs = Long.parseLong(opcoes.getOrDefault("pausa-ms", "0"));
+        long semente = Long.parseLong(opcoes.getOrDefault("semente", "42"));
+        File dir = new File(opcoes.getOrDefault("banco",
+                new File(System.getProperty("java.io.tmpdir"), "cantina-carga-" + System.nanoTime()).getPath()));
+        dir.mkdirs();
+
+        org.h2.tools.Server servidor = org.h2.tools.Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/" + new File(dir, "cantina").getAbsolutePath()
+                + ";LOCK_TIMEOUT=10000";
+        try {
+            try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+                SistemaCantinaComBalanco.criarEsquema(conn);
+                if (contar(conn, "pedido") == 0) {
+                    GeradorDados.Parametros p = new GeradorDados.Parametros(pedidos,
+                            Integer.parseInt(opcoes.getOrDefault("clientes", "3000")),
+                            Integer.parseInt(opcoes.getOrDefault("produtos", "150")), terminais,
+                            Integer.parseInt(opcoes.getOrDefault("dias", "365")), semente);
+                    System.out.printf("Gerando %,d pedidos em %s%n", pedidos, dir);
+                    long t0 = System.nanoTime();
+                    new GeradorDados(p).gerar(conn);
+                    System.out.printf("Geração: %.1f s%n", (System.nanoTime() - t0) / 1e9);
+                }
+                System.out.printf("Banco: %,d pedidos, %,d itens, %,d clientes, %,d produtos%n", contar(conn, "pedido"),
+                        contar(conn, "pedido_item"), contar(conn, "cliente"), contar(conn, "produto"));
+            }
+            simular(url, terminais, segundos, pausaMs, semente);
+        } finally {
+            servidor.stop();
+        }
+    }
+
+    private static void simular(String url, int terminais, int segundos, long pausaMs, long semente) throws Exception {
+        List<Caixa> caixas = new ArrayList<>();
+        for (int i = 0; i < terminais; i++) caixas.add(new Caixa(url, i + 1, semente + i));
+        for (Caixa c : caixas) c.carregar();
+
+        System.out.printf("%d caixas vendendo por %d s...%n", terminais, segundos);
+        ExecutorService executor = Executors.newFixedThreadPool(terminais);
+        long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        long inicio = System.nanoTime();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (Caixa c : caixas) futuros.add(executor.submit(() -> { c.vender(fim, pausaMs); return null; }));
+        for (Future<?> f : futuros) f.get();
+        double duracao = (System.nanoTime() - inicio) / 1e9;
+        executor.shutdown();
+
+        long gravados = 0, recusados = 0;
+        Map<String, Amostras> todas = new LinkedHashMap<>();
+        for (String op : OPERACOES) todas.put(op, new Amostras());
+        for (Caixa c : caixas) {
+            gravados += c.gravados;
+            recusados += c.recusados;
+            c.amostras.forEach((op, a) -> todas.get(op).juntar(a));
+            c.pool.close();
+        }
+        System.out.printf("%nPedidos gravados: %,d em %.1f s = %.1f pedidos/s (%d caixas)%n", gravados, duracao, gravados / duracao, terminais);
+        System.out.printf("Recusados por estoque: %,d%n%n", recusados);
+        System.out.printf("%-22s %9s %10s %10s %10s %10s%n", "operação", "qtd", "p50 ms", "p95 ms", "p99 ms", "máx ms");
+        todas.forEach((op, a) -> a.imprimir(op));
+
+        // Onde o tempo foi gasto do lado do banco (Metricas: statements e commits por operação).
+        System.out.printf("%n%-22s %9s %10s %10s %10s %10s%n", "banco", "qtd", "p50 ms", "p95 ms", "p99 ms", "máx ms");
+        for (Metricas.Resumo r : Metricas.resumos()) {
+            System.out.printf("%-22s %,9d %10.3f %10.3f %10.3f %10.3f%n", r.nome(), r.quantidade(), r.p50Ms(),
+                    r.p95Ms(), r.p99Ms(), r.maxMs());
+        }
+    }
+
+    private static long contar(Connection conn, String tabela) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabela)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Um terminal: conexão, catálogo e clientes próprios, como um processo separado.
+    private static final class Caixa {
+        final PoolConexoes pool;
+        final int numero;
+        final Random rnd;
+        final CatalogoProdutos catalogo = new CatalogoProdutos();
+        final CadastroClientes clientes = new CadastroClientes();
+        final MotorPedido motor;
+        final Map<String, Amostras> amostras = new HashMap<>();
+        int funcionarioId;
+        List<CadastroClientes.Cliente> nomesClientes;
+        GeradorDados.Zipf frequencia;
+        GeradorDados.Zipf popularidade;
+        long gravados, recusados;
+
+        Caixa(String url, int numero, long semente) {
+            this.pool = new PoolConexoes(url, "sa", "", 1, 30_000);
+            this.numero = numero;
+            this.rnd = new Random(semente);
+            this.motor = new MotorPedido(pool);
+            for (String op : OPERACOES) amostras.put(op, new Amostras());
+        }
+
+        void carregar() throws SQLException {
+            pool.executar(c -> {
+                catalogo.recarregar(c.jdbc());
+                clientes.recarregar(c.jdbc());
+                // Cada caixa com seu funcionário (caixa01, caixa02...), se houver.
+                PreparedStatement ps = c.preparar("SELECT id FROM funcionario ORDER BY id LIMIT 1 OFFSET ?");
+                ps.setInt(1, numero - 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) funcionarioId = rs.getInt(1);
+                }
+                if (funcionarioId == 0) {
+                    try (ResultSet rs = c.preparar("SELECT MIN(id) FROM funcionario").executeQuery()) {
+                        rs.next();
+                        funcionarioId = rs.getInt(1);
+                    }
+                }
+                return null;
+            });
+            nomesClientes = clientes.buscar("", Integer.MAX_VALUE);
+            frequencia = new GeradorDados.Zipf(nomesClientes.size(), 0.8, rnd);
+            popularidade = new GeradorDados.Zipf(catalogo.listarPorNome().size(), 1.1, rnd);
+        }
+
+        void vender(long fim, long pausaMs) throws Exception {
+            long proximaSincronizacao = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < fim) {
+                if (System.nanoTime() >= proximaSincronizacao) {
+                    sincronizar();
+                    proximaSincronizacao = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                }
+                long t0 = System.nanoTime();
+                if (venda()) amostras.get("venda completa").registrar(System.nanoTime() - t0);
+                if (pausaMs > 0) Thread.sleep(pausaMs);
+            }
+        }
+
+        // O caixa digita o começo do nome e do produto, como na tela de pedido.
+        private boolean venda() throws SQLException {
+            CadastroClientes.Cliente alvo = nomesClientes.get(frequencia.proximo());
+            long t = System.nanoTime();
+            List<CadastroClientes.Cliente> achados = clientes.buscar(prefixo(alvo.nome()), SeletorBusca.LIMITE);
+            amostras.get("buscar cliente").registrar(System.nanoTime() - t);
+            int clienteId = achados.stream().filter(c -> c.id() == alvo.id()).findFirst().orElse(alvo).id();
+
+            List<CatalogoProdutos.Produto> produtos = catalogo.listarPorNome();
+            Map<Integer, Integer> carrinho = new LinkedHashMap<>();
+            int qtdItens = 1;
+            while (qtdItens < 8 && rnd.nextDouble() < 0.45) qtdItens++;
+            for (int i = 0; i < qtdItens; i++) {
+                CatalogoProdutos.Produto alvoProduto = produtos.get(popularidade.proximo());
+                t = System.nanoTime();
+                List<CatalogoProdutos.Produto> opcoes = catalogo.buscar(prefixo(alvoProduto.nome()), SeletorBusca.LIMITE);
+                amostras.get("buscar produto").registrar(System.nanoTime() - t);
+                CatalogoProdutos.Produto produto = opcoes.stream().filter(p -> p.id() == alvoProduto.id()).findFirst().orElse(null);
+                if (produto == null || produto.vencido()) continue;
+                int qtd = rnd.nextDouble() < 0.85 ? 1 : 2;
+                if (qtd > produto.quantidade() - carrinho.getOrDefault(produto.id(), 0)) continue;
+                carrinho.merge(produto.id(), qtd, Integer::sum);
+            }
+            if (carrinho.isEmpty()) return false;
+
+            List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+            carrinho.forEach((id, qtd) -> itens.add(new MotorPedido.ItemPedido(id, qtd)));
+            t = System.nanoTime();
+            MotorPedido.ResultadoPedido resultado = motor.registrar(funcionarioId, clienteId, rnd.nextDouble() < 0.12 ? "Em aberto" : "Pago", itens);
+            amostras.get("registrar pedido").registrar(System.nanoTime() - t);
+            if (resultado.sucesso()) {
+                catalogo.aplicarVenda(itens);
+                gravados++;
+            } else {
+                recusados++;
+                sincronizar();
+            }
+            return true;
+        }
+
+        private void sincronizar() throws SQLException {
+            long t = System.nanoTime();
+            pool.executar(c -> {
+                catalogo.sincronizar(c.jdbc());
+                clientes.sincronizar(c.jdbc());
+                return null;
+            });
+            amostras.get("sincronizar catálogo").registrar(System.nanoTime() - t);
+        }
+
+        private String prefixo(String nome) {
+            return nome.substring(0, Math.min(nome.length(), 3 + rnd.nextInt(4)));
+        }
+    }
+
+    // Latências em nanossegundos, num vetor que cresce (um por caixa, sem trava).
+    private static final class Amostras {
+        private long[] valores = new long[1024];
+        private int n;
+
+        void registrar(long nanos) {
+            if (n == valores.length) valores = Arrays.copyOf(valores, n * 2);
+            valores[n++] = nanos;
+        }
+
+        void juntar(Amostras outras) {
+            for (int i = 0; i < outras.n; i++) registrar(outras.valores[i]);
+        }
+
+        void imprimir(String rotulo) {
+            if (n == 0) {
+                System.out.printf("%-22s %9d%n", rotulo, 0);
+                return;
+            }
+            long[] ord = Arrays.copyOf(valores, n);
+            Arrays.sort(ord);
+            System.out.printf("%-22s %,9d %10.3f %10.3f %10.3f %10.3f%n", rotulo, n, ord[n / 2] / 1e6,
+                    ord[(int) (n * 0.95)] / 1e6, ord[(int) (n * 0.99)] / 1e6, ord[n - 1] / 1e6);
+        }
+    }
+}
@@ -4,29 +4,86 @@
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Calendar;
+import java.util.concurrent.CompletableFuture;
 
 
 import org.jdatepicker.impl.*; // JDatePicker
 
 public class SistemaCantinaComBalanco extends JFrame {
 
-    private Connection conn;
+    // Preenchidos pela thread de partida; a EDT só os usa depois de partida terminar.
+    private volatile ServicoCantina servico;
+    private volatile BackupBanco backup;
+    private final CompletableFuture<Void> partida;
+    private JLabel lblPartida;
     private int funcionarioId;
     private String funcionarioLogado;
     private boolean isAdmin;
+    private TelaCaixa telaCaixa;
     private final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // A tela inicial aparece antes de o banco abrir. Abrir o arquivo (AUTO_SERVER),
+    // conferir o esquema e carregar catálogo e clientes levam alguns segundos e rodam
+    // na thread "partida" enquanto o funcionário digita o login; Entrar só espera se
+    // a partida ainda não terminou. Relatórios, gráficos (JFreeChart) e exportação
+    // ficam em classes próprias, carregadas só no primeiro uso.
     public SistemaCantinaComBalanco() {
-        conectarBanco();
-        criarTabelas();
         mostrarTelaInicial();
+        long tela = System.currentTimeMillis();
+        partida = CompletableFuture.runAsync(() -> {
+            conectarBanco();
+            iniciarServico();
+        }, r -> {
+            Thread t = new Thread(r, "partida");
+            t.setDaemon(true);
+            t.start();
+        });
+        // Login liberado; a venda é aquecida em seguida, ainda na thread de partida
+        partida.thenRun(() -> {
+            SwingUtilities.invokeLater(() -> {
+                if (lblPartida != null) lblPartida.setText(textoPartida());
+            });
+            registrarPartida(tela);
+            if (servico != null) servico.aquecer();
+        });
+    }
+
+    // -------------------- Partida --------------------
+    // Tempos desde o início da JVM, em Metricas ("partida · tela", "partida · banco").
+    private static void registrarPartida(long tela) {
+        long pronto = System.currentTimeMillis();
+        long jvm = ManagementFactory.getRuntimeMXBean().getStartTime();
+        Metricas.registrar("partida · tela", (tela - jvm) * 1_000_000L, true);
+        Metricas.registrar("partida · banco", (pronto - jvm) * 1_000_000L, true);
+    }
+
+    private String textoPartida() {
+        if (!partida.isDone()) return "Abrindo o banco...";
+        if (servico == null) return "O banco não abriu.";
+        if (servico.semServidor()) return "Sem servidor: as vendas ficam guardadas neste caixa.";
+        return " ";
+    }
+
+    // Roda acao na EDT quando a partida terminar (na hora, se já terminou).
+    private void quandoAberto(Runnable acao) {
+        if (partida.isDone()) {
+            acao.run();
+        } else {
+            partida.thenRun(() -> SwingUtilities.invokeLater(acao));
+        }
+    }
+
+    private boolean bancoAberto(Component pai) {
+        if (servico != null) return true;
+        JOptionPane.showMessageDialog(pai, "O banco de dados não abriu. Feche e abra o sistema de novo.");
+        return false;
     }
 
     // -------------------- Conexão e criação de tabelas --------------------
@@ -34,68 +91,34 @@ public class SistemaCantinaComBalanco extends JFrame {
         try {
             new File("banco").mkdirs();
             Class.forName("org.h2.Driver");
-            conn = DriverManager.getConnection("jdbc:h2:file:./banco/cantina;AUTO_SERVER=TRUE", "sa", "");
+            // URL, tamanho do pool, ajustes do H2 (LOCK_TIMEOUT, cache...) e fila local vêm de cantina.properties
+            servico = ServicoCantina.deConfiguracao();
+            Metricas.iniciarArquivo(new File("metricas"));
+            // Backup completo e incrementais com o banco aberto (backup.* em cantina.properties)
+            backup = BackupBanco.deConfiguracao(servico.getPool());
+            if (backup != null) backup.iniciar();
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Erro ao conectar ao banco: " + e.getMessage());
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Erro ao conectar ao banco: " + e.getMessage()));
             e.printStackTrace();
         }
     }
 
-    private void criarTabelas() {
-        try (Statement st = conn.createStatement()) {
-            st.execute("""
-                    CREATE TABLE IF NOT EXISTS funcionario (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        usuario VARCHAR(50) UNIQUE,
-                        senha VARCHAR(50),
-                        nome VARCHAR(100),
-                        is_admin INT DEFAULT 0
-                    )
-                    """);
-            st.execute("""
-                    CREATE TABLE IF NOT EXISTS cliente (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        nome VARCHAR(200)
-                    )
-                    """);
-            st.execute("""
-                    CREATE TABLE IF NOT EXISTS produto (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        nome VARCHAR(150),
-                        tipo VARCHAR(30),
-                        preco DOUBLE,
-                        quantidade INT,
-                        validade DATE
-                    )
-                    """);
-            st.execute("""
-                    CREATE TABLE IF NOT EXISTS pedido (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        funcionario_id INT,
-                        cliente_id INT,
-                        valor_total DOUBLE,
-                        forma_pagamento VARCHAR(30),
-                        data TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        FOREIGN KEY (funcionario_id) REFERENCES funcionario(id),
-                        FOREIGN KEY (cliente_id) REFERENCES cliente(id)
-                    )
-                    """);
-            st.execute("""
-                    CREATE TABLE IF NOT EXISTS pedido_item (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        pedido_id INT,
-                        produto_id INT,
-                        quantidade INT,
-                        preco_unitario DOUBLE,
-                        FOREIGN KEY (pedido_id) REFERENCES pedido(id),
-                        FOREIGN KEY (produto_id) REFERENCES produto(id)
-                    )
-                    """);
+    // Tabelas, catálogo e clientes em memória (sincronizados com os outros caixas pelo serviço)
+    private void iniciarServico() {
+        if (servico == null) return;
+        try {
+            servico.iniciar();
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Erro ao criar/verificar tabelas: " + e.getMessage());
+            SwingUtilities.invokeLater(() ->
+                    JOptionPane.showMessageDialog(this, "Erro ao criar/verificar tabelas ou carregar catálogo: " + e.getMessage()));
         }
     }
 
+    // Tabelas e índices: migrações versionadas (ver MigracoesEsquema)
+    static void criarEsquema(Connection conn) throws SQLException {
+        MigracoesEsquema.aplicar(conn);
+    }
+
     // -------------------- Tela inicial --------------------
     private void mostrarTelaInicial() {
         JFrame frame = new JFrame("Cantina - Inicial");
@@ -132,12 +155,18 @@ public class SistemaCantinaComBalanco extends JFrame {
 
         frame.add(center, BorderLayout.CENTER);
 
+        lblPartida = new JLabel(partida == null ? "Abrindo o banco..." : textoPartida(), SwingConstants.CENTER);
+        lblPartida.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+        frame.add(lblPartida, BorderLayout.SOUTH);
+
         btnLogin.addActionListener(e -> {
             frame.dispose();
             mostrarTelaLogin();
         });
 
-        btnCadastrar.addActionListener(e -> cadastrarFuncionarioDialog());
+        btnCadastrar.addActionListener(e -> quandoAberto(() -> {
+            if (bancoAberto(frame)) cadastrarFuncionarioDialog();
+        }));
 
         btnSair.addActionListener(e -> {
             fecharConexao();
@@ -164,22 +193,11 @@ public class SistemaCantinaComBalanco extends JFrame {
         login.add(btnEntrar); login.add(btnVoltar);
 
         btnEntrar.addActionListener(e -> {
-            try (PreparedStatement ps = conn.prepareStatement("SELECT id, nome, is_admin FROM funcionario WHERE usuario = ? AND senha = ?")) {
-                ps.setString(1, txtUser.getText());
-                ps.setString(2, new String(txtPass.getPassword()));
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    funcionarioId = rs.getInt("id");
-                    funcionarioLogado = rs.getString("nome");
-                    isAdmin = rs.getInt("is_admin") == 1;
-                    login.dispose();
-                    mostrarTelaPrincipal();
-                } else {
-                    JOptionPane.showMessageDialog(login, "Usuário ou senha incorretos.");
-                }
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(login, "Erro ao consultar usuário: " + ex.getMessage());
-            }
+            btnEntrar.setEnabled(false);
+            quandoAberto(() -> {
+                btnEntrar.setEnabled(true);
+                if (bancoAberto(login)) entrar(login, txtUser, txtPass);
+            });
         });
 
         btnVoltar.addActionListener(e -> {
@@ -190,6 +208,23 @@ public class SistemaCantinaComBalanco extends JFrame {
         login.setVisible(true);
     }
 
+    private void entrar(JFrame login, JTextField txtUser, JPasswordField txtPass) {
+        try {
+            ServicoCantina.Funcionario f = servico.login(txtUser.getText(), new String(txtPass.getPassword()));
+            if (f != null) {
+                funcionarioId = f.id();
+                funcionarioLogado = f.nome();
+                isAdmin = f.admin();
+                login.dispose();
+                mostrarTelaPrincipal();
+            } else {
+                JOptionPane.showMessageDialog(login, "Usuário ou senha incorretos.");
+            }
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(login, "Erro ao consultar usuário: " + ex.getMessage());
+        }
+    }
+
     // -------------------- Cadastrar funcionário --------------------
     private void cadastrarFuncionarioDialog() {
         String usuario = JOptionPane.showInputDialog("Usuário (login):");
@@ -198,14 +233,10 @@ public class SistemaCantinaComBalanco extends JFrame {
         if (senha == null) return;
         String nome = JOptionPane.showInputDialog("Nome completo:");
         if (nome == null) return;
-        int admin = JOptionPane.showConfirmDialog(null, "É administrador?", "Permissão", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION ? 1 : 0;
-
-        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES (?, ?, ?, ?)")) {
-            ps.setString(1, usuario);
-            ps.setString(2, senha);
-            ps.setString(3, nome);
-            ps.setInt(4, admin);
-            ps.executeUpdate();
+        boolean admin = JOptionPane.showConfirmDialog(null, "É administrador?", "Permissão", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+
+        try {
+            servico.cadastrarFuncionario(usuario, senha, nome, admin);
             JOptionPane.showMessageDialog(this, "Funcionário cadastrado com sucesso!");
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Erro ao cadastrar funcionário: " + e.getMessage());
@@ -215,7 +246,7 @@ public class SistemaCantinaComBalanco extends JFrame {
     // -------------------- Tela principal --------------------
     private void mostrarTelaPrincipal() {
         JFrame tela = new JFrame("Cantina - " + funcionarioLogado);
-        tela.setSize(700, 460);
+        tela.setSize(700, 520);
         tela.setLocationRelativeTo(null);
         tela.setLayout(new BorderLayout());
 
@@ -224,17 +255,20 @@ public class SistemaCantinaComBalanco extends JFrame {
         top.setBorder(BorderFactory.createEmptyBorder(8,8,8,8));
         tela.add(top, BorderLayout.NORTH);
 
-        JPanel painel = new JPanel(new GridLayout(5, 1, 10, 10));
+        JPanel painel = new JPanel(new GridLayout(isAdmin ? 8 : 6, 1, 10, 10));
         painel.setBorder(BorderFactory.createEmptyBorder(20, 120, 20, 120));
 
         JButton btnPedido = new JButton("🛒 Registrar Pedido (Venda)");
         JButton btnProdutos = new JButton("📦 Gerenciar Produtos");
         JButton btnClientes = new JButton("👥 Gerenciar Clientes");
         JButton btnBalanco = new JButton("📊 Balanço de Vendas por Cliente");
+        JButton btnPainel = new JButton("📈 Painel de Vendas");
+        JButton btnMetricas = new JButton("⏱ Métricas de Desempenho");
+        JButton btnArquivo = new JButton("🗄 Arquivar Anos Letivos");
         JButton btnLogout = new JButton("🔙 Logout");
 
         Font btnFont = new Font("SansSerif", Font.BOLD, 16);
-        for (JButton b : new JButton[]{btnPedido, btnProdutos, btnClientes, btnBalanco, btnLogout}) {
+        for (JButton b : new JButton[]{btnPedido, btnProdutos, btnClientes, btnBalanco, btnPainel, btnMetricas, btnArquivo, btnLogout}) {
             b.setFont(btnFont);
             b.setBackground(new Color(255, 170, 100));
             b.setForeground(Color.WHITE);
@@ -245,14 +279,21 @@ public class SistemaCantinaComBalanco extends JFrame {
         painel.add(btnProdutos);
         painel.add(btnClientes);
         painel.add(btnBalanco);
+        painel.add(btnPainel);
+        if (isAdmin) painel.add(btnMetricas);
+        if (isAdmin) painel.add(btnArquivo);
         painel.add(btnLogout);
         tela.add(painel, BorderLayout.CENTER);
 
-        btnPedido.addActionListener(e -> registrarPedidoComValidacaoCliente());
+        btnPedido.addActionListener(e -> abrirCaixa());
         btnProdutos.addActionListener(e -> gerenciarProdutosMenu());
         btnClientes.addActionListener(e -> gerenciarClientesMenu());
         btnBalanco.addActionListener(e -> exibirBalancoClientesComFiltro());
+        btnPainel.addActionListener(e -> exibirPainelVendas());
+        btnMetricas.addActionListener(e -> new TelaMetricas().iniciar());
+        btnArquivo.addActionListener(e -> arquivarAnosLetivos());
         btnLogout.addActionListener(e -> {
+            if (telaCaixa != null) telaCaixa.dispose();
             tela.dispose();
             mostrarTelaInicial();
         });
@@ -264,7 +305,8 @@ public class SistemaCantinaComBalanco extends JFrame {
 
     // --- Produtos ---
     private void gerenciarProdutosMenu() {
-        String[] op = {"Listar produtos", "Adicionar produto", "Editar produto", "Remover produto", "Voltar"};
+        String[] op = {"Listar produtos", "Adicionar produto", "Editar produto", "Remover produto",
+                "Entrada de estoque (lote)", "Lotes vencendo", "Descartar vencidos", "Importar produtos (CSV/XLSX)", "Voltar"};
         while (true) {
             String escolha = (String) JOptionPane.showInputDialog(null, "Gerenciar Produtos", "Produtos",
                     JOptionPane.PLAIN_MESSAGE, null, op, op[0]);
@@ -274,27 +316,27 @@ public class SistemaCantinaComBalanco extends JFrame {
                 case "Adicionar produto" -> adicionarProduto();
                 case "Editar produto" -> editarProduto();
                 case "Remover produto" -> removerProduto();
+                case "Entrada de estoque (lote)" -> entradaLote();
+                case "Lotes vencendo" -> lotesVencendo();
+                case "Descartar vencidos" -> descartarVencidos();
+                case "Importar produtos (CSV/XLSX)" -> importarArquivo(true);
             }
         }
     }
 
     private void listarProdutos() {
-        try (Statement st = conn.createStatement()) {
-            ResultSet rs = st.executeQuery("SELECT id, nome, tipo, preco, quantidade, validade FROM produto ORDER BY nome");
-            StringBuilder sb = new StringBuilder();
-            while (rs.next()) {
-                sb.append(rs.getInt("id")).append(" - ").append(rs.getString("nome"))
-                        .append(" [").append(rs.getString("tipo")).append("] R$ ").append(String.format("%.2f", rs.getDouble("preco")))
-                        .append(" | Qt: ").append(rs.getInt("quantidade"))
-                        .append(" | Val: ").append(rs.getDate("validade") == null ? "--" : rs.getDate("validade").toLocalDate().format(DATE_FMT))
-                        .append("\n");
-            }
-            JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhum produto cadastrado." : sb.toString());
-            area.setEditable(false);
-            JOptionPane.showMessageDialog(this, new JScrollPane(area), "Produtos", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Erro ao listar produtos: " + e.getMessage());
+        StringBuilder sb = new StringBuilder();
+        for (CatalogoProdutos.Produto p : servico.listarProdutos()) {
+            sb.append(p.id()).append(" - ").append(p.nome())
+                    .append(" [").append(p.tipo()).append("] R$ ").append(String.format("%.2f", p.preco()))
+                    .append(" | Qt: ").append(p.quantidade())
+                    .append(" | Val: ").append(p.validade() == null ? "--" : p.validade().format(DATE_FMT));
+            if (p.vencidos() > 0) sb.append(" | Vencidos: ").append(p.vencidos());
+            sb.append("\n");
         }
+        JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhum produto cadastrado." : sb.toString());
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Produtos", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void adicionarProduto() {
@@ -311,45 +353,110 @@ public class SistemaCantinaComBalanco extends JFrame {
             if (qtdStr == null) return;
             int qtd = Integer.parseInt(qtdStr);
             String valStr = JOptionPane.showInputDialog("Validade (yyyy-MM-dd) - deixe em branco se não houver:");
-            java.sql.Date validade = null;
-            if (valStr != null && !valStr.isBlank()) validade = java.sql.Date.valueOf(LocalDate.parse(valStr, DATE_FMT));
-
-            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO produto(nome, tipo, preco, quantidade, validade) VALUES (?, ?, ?, ?, ?)")) {
-                ps.setString(1, nome);
-                ps.setString(2, tipo);
-                ps.setDouble(3, preco);
-                ps.setInt(4, qtd);
-                if (validade != null) ps.setDate(5, validade); else ps.setNull(5, Types.DATE);
-                ps.executeUpdate();
-                JOptionPane.showMessageDialog(this, "Produto adicionado com sucesso!");
-            }
+            LocalDate validade = null;
+            if (valStr != null && !valStr.isBlank()) validade = LocalDate.parse(valStr, DATE_FMT);
+            String codigo = JOptionPane.showInputDialog("Código de barras - leia com o leitor ou deixe em branco:");
+
+            servico.adicionarProduto(nome, tipo, preco, qtd, validade, codigo);
+            JOptionPane.showMessageDialog(this, "Produto adicionado com sucesso!");
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erro ao adicionar produto: " + e.getMessage());
         }
     }
 
     private void editarProduto() {
-        // Implementação similar à adicionarProduto(), omitida
+        try {
+            String idStr = JOptionPane.showInputDialog("ID do produto a editar:");
+            if (idStr == null || idStr.isBlank()) return;
+            CatalogoProdutos.Produto atual = servico.produto(Integer.parseInt(idStr.trim()));
+            if (atual == null) { JOptionPane.showMessageDialog(this, "Produto não encontrado."); return; }
+
+            String nome = JOptionPane.showInputDialog("Nome do produto:", atual.nome());
+            if (nome == null || nome.isBlank()) return;
+            String tipo = (String) JOptionPane.showInputDialog(null, "Tipo:", "Tipo",
+                    JOptionPane.QUESTION_MESSAGE, null, new String[]{"Salgado", "Doce"}, atual.tipo());
+            if (tipo == null) return;
+            String precoStr = JOptionPane.showInputDialog("Preço (ex: 5.50):", String.format(java.util.Locale.ROOT, "%.2f", atual.preco()));
+            if (precoStr == null) return;
+            double preco = Double.parseDouble(precoStr.replace(',', '.'));
+            String atualCodigo = servico.codigoDe(atual.id());
+            String codigo = JOptionPane.showInputDialog("Código de barras - deixe em branco se não houver:",
+                    atualCodigo == null ? "" : atualCodigo);
+            if (codigo == null) return;
+
+            boolean atualizado = servico.editarProduto(atual.id(), nome, tipo, preco, codigo);
+            JOptionPane.showMessageDialog(this, atualizado ? "Produto atualizado." : "Produto não encontrado.");
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Erro ao editar produto: " + e.getMessage());
+        }
     }
 
     private void removerProduto() {
         try {
             String idStr = JOptionPane.showInputDialog("ID do produto a remover:");
             if (idStr == null || idStr.isBlank()) return;
-            int id = Integer.parseInt(idStr);
-            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM produto WHERE id = ?")) {
-                ps.setInt(1, id);
-                int aff = ps.executeUpdate();
-                JOptionPane.showMessageDialog(this, aff > 0 ? "Produto removido." : "Produto não encontrado.");
-            }
+            boolean removido = servico.removerProduto(Integer.parseInt(idStr));
+            JOptionPane.showMessageDialog(this, removido ? "Produto removido." : "Produto não encontrado.");
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erro ao remover produto: " + e.getMessage());
         }
     }
 
+    private void entradaLote() {
+        try {
+            String idStr = JOptionPane.showInputDialog("ID do produto que chegou:");
+            if (idStr == null || idStr.isBlank()) return;
+            CatalogoProdutos.Produto produto = servico.produto(Integer.parseInt(idStr.trim()));
+            if (produto == null) { JOptionPane.showMessageDialog(this, "Produto não encontrado."); return; }
+            String qtdStr = JOptionPane.showInputDialog("Quantidade do lote de " + produto.nome() + ":");
+            if (qtdStr == null) return;
+            int qtd = Integer.parseInt(qtdStr.trim());
+            String valStr = JOptionPane.showInputDialog("Validade do lote (yyyy-MM-dd) - deixe em branco se não houver:");
+            if (valStr == null) return;
+            LocalDate validade = valStr.isBlank() ? null : LocalDate.parse(valStr.trim(), DATE_FMT);
+
+            boolean ok = servico.entradaLote(produto.id(), qtd, validade);
+            JOptionPane.showMessageDialog(this, ok ? "Lote registrado." : "Produto não encontrado.");
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Erro ao registrar lote: " + e.getMessage());
+        }
+    }
+
+    private void lotesVencendo() {
+        try {
+            String diasStr = JOptionPane.showInputDialog("Vencendo nos próximos quantos dias?", 7);
+            if (diasStr == null || diasStr.isBlank()) return;
+            int dias = Integer.parseInt(diasStr.trim());
+            StringBuilder sb = new StringBuilder();
+            for (EstoqueLotes.Lote l : servico.lotesVencendo(dias)) {
+                sb.append(l.validade().format(DATE_FMT)).append("  ").append(l.produtoId()).append(" - ").append(l.produto())
+                        .append(" | Qt: ").append(l.quantidade()).append("\n");
+            }
+            JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhum lote vence nesse prazo." : sb.toString());
+            area.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(area), "Lotes vencendo em até " + dias + " dia(s)",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Erro ao consultar lotes: " + e.getMessage());
+        }
+    }
+
+    private void descartarVencidos() {
+        int resp = JOptionPane.showConfirmDialog(this, "Tirar do estoque todos os lotes vencidos?", "Descartar vencidos",
+                JOptionPane.YES_NO_OPTION);
+        if (resp != JOptionPane.YES_OPTION) return;
+        try {
+            int n = servico.descartarVencidos();
+            JOptionPane.showMessageDialog(this, n == 0 ? "Nenhum lote vencido." : n + " unidade(s) descartada(s).");
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Erro ao descartar vencidos: " + e.getMessage());
+        }
+    }
+
     // --- Clientes ---
     private void gerenciarClientesMenu() {
-        String[] op = {"Listar clientes", "Adicionar cliente", "Editar cliente", "Remover cliente", "Voltar"};
+        String[] op = {"Listar clientes", "Adicionar cliente", "Editar cliente", "Remover cliente",
+                "Importar clientes (CSV/XLSX)", "Contas em aberto", "Quitar conta", "Voltar"};
         while (true) {
             String escolha = (String) JOptionPane.showInputDialog(null, "Gerenciar Clientes", "Clientes",
                     JOptionPane.PLAIN_MESSAGE, null, op, op[0]);
@@ -359,15 +466,17 @@ public class SistemaCantinaComBalanco extends JFrame {
                 case "Adicionar cliente" -> adicionarCliente();
                 case "Editar cliente" -> editarCliente();
                 case "Remover cliente" -> removerCliente();
+                case "Importar clientes (CSV/XLSX)" -> importarArquivo(false);
+                case "Contas em aberto" -> listarContasEmAberto();
+                case "Quitar conta" -> quitarConta();
             }
         }
     }
 
     private void listarClientes() {
-        try (Statement st = conn.createStatement()) {
-            ResultSet rs = st.executeQuery("SELECT id, nome FROM cliente ORDER BY nome");
+        try {
             StringBuilder sb = new StringBuilder();
-            while (rs.next()) sb.append(rs.getInt("id")).append(" - ").append(rs.getString("nome")).append("\n");
+            for (CadastroClientes.Cliente c : servico.listarClientes()) sb.append(c.id()).append(" - ").append(c.nome()).append("\n");
             JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhum cliente cadastrado." : sb.toString());
             area.setEditable(false);
             JOptionPane.showMessageDialog(this, new JScrollPane(area), "Clientes", JOptionPane.INFORMATION_MESSAGE);
@@ -380,11 +489,8 @@ public class SistemaCantinaComBalanco extends JFrame {
         try {
             String nome = JOptionPane.showInputDialog("Nome do cliente:");
             if (nome == null || nome.isBlank()) return;
-            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO cliente(nome) VALUES (?)")) {
-                ps.setString(1, nome);
-                ps.executeUpdate();
-                JOptionPane.showMessageDialog(this, "Cliente adicionado com sucesso!");
-            }
+            servico.inserirCliente(nome.trim());
+            JOptionPane.showMessageDialog(this, "Cliente adicionado com sucesso!");
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Erro ao adicionar cliente: " + e.getMessage());
         }
@@ -398,169 +504,178 @@ public class SistemaCantinaComBalanco extends JFrame {
         try {
             String idStr = JOptionPane.showInputDialog("ID do cliente a remover:");
             if (idStr == null || idStr.isBlank()) return;
-            int id = Integer.parseInt(idStr);
-            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM cliente WHERE id = ?")) {
-                ps.setInt(1, id);
-                int aff = ps.executeUpdate();
-                JOptionPane.showMessageDialog(this, aff > 0 ? "Cliente removido." : "Cliente não encontrado.");
-            }
+            boolean removido = servico.removerCliente(Integer.parseInt(idStr));
+            JOptionPane.showMessageDialog(this, removido ? "Cliente removido." : "Cliente não encontrado.");
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erro ao remover cliente: " + e.getMessage());
         }
     }
 
-    // --- Registrar pedido ---
-    private void registrarPedidoComValidacaoCliente() {
-        try {
-            Integer clienteId = selecionarOuCriarCliente();
-            if (clienteId == null) return;
-
-            List<Integer> produtos = new ArrayList<>();
-            List<Integer> quantidades = new ArrayList<>();
-
-            while (true) {
-                String listagem = listarProdutosTexto();
-                JTextArea area = new JTextArea(listagem);
-                area.setEditable(false);
-                JScrollPane scroll = new JScrollPane(area);
-                scroll.setPreferredSize(new Dimension(550, 300));
-                int op = JOptionPane.showConfirmDialog(null, scroll, "Lista de produtos (OK para escolher; Cancel para finalizar)", JOptionPane.OK_CANCEL_OPTION);
-                if (op != JOptionPane.OK_OPTION) break;
-
-                String pidStr = JOptionPane.showInputDialog("Digite o ID do produto:");
-                if (pidStr == null || pidStr.isBlank()) break;
-                int pid = Integer.parseInt(pidStr);
-
-                try (PreparedStatement ps = conn.prepareStatement("SELECT nome, preco, quantidade, validade FROM produto WHERE id = ?")) {
-                    ps.setInt(1, pid);
-                    ResultSet rs = ps.executeQuery();
-                    if (!rs.next()) { JOptionPane.showMessageDialog(this, "Produto não encontrado."); continue; }
-                    String nome = rs.getString("nome");
-                    int estoque = rs.getInt("quantidade");
-                    Date val = rs.getDate("validade");
-                    if (val != null && val.toLocalDate().isBefore(LocalDate.now())) {
-                        JOptionPane.showMessageDialog(this, "Produto '" + nome + "' vencido — não pode ser vendido.");
-                        continue;
-                    }
-                    String qtdStr = JOptionPane.showInputDialog("Quantidade (em estoque: " + estoque + "):");
-                    if (qtdStr == null || qtdStr.isBlank()) continue;
-                    int qtd = Integer.parseInt(qtdStr);
-                    if (qtd <= 0) { JOptionPane.showMessageDialog(this, "Quantidade inválida."); continue; }
-                    if (qtd > estoque) { JOptionPane.showMessageDialog(this, "Quantidade maior que o estoque."); continue; }
-
-                    produtos.add(pid);
-                    quantidades.add(qtd);
+    // --- Importação em lote ---
+    private void importarArquivo(boolean produtos) {
+        JFileChooser escolha = new JFileChooser();
+        escolha.setDialogTitle(produtos ? "Importar produtos (nome, tipo, preco, quantidade, validade)" : "Importar clientes (nome)");
+        escolha.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Planilha CSV ou XLSX", "csv", "xlsx"));
+        if (escolha.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File arquivo = escolha.getSelectedFile();
+        boolean atualizar = produtos && JOptionPane.showConfirmDialog(this,
+                "Atualizar preço, tipo, quantidade e validade dos produtos que já existem?", "Importar produtos",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+
+        // Fora da EDT: arquivos grandes levam alguns segundos
+        new SwingWorker<ImportadorCadastro.Resultado, Void>() {
+            @Override
+            protected ImportadorCadastro.Resultado doInBackground() throws Exception {
+                return produtos ? servico.importarProdutos(arquivo, atualizar) : servico.importarClientes(arquivo);
+            }
 
-                    int more = JOptionPane.showConfirmDialog(this, "Adicionar mais itens?", "Pedido", JOptionPane.YES_NO_OPTION);
-                    if (more != JOptionPane.YES_OPTION) break;
+            @Override
+            protected void done() {
+                try {
+                    ImportadorCadastro.Resultado r = get();
+                    StringBuilder sb = new StringBuilder(arquivo.getName()).append(": ").append(r.resumo()).append("\n");
+                    for (ImportadorCadastro.ErroLinha erro : r.erros()) {
+                        sb.append("\nLinha ").append(erro.linha()).append(": ").append(erro.mensagem());
+                    }
+                    if (r.comErro() > r.erros().size()) sb.append("\n... e mais ").append(r.comErro() - r.erros().size()).append(" erro(s).");
+                    JTextArea area = new JTextArea(sb.toString(), Math.min(20, 2 + r.erros().size()), 60);
+                    area.setEditable(false);
+                    JOptionPane.showMessageDialog(SistemaCantinaComBalanco.this, new JScrollPane(area), "Importação", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(SistemaCantinaComBalanco.this, "Erro ao importar: " + causa.getMessage());
                 }
             }
+        }.execute();
+    }
 
-            if (produtos.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Nenhum item adicionado ao pedido.");
-                return;
+    // --- Arquivo de anos letivos encerrados ---
+    private void arquivarAnosLetivos() {
+        List<ArquivoPedidos.AnoLetivo> anos;
+        try {
+            anos = servico.anosArquivaveis();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao consultar os anos: " + e.getMessage());
+            return;
+        }
+        if (anos.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Nenhum ano letivo encerrado com pedidos para arquivar.");
+            return;
+        }
+        String[] opcoes = new String[anos.size()];
+        for (int i = 0; i < opcoes.length; i++) {
+            opcoes[i] = anos.get(i).ano() + " (" + anos.get(i).pedidos() + " pedidos)";
+        }
+        String escolha = (String) JOptionPane.showInputDialog(this,
+                "Arquivar os pedidos fechados até o fim do ano letivo:", "Arquivar anos letivos",
+                JOptionPane.PLAIN_MESSAGE, null, opcoes, opcoes[opcoes.length - 1]);
+        if (escolha == null) return;
+        int ultimoAno = anos.get(java.util.Arrays.asList(opcoes).indexOf(escolha)).ano();
+        if (JOptionPane.showConfirmDialog(this, "Os pedidos pagos até 31/12/" + ultimoAno + " saem das tabelas do dia a dia.\n"
+                        + "O balanço continua mostrando esses anos. Pedidos em aberto ficam onde estão.\nContinuar?",
+                "Arquivar anos letivos", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) return;
+
+        // Em lotes, fora da EDT; "Interromper" para depois do lote em curso.
+        JDialog janela = new JDialog(this, "Arquivando até " + ultimoAno, false);
+        JLabel andamento = new JLabel("Iniciando...", SwingConstants.CENTER);
+        JProgressBar barra = new JProgressBar();
+        barra.setIndeterminate(true);
+        JButton btnInterromper = new JButton("Interromper");
+        java.util.concurrent.atomic.AtomicBoolean parar = new java.util.concurrent.atomic.AtomicBoolean();
+        btnInterromper.addActionListener(e -> {
+            parar.set(true);
+            btnInterromper.setEnabled(false);
+        });
+        janela.setLayout(new BorderLayout(10, 10));
+        janela.add(andamento, BorderLayout.NORTH);
+        janela.add(barra, BorderLayout.CENTER);
+        janela.add(btnInterromper, BorderLayout.SOUTH);
+        janela.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        janela.setSize(360, 140);
+        janela.setLocationRelativeTo(this);
+        janela.setVisible(true);
+
+        new SwingWorker<ArquivoPedidos.Resultado, String>() {
+            @Override
+            protected ArquivoPedidos.Resultado doInBackground() throws Exception {
+                return servico.arquivar(ultimoAno, (pedidos, itens) -> {
+                    publish(pedidos + " pedidos e " + itens + " itens arquivados...");
+                    return !parar.get();
+                });
             }
 
-            double total = 0;
-            for (int i = 0; i < produtos.size(); i++) {
-                try (PreparedStatement ps = conn.prepareStatement("SELECT preco FROM produto WHERE id = ?")) {
-                    ps.setInt(1, produtos.get(i));
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) total += rs.getDouble("preco") * quantidades.get(i);
-                }
+            @Override
+            protected void process(List<String> mensagens) {
+                andamento.setText(mensagens.get(mensagens.size() - 1));
             }
 
-            // Status de pagamento: Pago ou Em aberto
-            String[] statusOpcoes = {"Pago", "Em aberto"};
-            String status = (String) JOptionPane.showInputDialog(null, "Status do pagamento:", "Pagamento",
-                    JOptionPane.QUESTION_MESSAGE, null, statusOpcoes, statusOpcoes[0]);
-            if (status == null) return;
-
-            conn.setAutoCommit(false);
-            try (PreparedStatement psPedido = conn.prepareStatement(
-                    "INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento) VALUES (?, ?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS)) {
-                psPedido.setInt(1, funcionarioId);
-                psPedido.setInt(2, clienteId);
-                psPedido.setDouble(3, total);
-                psPedido.setString(4, status); // <-- aqui salvamos o status em vez da forma
-                psPedido.executeUpdate();
-
-                ResultSet gen = psPedido.getGeneratedKeys();
-                gen.next();
-                int pedidoId = gen.getInt(1);
-
-                for (int i = 0; i < produtos.size(); i++) {
-                    int pid = produtos.get(i);
-                    int qtd = quantidades.get(i);
-                    double precoUnit = getPrecoProduto(pid);
-
-                    try (PreparedStatement psItem = conn.prepareStatement("INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario) VALUES (?, ?, ?, ?)")) {
-                        psItem.setInt(1, pedidoId);
-                        psItem.setInt(2, pid);
-                        psItem.setInt(3, qtd);
-                        psItem.setDouble(4, precoUnit);
-                        psItem.executeUpdate();
-                    }
-
-                    try (PreparedStatement up = conn.prepareStatement("UPDATE produto SET quantidade = quantidade - ? WHERE id = ?")) {
-                        up.setInt(1, qtd);
-                        up.setInt(2, pid);
-                        up.executeUpdate();
-                    }
+            @Override
+            protected void done() {
+                janela.dispose();
+                try {
+                    ArquivoPedidos.Resultado r = get();
+                    JOptionPane.showMessageDialog(SistemaCantinaComBalanco.this, r.pedidos() + " pedidos e " + r.itens()
+                            + " itens arquivados." + (r.interrompido() ? "\nInterrompido: arquive de novo para continuar." : ""));
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(SistemaCantinaComBalanco.this, "Erro ao arquivar: " + causa.getMessage());
                 }
-
-                conn.commit();
-                JOptionPane.showMessageDialog(this, "Pedido registrado com sucesso! Total: R$ " + String.format("%.2f", total));
-            } catch (SQLException ex) {
-                conn.rollback();
-                JOptionPane.showMessageDialog(this, "Erro ao registrar pedido: " + ex.getMessage());
-            } finally {
-                conn.setAutoCommit(true);
             }
-
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Erro: " + e.getMessage());
-        }
+        }.execute();
     }
 
-
-    private int selecionarOuCriarCliente() {
+    // --- Conta do cliente (fiado) ---
+    private void listarContasEmAberto() {
         try {
-            StringBuilder sb = new StringBuilder("Clientes:\n");
-            Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery("SELECT id, nome FROM cliente ORDER BY nome");
-            while (rs.next()) sb.append(rs.getInt("id")).append(" - ").append(rs.getString("nome")).append("\n");
-            String idStr = JOptionPane.showInputDialog(sb + "\nDigite ID do cliente ou 0 para criar novo:");
-            if (idStr == null) return -1;
-            int id = Integer.parseInt(idStr);
-            if (id == 0) {
-                adicionarCliente();
-                return selecionarOuCriarCliente();
+            StringBuilder sb = new StringBuilder();
+            double total = 0;
+            for (ContaCliente.Conta c : servico.devedores(Integer.MAX_VALUE)) {
+                sb.append(c.clienteId()).append(" - ").append(c.cliente())
+                        .append(" | R$ ").append(String.format("%.2f", c.saldoAberto()))
+                        .append(" | ").append(c.pedidosAbertos()).append(" pedido(s)")
+                        .append(" | Última compra: ").append(c.ultimaCompra() == null ? "--" : c.ultimaCompra().toLocalDateTime().toLocalDate())
+                        .append("\n");
+                total += c.saldoAberto();
             }
-            return id;
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Erro ao selecionar cliente: " + e.getMessage());
-            return -1;
+            if (sb.length() > 0) sb.append("\nTotal em aberto: R$ ").append(String.format("%.2f", total));
+            JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhuma conta em aberto." : sb.toString());
+            area.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(area), "Contas em aberto", JOptionPane.INFORMATION_MESSAGE);
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao listar contas: " + e.getMessage());
         }
     }
 
-    private String listarProdutosTexto() throws SQLException {
-        StringBuilder sb = new StringBuilder("Produtos:\n");
-        Statement st = conn.createStatement();
-        ResultSet rs = st.executeQuery("SELECT id, nome, preco, quantidade FROM produto ORDER BY nome");
-        while (rs.next()) sb.append(rs.getInt("id")).append(" - ").append(rs.getString("nome"))
-                .append(" R$ ").append(String.format("%.2f", rs.getDouble("preco")))
-                .append(" | Qt: ").append(rs.getInt("quantidade")).append("\n");
-        return sb.toString();
+    private void quitarConta() {
+        CadastroClientes.Cliente cliente = new SeletorBusca<CadastroClientes.Cliente>(this, "Cliente a quitar",
+                texto -> servico.buscarClientes(texto, SeletorBusca.LIMITE),
+                c -> c.id() + " - " + c.nome(), null, null).abrir();
+        if (cliente == null) return;
+        try {
+            ContaCliente.Conta conta = servico.conta(cliente.id());
+            if (conta == null || conta.pedidosAbertos() == 0) {
+                JOptionPane.showMessageDialog(this, cliente.nome() + " não tem pedidos em aberto.");
+                return;
+            }
+            int ok = JOptionPane.showConfirmDialog(this, String.format("%s deve R$ %.2f em %d pedido(s).%nMarcar todos como pagos?",
+                    conta.cliente(), conta.saldoAberto(), conta.pedidosAbertos()), "Quitar conta", JOptionPane.YES_NO_OPTION);
+            if (ok != JOptionPane.YES_OPTION) return;
+            ContaCliente.Quitacao q = servico.quitar(cliente.id());
+            JOptionPane.showMessageDialog(this, String.format("%d pedido(s) quitado(s), R$ %.2f.", q.pedidos(), q.valor()));
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao quitar conta: " + e.getMessage());
+        }
     }
 
-    private double getPrecoProduto(int id) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT preco FROM produto WHERE id = ?")) {
-            ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-            return rs.next() ? rs.getDouble("preco") : 0;
+    // --- Registrar pedido ---
+    // Uma tela de caixa por sessão: clicar de novo só a traz para a frente.
+    private void abrirCaixa() {
+        if (telaCaixa != null && telaCaixa.isDisplayable()) {
+            telaCaixa.toFront();
+            return;
         }
+        telaCaixa = new TelaCaixa(servico, funcionarioId, funcionarioLogado);
+        telaCaixa.iniciar();
     }
 
     // --- Balanço com calendário ---
@@ -584,61 +699,12 @@ public class SistemaCantinaComBalanco extends JFrame {
 
             java.util.Date dataIniUtil = (java.util.Date) datePickerIni.getModel().getValue();
             java.util.Date dataFimUtil = (java.util.Date) datePickerFim.getModel().getValue();
+            FiltroBalanco filtro = new FiltroBalanco(clienteNome,
+                    dataIniUtil == null ? null : new java.sql.Date(dataIniUtil.getTime()).toLocalDate(),
+                    dataFimUtil == null ? null : new java.sql.Date(dataFimUtil.getTime()).toLocalDate());
 
-            // Query detalhada por cliente e pedido
-            StringBuilder sql = new StringBuilder(
-                    "SELECT c.nome AS cliente, p.id AS pedido_id, p.forma_pagamento, pr.nome AS produto, pi.quantidade, pi.preco_unitario " +
-                            "FROM pedido p " +
-                            "JOIN cliente c ON p.cliente_id = c.id " +
-                            "JOIN pedido_item pi ON pi.pedido_id = p.id " +
-                            "JOIN produto pr ON pi.produto_id = pr.id " +
-                            "WHERE 1=1"
-            );
-
-            if (clienteNome != null && !clienteNome.isBlank()) sql.append(" AND c.nome LIKE ?");
-            if (dataIniUtil != null) sql.append(" AND p.data >= ?");
-            if (dataFimUtil != null) sql.append(" AND p.data <= ?");
-
-            sql.append(" ORDER BY c.nome, p.id");
-
-            PreparedStatement ps = conn.prepareStatement(sql.toString());
-            int idx = 1;
-            if (clienteNome != null && !clienteNome.isBlank()) ps.setString(idx++, "%" + clienteNome + "%");
-            if (dataIniUtil != null) ps.setDate(idx++, new java.sql.Date(dataIniUtil.getTime()));
-            if (dataFimUtil != null) ps.setDate(idx++, new java.sql.Date(dataFimUtil.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-            StringBuilder sb = new StringBuilder("Balanço de Vendas Detalhado:\n\n");
-
-            String clienteAtual = "";
-            int pedidoAtual = -1;
-
-            while (rs.next()) {
-                String cliente = rs.getString("cliente");
-                int pedidoId = rs.getInt("pedido_id");
-                String status = rs.getString("forma_pagamento");
-                String produto = rs.getString("produto");
-                int qtd = rs.getInt("quantidade");
-                double preco = rs.getDouble("preco_unitario");
-
-                if (!cliente.equals(clienteAtual)) {
-                    sb.append("\nCliente: ").append(cliente).append("\n");
-                    clienteAtual = cliente;
-                    pedidoAtual = -1;
-                }
-                if (pedidoId != pedidoAtual) {
-                    sb.append("  Pedido #").append(pedidoId).append(" (").append(status).append(")\n");
-                    pedidoAtual = pedidoId;
-                }
-                sb.append("    - ").append(produto).append(" x").append(qtd).append(" = R$ ").append(String.format("%.2f", preco * qtd)).append("\n");
-            }
-
-            JTextArea area = new JTextArea(sb.length() == 0 ? "Nenhum dado encontrado." : sb.toString());
-            area.setEditable(false);
-            JOptionPane.showMessageDialog(this, new JScrollPane(area));
-
-            int salvar = JOptionPane.showConfirmDialog(this, "Deseja exportar o balanço em CSV?", "Exportar", JOptionPane.YES_NO_OPTION);
-            if (salvar == JOptionPane.YES_OPTION) exportarBalancoCSV(sb.toString());
+            // O balanço roda fora da EDT, com conexões do pool, para não travar o caixa
+            new TelaBalanco(servico, filtro).iniciar();
 
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erro ao gerar balanço: " + e.getMessage());
@@ -646,26 +712,18 @@ public class SistemaCantinaComBalanco extends JFrame {
     }
 
 
-    private void exportarBalancoCSV(String dados) {
-        try {
-            File f = new File("balanco_clientes.csv");
-            try (PrintWriter pw = new PrintWriter(new FileWriter(f))) {
-                pw.println("Cliente,Total");
-                for (String linha : dados.split("\n")) {
-                    if (linha.isBlank() || linha.startsWith("Balanço")) continue;
-                    String[] partes = linha.split(": R\\$ ");
-                    if (partes.length == 2) pw.println(partes[0].trim() + "," + partes[1].trim());
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Exportado para " + f.getAbsolutePath());
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Erro ao exportar CSV: " + e.getMessage());
-        }
+    // --- Painel de gráficos ---
+    private void exibirPainelVendas() {
+        new PainelVendas(servico).iniciar();
     }
 
     // -------------------- Encerrar --------------------
+    // Saindo durante a partida, espera o banco terminar de abrir para fechá-lo inteiro.
     private void fecharConexao() {
-        try { if (conn != null) conn.close(); } catch (SQLException ignored) {}
+        partida.join();
+        if (backup != null) backup.close();
+        if (servico != null) servico.close();
+        Metricas.pararArquivo(new File("metricas"));
     }
 
     // -------------------- MAIN --------------------
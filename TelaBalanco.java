@@ -0,0 +1,214 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// -------------------- Tela do balanço --------------------
+// Os totais são calculados num SwingWorker (ou vêm do cache do serviço, se o mesmo
+// filtro já foi calculado e nada mudou); pedidos e itens entram em tabelas
+// paginadas, carregadas sob demanda. O botão Cancelar (ou fechar a janela)
+// interrompe a consulta em andamento. As consultas usam conexões do pool de
+// relatórios (a cópia de relatórios, se houver; ver ServicoCantina.poolRelatorios),
+// obtido no início do cálculo, fora da EDT; o rodapé mostra de quando são os dados.
+public class TelaBalanco extends JFrame {
+
+    private static final int TAMANHO_PAGINA = 200;
+
+    private final ServicoCantina servico;
+    private final FiltroBalanco filtro;
+    private volatile ConsultaBalanco consulta;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "balanco-paginas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final JLabel status = new JLabel("Calculando totais...");
+    private final JProgressBar progresso = new JProgressBar();
+    private final JButton btnCancelar = new JButton("Cancelar");
+    private final JButton btnExportar = new JButton("Exportar CSV");
+    private final JButton btnExportarExcel = new JButton("Exportar Excel");
+    private final JLabel totalGeral = new JLabel(" ");
+    private final JLabel origem = new JLabel(" ");
+    private final DefaultTableModel modeloClientes = new DefaultTableModel(new String[]{"Cliente", "Pedidos", "Total (R$)"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final ModeloTabelaPaginada<ConsultaBalanco.TotalPedido> modeloPedidos;
+    private final ModeloTabelaPaginada<ConsultaBalanco.LinhaDetalhe> modeloItens;
+
+    private SwingWorker<Void, Void> worker;
+    private boolean encerrada;
+
+    public TelaBalanco(ServicoCantina servico, FiltroBalanco filtro) {
+        super("Balanço de Vendas por Cliente");
+        this.servico = servico;
+        this.filtro = filtro;
+
+        modeloPedidos = new ModeloTabelaPaginada<>(
+                new String[]{"Cliente", "Pedido", "Status", "Data", "Itens", "Total (R$)"},
+                p -> new Object[]{p.cliente(), p.pedidoId(), p.status(), p.data(), p.itens(), String.format("%.2f", p.total())},
+                (offset, limite) -> Metricas.medir("balanço página", () -> consulta.pedidos(offset, limite)),
+                executor, TAMANHO_PAGINA, this::mostrarErro);
+        modeloItens = new ModeloTabelaPaginada<>(
+                new String[]{"Cliente", "Pedido", "Status", "Produto", "Qtd", "Preço unit.", "Total (R$)"},
+                d -> new Object[]{d.cliente(), d.pedidoId(), d.status(), d.produto(), d.quantidade(),
+                        String.format("%.2f", d.precoUnitario()), String.format("%.2f", d.totalLinha())},
+                (offset, limite) -> Metricas.medir("balanço página", () -> consulta.detalhes(offset, limite)),
+                executor, TAMANHO_PAGINA, this::mostrarErro);
+
+        setSize(900, 560);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JLabel titulo = new JLabel(filtro.descricao(), SwingConstants.CENTER);
+        titulo.setFont(new Font("SansSerif", Font.BOLD, 14));
+        titulo.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        add(titulo, BorderLayout.NORTH);
+
+        JTabbedPane abas = new JTabbedPane();
+        abas.addTab("Por cliente", new JScrollPane(new JTable(modeloClientes)));
+        abas.addTab("Por pedido", new JScrollPane(new JTable(modeloPedidos)));
+        abas.addTab("Itens", new JScrollPane(new JTable(modeloItens)));
+        add(abas, BorderLayout.CENTER);
+
+        JPanel rodape = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        progresso.setIndeterminate(true);
+        btnExportar.setEnabled(false);
+        btnExportarExcel.setEnabled(false);
+        rodape.add(progresso);
+        rodape.add(status);
+        rodape.add(btnCancelar);
+        rodape.add(btnExportar);
+        rodape.add(btnExportarExcel);
+        rodape.add(totalGeral);
+        rodape.add(origem);
+        add(rodape, BorderLayout.SOUTH);
+
+        btnCancelar.addActionListener(e -> cancelar());
+        btnExportar.addActionListener(e -> exportar("balanco_clientes.csv", ExportadorBalanco::exportarCSV));
+        btnExportarExcel.addActionListener(e -> exportar("balanco_clientes.xlsx", ExportadorBalanco::exportarXLSX));
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                encerrar();
+            }
+        });
+    }
+
+    public void iniciar() {
+        setVisible(true);
+        worker = new SwingWorker<>() {
+            private List<ConsultaBalanco.TotalCliente> clientes;
+            private int pedidos;
+            private int itens;
+
+            @Override
+            protected Void doInBackground() throws Exception {
+                // A primeira consulta do dia pode esperar a cópia de relatórios ser criada ou posta em dia.
+                String antes = servico.origemRelatorios();
+                if (antes != null) SwingUtilities.invokeLater(() -> origem.setText(antes));
+                consulta = servico.consultaBalanco(filtro);
+                ConsultaBalanco.Resumo resumo = servico.resumoBalanco(consulta);
+                clientes = resumo.totais();
+                pedidos = resumo.pedidos();
+                itens = resumo.itens();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                progresso.setIndeterminate(false);
+                btnCancelar.setEnabled(false);
+                String dados = servico.origemRelatorios();
+                if (dados != null) origem.setText(dados);
+                if (isCancelled()) {
+                    status.setText("Consulta cancelada.");
+                    return;
+                }
+                try {
+                    get();
+                } catch (Exception e) {
+                    status.setText("Erro ao gerar balanço.");
+                    mostrarErro(e.getCause() instanceof Exception c ? c : e);
+                    return;
+                }
+                double soma = 0;
+                for (ConsultaBalanco.TotalCliente t : clientes) {
+                    modeloClientes.addRow(new Object[]{t.cliente(), t.pedidos(), String.format("%.2f", t.total())});
+                    soma += t.total();
+                }
+                modeloPedidos.setLinhas(pedidos);
+                modeloItens.setLinhas(itens);
+                status.setText(clientes.isEmpty() ? "Nenhum dado encontrado." : pedidos + " pedidos, " + itens + " itens.");
+                totalGeral.setText("Total geral: R$ " + String.format("%.2f", soma));
+                btnExportar.setEnabled(!clientes.isEmpty());
+                btnExportarExcel.setEnabled(!clientes.isEmpty());
+            }
+        };
+        worker.execute();
+    }
+
+    private interface Exportacao {
+        long exportar(ConsultaBalanco consulta, File destino) throws Exception;
+    }
+
+    // Exportação em segundo plano, direto do cursor para o arquivo.
+    private void exportar(String arquivoPadrao, Exportacao exportacao) {
+        JFileChooser escolha = new JFileChooser();
+        escolha.setSelectedFile(new File(arquivoPadrao));
+        if (escolha.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File destino = escolha.getSelectedFile();
+
+        btnExportar.setEnabled(false);
+        btnExportarExcel.setEnabled(false);
+        status.setText("Exportando " + destino.getName() + "...");
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return Metricas.medir("exportação", () -> exportacao.exportar(consulta, destino));
+            }
+
+            @Override
+            protected void done() {
+                btnExportar.setEnabled(true);
+                btnExportarExcel.setEnabled(true);
+                try {
+                    long linhas = get();
+                    status.setText(linhas + " linhas exportadas.");
+                    JOptionPane.showMessageDialog(TelaBalanco.this, "Exportado para " + destino.getAbsolutePath());
+                } catch (Exception e) {
+                    status.setText("Erro ao exportar.");
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    if (!encerrada) JOptionPane.showMessageDialog(TelaBalanco.this, "Erro ao exportar: " + causa.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void cancelar() {
+        if (worker != null && !worker.isDone()) {
+            worker.cancel(true);
+            ConsultaBalanco c = consulta;
+            if (c != null) c.cancelar();
+        }
+    }
+
+    private void encerrar() {
+        encerrada = true;
+        cancelar();
+        executor.shutdownNow();
+    }
+
+    private void mostrarErro(Exception e) {
+        if (encerrada) return;
+        JOptionPane.showMessageDialog(this, "Erro ao gerar balanço: " + e.getMessage());
+    }
+}
@@ -0,0 +1,390 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// -------------------- Tela do caixa (venda pelo teclado) --------------------
+// Fica aberta o turno todo. O carrinho é só memória (tabela + total) e cada item
+// entra por um campo único: código de barras (o leitor digita e manda Enter) ou id
+// do produto, com a quantidade opcional na frente ("3*7891234567890", "2x15").
+// Texto que não é código nem id abre a busca por nome. A conferência (vencido,
+// estoque menos o que já está no carrinho) é feita no catálogo em memória; o banco
+// só é usado ao finalizar, pela fila de gravação, e o caixa já começa a próxima venda.
+// Teclas: F2 cliente, F4 Pago/Em aberto, F9 finaliza, Delete com o campo vazio tira
+// o item selecionado (ou o último), Esc limpa a venda.
+// O rodapé mostra as vendas confirmadas por minuto neste caixa; o tempo de cada venda
+// (do primeiro item ao F9) vai para Metricas como "caixa · venda".
+public class TelaCaixa extends JFrame {
+
+    private static final Pattern ENTRADA = Pattern.compile("(?:(\\d{1,3})\\s*[*xX]\\s*)?(.+)");
+    private static final int MAX_QUANTIDADE = 999;
+    private static final long JANELA_RITMO_MS = 10 * 60_000;
+    private static final Color COR_ERRO = new Color(170, 0, 0);
+
+    private static final class Linha {
+        final CatalogoProdutos.Produto produto;
+        int quantidade;
+
+        Linha(CatalogoProdutos.Produto produto, int quantidade) {
+            this.produto = produto;
+            this.quantidade = quantidade;
+        }
+    }
+
+    private final ServicoCantina servico;
+    private final int funcionarioId;
+    private final List<Linha> carrinho = new ArrayList<>();
+    private final ModeloCarrinho modelo = new ModeloCarrinho();
+    private final JTable tabela = new JTable(modelo);
+    private final JTextField entrada = new JTextField(24);
+    private final JLabel lblCliente = new JLabel();
+    private final JComboBox<String> cbStatus = new JComboBox<>(new String[]{"Pago", ContaCliente.EM_ABERTO});
+    private final JLabel lblTotal = new JLabel();
+    private final JLabel lblMensagem = new JLabel(" ");
+    private final JLabel lblRitmo = new JLabel(" ");
+    private final Deque<Long> confirmadas = new ArrayDeque<>();
+    private final Timer timer = new Timer(1000, e -> atualizarRitmo());
+    private CadastroClientes.Cliente cliente;
+    private long inicioVenda;
+    private int gravando;
+    private int vendasTurno;
+
+    public TelaCaixa(ServicoCantina servico, int funcionarioId, String funcionario) {
+        super("Caixa - " + funcionario);
+        this.servico = servico;
+        this.funcionarioId = funcionarioId;
+        setSize(760, 560);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        setLayout(new BorderLayout(6, 6));
+
+        Font grande = new Font("SansSerif", Font.BOLD, 18);
+        entrada.setFont(grande);
+        lblCliente.setFont(grande);
+        lblTotal.setFont(new Font("SansSerif", Font.BOLD, 28));
+        tabela.setFont(new Font("SansSerif", Font.PLAIN, 16));
+        tabela.setRowHeight(24);
+        tabela.setFocusable(false);
+        tabela.getColumnModel().getColumn(1).setPreferredWidth(320);
+
+        JPanel topo = new JPanel(new GridLayout(2, 1, 4, 4));
+        topo.setBorder(BorderFactory.createEmptyBorder(8, 8, 0, 8));
+        JPanel linhaCliente = new JPanel(new BorderLayout(6, 0));
+        JButton btnCliente = new JButton("Cliente (F2)");
+        btnCliente.setFocusable(false);
+        btnCliente.addActionListener(e -> escolherCliente());
+        cbStatus.setFocusable(false);
+        linhaCliente.add(lblCliente, BorderLayout.CENTER);
+        JPanel botoesCliente = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        botoesCliente.add(new JLabel("Pagamento (F4):"));
+        botoesCliente.add(cbStatus);
+        botoesCliente.add(btnCliente);
+        linhaCliente.add(botoesCliente, BorderLayout.EAST);
+        JPanel linhaEntrada = new JPanel(new BorderLayout(6, 0));
+        linhaEntrada.add(new JLabel("Código / ID  (qtd*código):"), BorderLayout.WEST);
+        linhaEntrada.add(entrada, BorderLayout.CENTER);
+        topo.add(linhaCliente);
+        topo.add(linhaEntrada);
+        add(topo, BorderLayout.NORTH);
+
+        add(new JScrollPane(tabela), BorderLayout.CENTER);
+
+        JPanel sul = new JPanel(new BorderLayout(6, 4));
+        sul.setBorder(BorderFactory.createEmptyBorder(0, 8, 8, 8));
+        JButton btnFinalizar = new JButton("Finalizar (F9)");
+        btnFinalizar.setFont(grande);
+        btnFinalizar.setFocusable(false);
+        btnFinalizar.addActionListener(e -> finalizar());
+        JPanel totalEFinalizar = new JPanel(new BorderLayout(12, 0));
+        totalEFinalizar.add(lblTotal, BorderLayout.CENTER);
+        totalEFinalizar.add(btnFinalizar, BorderLayout.EAST);
+        JPanel rodape = new JPanel(new BorderLayout(6, 0));
+        rodape.add(lblMensagem, BorderLayout.CENTER);
+        rodape.add(lblRitmo, BorderLayout.EAST);
+        sul.add(totalEFinalizar, BorderLayout.NORTH);
+        sul.add(rodape, BorderLayout.SOUTH);
+        add(sul, BorderLayout.SOUTH);
+
+        entrada.addActionListener(e -> adicionar(entrada.getText()));
+        // Com o campo vazio, Delete tira item do carrinho; com texto, apaga como sempre.
+        Action apagarLetra = entrada.getActionMap().get(javax.swing.text.DefaultEditorKit.deleteNextCharAction);
+        entrada.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "caixa-apagar");
+        entrada.getActionMap().put("caixa-apagar", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                if (entrada.getText().isEmpty()) removerItem(); else apagarLetra.actionPerformed(e);
+            }
+        });
+        tecla(KeyEvent.VK_F2, this::escolherCliente);
+        tecla(KeyEvent.VK_F4, () -> cbStatus.setSelectedIndex(1 - cbStatus.getSelectedIndex()));
+        tecla(KeyEvent.VK_F9, this::finalizar);
+        tecla(KeyEvent.VK_DELETE, this::removerItem);
+        tecla(KeyEvent.VK_ESCAPE, this::cancelarVenda);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                if (carrinho.isEmpty() || confirmar("Descartar a venda em andamento e fechar o caixa?")) dispose();
+            }
+
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+            }
+        });
+        novaVenda();
+    }
+
+    public void iniciar() {
+        timer.start();
+        setVisible(true);
+        entrada.requestFocusInWindow();
+    }
+
+    // -------------------- Carrinho --------------------
+    private void adicionar(String texto) {
+        entrada.setText("");
+        Matcher m = ENTRADA.matcher(texto.trim());
+        if (!m.matches()) return;
+        int quantidade = m.group(1) == null ? 1 : Integer.parseInt(m.group(1));
+        String chave = m.group(2).trim();
+        if (quantidade <= 0) { erro("Quantidade inválida."); return; }
+
+        CatalogoProdutos.Produto produto = servico.produtoPorCodigo(chave);
+        if (produto == null && chave.chars().allMatch(Character::isDigit)) {
+            if (chave.length() > 9) { erro("Código " + chave + " não cadastrado."); return; }
+            produto = servico.produto(Integer.parseInt(chave));
+            if (produto == null) { erro("Nenhum produto com código ou id " + chave + "."); return; }
+        }
+        if (produto == null) {
+            produto = new SeletorBusca<CatalogoProdutos.Produto>(this, "Produto",
+                    t -> servico.buscarProdutos(t, SeletorBusca.LIMITE),
+                    p -> p.id() + " - " + p.nome() + "  R$ " + String.format("%.2f", p.preco()) + " | Qt: " + p.quantidade()
+                            + (p.vencido() ? " (vencido)" : p.quantidade() <= 0 ? " (sem estoque)" : ""),
+                    null, null).abrir(chave);
+            if (produto == null) return;
+        }
+
+        if (produto.vencido()) { erro("'" + produto.nome() + "' está vencido — não pode ser vendido."); return; }
+        Linha linha = null;
+        for (Linha l : carrinho) if (l.produto.id() == produto.id()) linha = l;
+        int noCarrinho = linha == null ? 0 : linha.quantidade;
+        int estoque = produto.quantidade() - noCarrinho;
+        if (quantidade > estoque) {
+            erro("'" + produto.nome() + "': só há " + Math.max(estoque, 0) + " em estoque além do carrinho.");
+            return;
+        }
+        if (noCarrinho + quantidade > MAX_QUANTIDADE) { erro("Mais de " + MAX_QUANTIDADE + " unidades num item."); return; }
+
+        if (carrinho.isEmpty()) inicioVenda = System.nanoTime();
+        int indice;
+        if (linha == null) {
+            carrinho.add(new Linha(produto, quantidade));
+            indice = carrinho.size() - 1;
+        } else {
+            linha.quantidade += quantidade;
+            indice = carrinho.indexOf(linha);
+        }
+        modelo.fireTableDataChanged();
+        tabela.setRowSelectionInterval(indice, indice);
+        tabela.scrollRectToVisible(tabela.getCellRect(indice, 0, true));
+        mensagem(quantidade + " x " + produto.nome());
+        atualizarTotal();
+    }
+
+    private void removerItem() {
+        if (carrinho.isEmpty()) return;
+        int i = tabela.getSelectedRow();
+        Linha removida = carrinho.remove(i >= 0 ? i : carrinho.size() - 1);
+        modelo.fireTableDataChanged();
+        mensagem("Removido: " + removida.produto.nome());
+        atualizarTotal();
+    }
+
+    private void cancelarVenda() {
+        if (!carrinho.isEmpty() && !confirmar("Limpar a venda em andamento?")) return;
+        novaVenda();
+        mensagem("Venda cancelada.");
+    }
+
+    private void novaVenda() {
+        carrinho.clear();
+        modelo.fireTableDataChanged();
+        cliente = null;
+        cbStatus.setSelectedIndex(0);
+        lblCliente.setText("Cliente: (F2 para escolher)");
+        atualizarTotal();
+        entrada.requestFocusInWindow();
+    }
+
+    private double total() {
+        double total = 0;
+        for (Linha l : carrinho) total += l.produto.preco() * l.quantidade;
+        return total;
+    }
+
+    private void atualizarTotal() {
+        lblTotal.setText(String.format("Total: R$ %.2f", total()) + "   (" + carrinho.size() + " item(ns))");
+    }
+
+    // -------------------- Cliente --------------------
+    // Busca enquanto digita no índice em memória; "Novo cliente" cadastra com o texto digitado.
+    private void escolherCliente() {
+        CadastroClientes.Cliente escolhido = new SeletorBusca<CadastroClientes.Cliente>(this, "Cliente do pedido",
+                texto -> servico.buscarClientes(texto, SeletorBusca.LIMITE),
+                c -> c.id() + " - " + c.nome(),
+                "Novo cliente", texto -> {
+                    String nome = JOptionPane.showInputDialog(this, "Nome do cliente:", texto);
+                    if (nome == null || nome.isBlank()) return null;
+                    try {
+                        return servico.inserirCliente(nome.trim());
+                    } catch (SQLException e) {
+                        JOptionPane.showMessageDialog(this, "Erro ao adicionar cliente: " + e.getMessage());
+                        return null;
+                    }
+                }).abrir();
+        if (escolhido != null) {
+            cliente = escolhido;
+            lblCliente.setText("Cliente: " + escolhido.nome());
+        }
+        entrada.requestFocusInWindow();
+    }
+
+    // -------------------- Finalização --------------------
+    // A venda vai para a fila de gravação e a tela já fica livre para a próxima. Só
+    // depois do commit ela conta como registrada; se falhar, o aviso oferece devolver
+    // os itens ao carrinho (se o caixa ainda não começou outra venda).
+    private void finalizar() {
+        if (carrinho.isEmpty()) { erro("Carrinho vazio."); return; }
+        if (cliente == null) escolherCliente();
+        if (cliente == null) return;
+
+        List<Linha> itensVenda = new ArrayList<>(carrinho);
+        List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+        for (Linha l : itensVenda) itens.add(new MotorPedido.ItemPedido(l.produto.id(), l.quantidade));
+        CadastroClientes.Cliente clienteVenda = cliente;
+        String status = (String) cbStatus.getSelectedItem();
+        Metricas.registrar("caixa · venda", System.nanoTime() - inicioVenda, true);
+
+        gravando++;
+        servico.enviarPedido(funcionarioId, clienteVenda.id(), status, itens).whenComplete((resultado, falha) ->
+                SwingUtilities.invokeLater(() -> gravado(resultado, falha, clienteVenda, status, itensVenda)));
+        mensagem(String.format("Venda de %s (R$ %.2f) enviada.", clienteVenda.nome(), total()));
+        novaVenda();
+    }
+
+    private void gravado(MotorPedido.ResultadoPedido resultado, Throwable falha, CadastroClientes.Cliente clienteVenda,
+                         String status, List<Linha> itensVenda) {
+        gravando--;
+        if (falha == null && resultado.sucesso()) {
+            vendasTurno++;
+            confirmadas.addLast(System.currentTimeMillis());
+            if (resultado.pendente()) {
+                mensagem(String.format("Sem servidor: pedido de %s (R$ %.2f) guardado neste caixa (%d na fila).",
+                        clienteVenda.nome(), resultado.total(), servico.pedidosNaFilaLocal()));
+            } else {
+                mensagem(String.format("Pedido %d registrado: %s, R$ %.2f.", resultado.pedidoId(), clienteVenda.nome(), resultado.total()));
+            }
+            atualizarRitmo();
+            return;
+        }
+        StringBuilder msg = new StringBuilder("Pedido de " + clienteVenda.nome() + " NÃO registrado");
+        if (falha != null) {
+            Throwable causa = falha instanceof CompletionException && falha.getCause() != null ? falha.getCause() : falha;
+            msg.append(": ").append(causa.getMessage()).append("\n");
+        } else {
+            msg.append(" — estoque mudou durante a venda:\n");
+            for (MotorPedido.FalhaItem item : resultado.falhas()) msg.append("  - ").append(item.descricao()).append("\n");
+        }
+        erro("Último pedido de " + clienteVenda.nome() + " não foi registrado.");
+        if (!carrinho.isEmpty()) {
+            JOptionPane.showMessageDialog(this, msg.toString());
+            return;
+        }
+        if (confirmar(msg + "\nVoltar os itens para o carrinho?")) {
+            carrinho.addAll(itensVenda);
+            cliente = clienteVenda;
+            lblCliente.setText("Cliente: " + clienteVenda.nome());
+            cbStatus.setSelectedItem(status);
+            inicioVenda = System.nanoTime();
+            modelo.fireTableDataChanged();
+            atualizarTotal();
+        }
+        entrada.requestFocusInWindow();
+    }
+
+    // Vendas confirmadas nos últimos 10 minutos, por minuto, e quantas ainda estão gravando.
+    private void atualizarRitmo() {
+        long agora = System.currentTimeMillis();
+        while (!confirmadas.isEmpty() && confirmadas.peekFirst() < agora - JANELA_RITMO_MS) confirmadas.pollFirst();
+        double minutos = confirmadas.isEmpty() ? 1 : Math.max(1, (agora - confirmadas.peekFirst()) / 60_000.0);
+        lblRitmo.setText(String.format("%d venda(s) no turno | %.1f/min (10 min)", vendasTurno, confirmadas.size() / minutos)
+                + (gravando > 0 ? " | gravando " + gravando : ""));
+    }
+
+    // -------------------- Auxiliares --------------------
+    private void mensagem(String texto) {
+        lblMensagem.setForeground(UIManager.getColor("Label.foreground"));
+        lblMensagem.setText(texto);
+    }
+
+    private void erro(String texto) {
+        Toolkit.getDefaultToolkit().beep();
+        lblMensagem.setForeground(COR_ERRO);
+        lblMensagem.setText(texto);
+    }
+
+    private boolean confirmar(String pergunta) {
+        return JOptionPane.showConfirmDialog(this, pergunta, "Caixa", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+    }
+
+    private void tecla(int codigo, Runnable acao) {
+        String nome = "caixa-" + codigo;
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(codigo, 0), nome);
+        getRootPane().getActionMap().put(nome, new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                acao.run();
+            }
+        });
+    }
+
+    private final class ModeloCarrinho extends AbstractTableModel {
+        private final String[] colunas = {"ID", "Produto", "Qtd", "Preço", "Subtotal"};
+
+        @Override
+        public int getRowCount() {
+            return carrinho.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return colunas.length;
+        }
+
+        @Override
+        public String getColumnName(int coluna) {
+            return colunas[coluna];
+        }
+
+        @Override
+        public Object getValueAt(int linha, int coluna) {
+            Linha l = carrinho.get(linha);
+            return switch (coluna) {
+                case 0 -> l.produto.id();
+                case 1 -> l.produto.nome();
+                case 2 -> l.quantidade;
+                case 3 -> String.format("%.2f", l.produto.preco());
+                default -> String.format("%.2f", l.produto.preco() * l.quantidade);
+            };
+        }
+    }
+}
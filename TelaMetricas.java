@@ -0,0 +1,72 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.format.DateTimeFormatter;
+
+// -------------------- Tela de métricas (admin) --------------------
+// Latência por operação desde que o caixa abriu (e p95 dos últimos 1-2 minutos),
+// atualizada a cada segundo, e as consultas lentas mais recentes com o SQL.
+public class TelaMetricas extends JFrame {
+
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final DefaultTableModel modeloOperacoes = new DefaultTableModel(new String[]{"Operação", "Qtd", "Erros",
+            "Média ms", "p50 ms", "p95 ms", "p99 ms", "Máx ms", "Qtd recente", "p95 recente ms"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final DefaultTableModel modeloLentas = new DefaultTableModel(new String[]{"Hora", "Operação", "ms", "SQL"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final Timer timer = new Timer(1000, e -> atualizar());
+
+    public TelaMetricas() {
+        super("Métricas de desempenho");
+        setSize(1000, 560);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JTable lentas = new JTable(modeloLentas);
+        lentas.getColumnModel().getColumn(3).setPreferredWidth(600);
+        JSplitPane divisao = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(new JTable(modeloOperacoes)), new JScrollPane(lentas));
+        divisao.setResizeWeight(0.6);
+        add(divisao, BorderLayout.CENTER);
+        add(new JLabel("Consultas lentas: acima de " + Metricas.LIMIAR_LENTA_MS + " ms (últimas 50)"), BorderLayout.SOUTH);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+            }
+        });
+    }
+
+    public void iniciar() {
+        atualizar();
+        timer.start();
+        setVisible(true);
+    }
+
+    private void atualizar() {
+        modeloOperacoes.setRowCount(0);
+        for (Metricas.Resumo r : Metricas.resumos()) {
+            modeloOperacoes.addRow(new Object[]{r.nome(), r.quantidade(), r.erros(), ms(r.mediaMs()), ms(r.p50Ms()),
+                    ms(r.p95Ms()), ms(r.p99Ms()), ms(r.maxMs()), r.quantidadeRecente(), ms(r.p95RecenteMs())});
+        }
+        modeloLentas.setRowCount(0);
+        for (Metricas.ConsultaLenta c : Metricas.consultasLentas()) {
+            modeloLentas.addRow(new Object[]{c.quando().format(HORA), c.operacao(), ms(c.ms()), c.sql()});
+        }
+    }
+
+    private static String ms(double valor) {
+        return String.format("%.2f", valor);
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.File;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+// -------------------- Verificação do estoque com vários caixas --------------------
+// Ferramenta sem interface: põe N caixas vendendo ao mesmo tempo, cada um com sua
+// conexão via TCP (como um segundo terminal enxerga o banco aberto com AUTO_SERVER),
+// contra poucos produtos com estoque pequeno, até esgotar tudo. Cada produto tem três
+// lotes de validades diferentes, então a baixa passa pelo primeiro lote e pelos
+// seguintes (EstoqueLotes). No fim de cada rodada confere no banco:
+//   - nenhum produto nem lote ficou com quantidade negativa;
+//   - as unidades vendidas (pedido_item) são exatamente o que saiu do estoque;
+//   - o total de cada produto continua sendo a soma dos lotes.
+// Imprime pedidos e unidades por segundo para cada número de caixas e termina com
+// código 1 se alguma conferência falhar.
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar VerificacaoEstoque
+//        [--caixas 1,2,4,8] [--produtos 5] [--estoque 1000]
+public class VerificacaoEstoque {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) opcoes.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int[] caixas = Arrays.stream(opcoes.getOrDefault("caixas", "1,2,4,8").split(",")).mapToInt(Integer::parseInt).toArray();
+        int produtos = Integer.parseInt(opcoes.getOrDefault("produtos", "5"));
+        int estoque = Integer.parseInt(opcoes.getOrDefault("estoque", "1000"));
+
+        File dir = new File(System.getProperty("java.io.tmpdir"), "cantina-estoque-" + System.nanoTime());
+        dir.mkdirs();
+        org.h2.tools.Server servidor = org.h2.tools.Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/" + new File(dir, "cantina").getAbsolutePath();
+
+        boolean ok = true;
+        try (PoolConexoes pool = new PoolConexoes(url, "sa", "", 1, 5000)) {
+            int[] pessoas = pool.executar(c -> {
+                SistemaCantinaComBalanco.criarEsquema(c.jdbc());
+                return semearPessoas(c.jdbc());
+            });
+            System.out.printf("%d produtos com %d unidades cada, em 3 lotes; vende até esgotar%n", produtos, estoque);
+            for (int n : caixas) {
+                List<Integer> ids = pool.transacao(c -> semearProdutos(c, n, produtos, estoque));
+                Rodada r = vender(url, n, pessoas[0], pessoas[1], ids);
+                ok &= conferir(pool, n, ids, produtos * estoque, r);
+            }
+        } finally {
+            servidor.stop();
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private record Rodada(int pedidos, int recusas, double segundos) {}
+
+    // Cada caixa escolhe 1 a 3 produtos ainda não esgotados, 1 a 4 unidades de cada.
+    // Um produto é dado como esgotado quando uma venda falha com 0 disponível nele.
+    private static Rodada vender(String url, int caixas, int funcionarioId, int clienteId, List<Integer> ids) throws Exception {
+        Set<Integer> esgotados = Collections.synchronizedSet(new HashSet<>());
+        int[] pedidos = new int[caixas];
+        int[] recusas = new int[caixas];
+        List<Exception> erros = Collections.synchronizedList(new ArrayList<>());
+        try (PoolConexoes pool = new PoolConexoes(url, "sa", "", caixas, 30_000)) {
+            MotorPedido motor = new MotorPedido(pool);
+            List<Thread> threads = new ArrayList<>();
+            long inicio = System.nanoTime();
+            for (int t = 0; t < caixas; t++) {
+                int caixa = t;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    try {
+                        while (true) {
+                            List<Integer> disponiveis;
+                            synchronized (esgotados) {
+                                disponiveis = ids.stream().filter(id -> !esgotados.contains(id)).toList();
+                            }
+                            if (disponiveis.isEmpty()) return;
+                            List<Integer> escolha = new ArrayList<>(disponiveis);
+                            Collections.shuffle(escolha, rnd);
+                            List<MotorPedido.ItemPedido> itens = new ArrayList<>();
+                            for (int id : escolha.subList(0, Math.min(escolha.size(), 1 + rnd.nextInt(3)))) {
+                                itens.add(new MotorPedido.ItemPedido(id, 1 + rnd.nextInt(4)));
+                            }
+                            MotorPedido.ResultadoPedido r = motor.registrar(funcionarioId, clienteId, "Pago", itens);
+                            if (r.sucesso()) {
+                                pedidos[caixa]++;
+                            } else {
+                                recusas[caixa]++;
+                                for (MotorPedido.FalhaItem f : r.falhas()) {
+                                    if (f.disponivel() == 0) esgotados.add(f.produtoId());
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        erros.add(e);
+                    }
+                }));
+            }
+            for (Thread t : threads) t.join();
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            if (!erros.isEmpty()) throw erros.get(0);
+            return new Rodada(Arrays.stream(pedidos).sum(), Arrays.stream(recusas).sum(), segundos);
+        }
+    }
+
+    private static boolean conferir(PoolConexoes pool, int caixas, List<Integer> ids, int inicial, Rodada r) throws SQLException {
+        return pool.executar(c -> {
+            Integer[] lista = ids.toArray(new Integer[0]);
+            long minimoProduto, atual, minimoLote, vendido, divergentes;
+            PreparedStatement ps = c.preparar("SELECT MIN(quantidade), SUM(quantidade) FROM produto WHERE id = ANY(?)");
+            ps.setObject(1, lista);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                minimoProduto = rs.getLong(1);
+                atual = rs.getLong(2);
+            }
+            minimoLote = umValor(c, "SELECT COALESCE(MIN(quantidade), 1) FROM produto_lote WHERE produto_id = ANY(?)", lista);
+            vendido = umValor(c, "SELECT COALESCE(SUM(quantidade), 0) FROM pedido_item WHERE produto_id = ANY(?)", lista);
+            divergentes = umValor(c, """
+                    SELECT COUNT(*) FROM produto p WHERE p.id = ANY(?)
+                    AND p.quantidade <> (SELECT COALESCE(SUM(l.quantidade), 0) FROM produto_lote l WHERE l.produto_id = p.id)
+                    """, lista);
+
+            System.out.printf("%2d caixas  %6.0f pedidos/s  %6.0f unidades/s  (%d pedidos, %d recusados, %.1f s)%n",
+                    caixas, r.pedidos() / r.segundos(), vendido / r.segundos(), r.pedidos(), r.recusas(), r.segundos());
+            boolean ok = true;
+            if (minimoProduto < 0 || minimoLote <= 0) {
+                System.out.printf("   ERRO: estoque negativo (menor produto %d, menor lote %d)%n", minimoProduto, minimoLote);
+                ok = false;
+            }
+            if (vendido != inicial - atual) {
+                System.out.printf("   ERRO: vendidas %d unidades, mas o estoque caiu %d%n", vendido, inicial - atual);
+                ok = false;
+            }
+            if (divergentes > 0) {
+                System.out.printf("   ERRO: %d produtos com total diferente da soma dos lotes%n", divergentes);
+                ok = false;
+            }
+            if (atual > 0) System.out.printf("   sobraram %d unidades sem vender%n", atual);
+            return ok;
+        });
+    }
+
+    private static long umValor(PoolConexoes.Conexao c, String sql, Integer[] ids) throws SQLException {
+        PreparedStatement ps = c.preparar(sql);
+        ps.setObject(1, ids);
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Produtos novos a cada rodada, sem estoque no cadastro: as unidades entram como
+    // três lotes (vence em 5 dias, em 30 dias e sem validade).
+    private static List<Integer> semearProdutos(PoolConexoes.Conexao c, int rodada, int produtos, int estoque) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        PreparedStatement ps = c.prepararComChaves("INSERT INTO produto(nome, tipo, preco, quantidade) VALUES (?, 'Salgado', ?, 0)");
+        for (int i = 1; i <= produtos; i++) {
+            ps.setString(1, "Rodada " + rodada + " produto " + i);
+            ps.setDouble(2, 2.5 + i);
+            ps.executeUpdate();
+            try (ResultSet gen = ps.getGeneratedKeys()) {
+                gen.next();
+                ids.add(gen.getInt(1));
+            }
+        }
+        LocalDate hoje = LocalDate.now();
+        for (int id : ids) {
+            EstoqueLotes.entrada(c, id, estoque / 3, hoje.plusDays(30));
+            EstoqueLotes.entrada(c, id, estoque / 3, hoje.plusDays(5));
+            EstoqueLotes.entrada(c, id, estoque - 2 * (estoque / 3), null);
+        }
+        return ids;
+    }
+
+    private static int[] semearPessoas(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES ('estoque', '', 'Verificação', 0)");
+            st.executeUpdate("INSERT INTO cliente(nome) VALUES ('Cliente Verificação')");
+            try (ResultSet rs = st.executeQuery("SELECT (SELECT MAX(id) FROM funcionario), (SELECT MAX(id) FROM cliente)")) {
+                rs.next();
+                return new int[]{rs.getInt(1), rs.getInt(2)};
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// -------------------- Verificação da exportação com heap pequeno --------------------
+// Ferramenta sem interface: semeia um banco em arquivo com alguns milhões de itens
+// de pedido (alguns com preço NaN e infinito) e exporta o balanço inteiro em CSV e
+// em XLSX pelo mesmo caminho da tela (ExportadorBalanco). Tem de rodar com heap
+// pequeno: a exportação não pode reter linhas em memória, então um OutOfMemoryError
+// é falha. Depois relê os arquivos em fluxo e confere o número de linhas e que
+// nenhuma célula numérica do xlsx saiu como NaN ou Infinity.
+// Termina com código 1 se faltar memória ou alguma conferência falhar.
+// Uso: java -Xmx64m -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar VerificacaoExportacao
+//        [--itens 2000000]
+public class VerificacaoExportacao {
+
+    private static final long HEAP_MAXIMO = 64L * 1024 * 1024;
+    private static final int POR_LOTE = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int itens = args.length >= 2 && args[0].equals("--itens") ? Integer.parseInt(args[1]) : 2_000_000;
+        long heap = Runtime.getRuntime().maxMemory();
+        if (heap > HEAP_MAXIMO + HEAP_MAXIMO / 10) {
+            System.out.printf("Heap de %d MB: rode com -Xmx64m (ou menos) para a verificação valer.%n", heap >> 20);
+            System.exit(1);
+        }
+
+        File dir = new File(System.getProperty("java.io.tmpdir"), "cantina-exportacao-" + System.nanoTime());
+        dir.mkdirs();
+        String url = "jdbc:h2:" + new File(dir, "cantina").getAbsolutePath() + ";CACHE_SIZE=8192";
+        File csv = new File(dir, "balanco.csv");
+        File xlsx = new File(dir, "balanco.xlsx");
+
+        boolean ok = true;
+        try (PoolConexoes pool = new PoolConexoes(url, "sa", "", 1, 5000)) {
+            long t0 = System.nanoTime();
+            pool.executar(c -> {
+                SistemaCantinaComBalanco.criarEsquema(c.jdbc());
+                semear(c.jdbc(), itens);
+                return null;
+            });
+            System.out.printf("%d itens semeados em %.1f s, heap máximo %d MB%n", itens, (System.nanoTime() - t0) / 1e9, heap >> 20);
+
+            ConsultaBalanco consulta = new ConsultaBalanco(pool, new FiltroBalanco(null, null, null));
+            try {
+                t0 = System.nanoTime();
+                long linhasCsv = ExportadorBalanco.exportarCSV(consulta, csv);
+                System.out.printf("CSV   %d linhas, %d MB, %.1f s%n", linhasCsv, csv.length() >> 20, (System.nanoTime() - t0) / 1e9);
+                t0 = System.nanoTime();
+                long linhasXlsx = ExportadorBalanco.exportarXLSX(consulta, xlsx);
+                System.out.printf("XLSX  %d linhas, %d MB, %.1f s%n", linhasXlsx, xlsx.length() >> 20, (System.nanoTime() - t0) / 1e9);
+                ok &= conferir("CSV exportado", linhasCsv, itens);
+                ok &= conferir("XLSX exportado", linhasXlsx, itens);
+            } catch (OutOfMemoryError e) {
+                System.out.println("ERRO: faltou memória na exportação (" + e.getMessage() + ")");
+                ok = false;
+            }
+        }
+        if (ok) {
+            ok &= conferir("linhas no CSV", linhasArquivoCsv(csv) - 1, itens);
+            ok &= conferirXlsx(xlsx, itens);
+        }
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // 50 clientes, 20 produtos, 3 itens por pedido; a cada 100.000 itens, um com preço
+    // NaN e outro infinito. Em lotes com commit, para o undo log não crescer.
+    private static void semear(Connection conn, int itens) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES ('exportacao', '', 'Exportação', 1)");
+            st.execute("INSERT INTO cliente(nome) SELECT 'Cliente ' || X FROM SYSTEM_RANGE(1, 50)");
+            st.execute("INSERT INTO produto(nome, tipo, preco, quantidade) SELECT 'Produto ' || X, 'Salgado', 5, 1000 FROM SYSTEM_RANGE(1, 20)");
+        }
+        int pedidos = (itens + 2) / 3;
+        try (PreparedStatement pedido = conn.prepareStatement("""
+                     INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento, data)
+                     SELECT 1, MOD(X, 50) + 1, 15, 'Pago', DATEADD('SECOND', -X * 10, CURRENT_TIMESTAMP)
+                     FROM SYSTEM_RANGE(?, ?)
+                     """);
+             PreparedStatement item = conn.prepareStatement("""
+                     INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario)
+                     SELECT p.id, MOD(p.id + r.X, 20) + 1, r.X,
+                            CASE MOD((p.id - 1) * 3 + r.X, 100000) WHEN 1 THEN CAST('NaN' AS DOUBLE)
+                                 WHEN 2 THEN CAST('Infinity' AS DOUBLE) ELSE 5 END
+                     FROM pedido p, SYSTEM_RANGE(1, 3) r
+                     WHERE p.id BETWEEN ? AND ? AND (p.id - 1) * 3 + r.X <= ?
+                     """)) {
+            for (int de = 1; de <= pedidos; de += POR_LOTE / 3) {
+                int ate = Math.min(pedidos, de + POR_LOTE / 3 - 1);
+                pedido.setInt(1, de);
+                pedido.setInt(2, ate);
+                pedido.executeUpdate();
+                item.setInt(1, de);
+                item.setInt(2, ate);
+                item.setInt(3, itens);
+                item.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean conferir(String nome, long obtido, long esperado) {
+        boolean ok = obtido == esperado;
+        System.out.printf("%-22s %s%n", nome, ok ? "OK (" + obtido + ")" : "ERRO: " + obtido + ", esperado " + esperado);
+        return ok;
+    }
+
+    private static long linhasArquivoCsv(File csv) throws IOException {
+        long linhas = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(csv), 64 * 1024)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') linhas++;
+            }
+        }
+        return linhas;
+    }
+
+    // Relê as abas do zip em fluxo: linhas de itens (menos um cabeçalho por aba) e
+    // valores numéricos que o Excel não aceitaria. A última aba é o resumo por cliente.
+    private static boolean conferirXlsx(File xlsx, int itens) throws IOException {
+        long[] linhasPorAba = new long[64];
+        int abas = 0;
+        long invalidos = 0;
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(xlsx), 64 * 1024))) {
+            ZipEntry e;
+            while ((e = zip.getNextEntry()) != null) {
+                if (!e.getName().startsWith("xl/worksheets/sheet")) continue;
+                Contador linha = new Contador("<row ");
+                Contador[] ruins = {new Contador("<v>NaN"), new Contador("<v>Infinity"), new Contador("<v>-Infinity")};
+                int b;
+                while ((b = zip.read()) != -1) {
+                    linha.ler(b);
+                    for (Contador r : ruins) r.ler(b);
+                }
+                linhasPorAba[abas++] = linha.vezes;
+                for (Contador r : ruins) invalidos += r.vezes;
+            }
+        }
+        long linhas = 0;
+        for (int i = 0; i < abas - 1; i++) linhas += linhasPorAba[i] - 1;
+        boolean ok = conferir("linhas no XLSX", linhas, itens);
+        ok &= conferir("NaN/Infinity no XLSX", invalidos, 0);
+        return ok;
+    }
+
+    // Conta ocorrências de um trecho ASCII num fluxo de bytes (sem repetição de prefixo).
+    private static final class Contador {
+        private final byte[] trecho;
+        private int pos;
+        long vezes;
+
+        Contador(String trecho) {
+            this.trecho = trecho.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        void ler(int b) {
+            if (b == trecho[pos]) {
+                if (++pos == trecho.length) {
+                    vezes++;
+                    pos = 0;
+                }
+            } else {
+                pos = b == trecho[0] ? 1 : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+// -------------------- Verificação dos planos de consulta --------------------
+// Ferramenta sem interface: aplica as migrações num banco em memória com vendas de
+// um ano e confere (EXPLAIN do H2) que as consultas do balanço filtradas por
+// período usam o índice de pedido.data em vez de varrer a tabela inteira, e que
+// com o arquivo (ArquivoPedidos) a parte arquivada usa o de pedido_arquivo.data.
+// As consultas impõem o índice (USE INDEX), então só o nome dele no plano não basta:
+// o H2 o citaria também percorrendo o índice inteiro. O plano tem de mostrar a busca
+// por faixa nele ("IDX_PEDIDO_DATA: DATA >= ?1").
+// Termina com código 1 se algum plano não fizer a busca por faixa de data.
+// Uso: java -cp .:h2-2.4.240.jar:jdatepicker-1.3.4.jar VerificacaoPlano
+public class VerificacaoPlano {
+
+    private static final String INDICE_DATA = "IDX_PEDIDO_DATA";
+    private static final String INDICE_DATA_ARQUIVO = "IDX_PEDIDO_ARQUIVO_DATA";
+
+    public static void main(String[] args) throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:verificacao-plano", "sa", "")) {
+            SistemaCantinaComBalanco.criarEsquema(conn);
+            semear(conn);
+
+            FiltroBalanco filtro = new FiltroBalanco(null, LocalDate.now().minusDays(7), LocalDate.now());
+            FiltroBalanco filtroCliente = new FiltroBalanco("Cliente 1", LocalDate.now().minusDays(7), LocalDate.now());
+            boolean ok = true;
+            String totais = "SELECT c.id, c.nome, COUNT(DISTINCT p.id), SUM(pi.quantidade * pi.preco_unitario)";
+            ok &= conferir(conn, "totais por cliente", filtro, 1,
+                    totais + ConsultaBalanco.fromDetalhe(filtro, false) + " GROUP BY c.id, c.nome", INDICE_DATA);
+            ok &= conferir(conn, "itens do período", filtro, 1,
+                    "SELECT c.nome, p.id, pr.nome, pi.quantidade" + ConsultaBalanco.fromDetalhe(filtro, false) +
+                    " ORDER BY c.nome, p.id, pi.id", INDICE_DATA);
+            ok &= conferir(conn, "itens do período por cliente", filtroCliente, 1,
+                    "SELECT c.nome, p.id, pr.nome, pi.quantidade" + ConsultaBalanco.fromDetalhe(filtroCliente, false) +
+                    " ORDER BY c.nome, p.id, pi.id", INDICE_DATA);
+            ok &= conferir(conn, "totais com o arquivo", filtro, 2,
+                    totais + ConsultaBalanco.fromDetalhe(filtro, false) + " GROUP BY c.id, c.nome UNION ALL " +
+                    totais + ConsultaBalanco.fromDetalhe(filtro, true) + " GROUP BY c.id, c.nome",
+                    INDICE_DATA, INDICE_DATA_ARQUIVO);
+            System.exit(ok ? 0 : 1);
+        }
+    }
+
+    // partes: quantas vezes os parâmetros do filtro aparecem (2 com UNION ALL do arquivo).
+    private static boolean conferir(Connection conn, String nome, FiltroBalanco filtro, int partes, String sql,
+                                    String... indices) throws SQLException {
+        String plano;
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            int idx = 1;
+            for (int i = 0; i < partes; i++) idx = filtro.preencher(ps, idx);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                plano = rs.getString(1);
+            }
+        }
+        boolean usa = true;
+        for (String indice : indices) usa &= Pattern.compile(indice + ": DATA >= \\?\\d+").matcher(plano).find();
+        System.out.printf("%-30s %s%n", nome, usa ? "OK (" + String.join(", ", indices) + ", faixa de data)" : "SEM FAIXA DE DATA NO ÍNDICE");
+        if (!usa) System.out.println(plano);
+        return usa;
+    }
+
+    // 50 clientes, 20 produtos e ~20 pedidos por dia durante um ano.
+    private static void semear(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES ('plano', 'plano', 'Plano', 1)");
+            st.execute("INSERT INTO cliente(nome) SELECT 'Cliente ' || X FROM SYSTEM_RANGE(1, 50)");
+            st.execute("INSERT INTO produto(nome, tipo, preco, quantidade) SELECT 'Produto ' || X, 'Salgado', 5, 1000 FROM SYSTEM_RANGE(1, 20)");
+            EstoqueLotes.criarLotesIniciais(conn);
+            st.execute("""
+                    INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento, data)
+                    SELECT 1, MOD(X, 50) + 1, 10, 'Pago', DATEADD('MINUTE', -X * 72, CURRENT_TIMESTAMP)
+                    FROM SYSTEM_RANGE(1, 7300)
+                    """);
+            st.execute("""
+                    INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario)
+                    SELECT id, MOD(id, 20) + 1, 2, 5 FROM pedido
+                    """);
+            st.execute("ANALYZE");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cantina;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Consultas da tela de balanço (exibirBalancoClientesComFiltro) por tamanho de período:
+// totais por cliente, contagem e primeira página de pedidos.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalancoBenchmark {
+
+    @Param({"7", "30", "365"})
+    public int dias;
+
+    private BancoSemeado banco;
+    private ConsultaBalanco consulta;
+
+    @Setup(Level.Trial)
+    public void preparar(BancoSemeado banco) {
+        this.banco = banco;
+        consulta = new ConsultaBalanco(banco.pool, new FiltroBalanco(null, LocalDate.now().minusDays(dias - 1), LocalDate.now()));
+    }
+
+    @Setup(Level.Invocation)
+    public void venda() throws SQLException {
+        banco.simularVenda();
+    }
+
+    @Benchmark
+    public List<ConsultaBalanco.TotalCliente> totaisPorCliente() throws SQLException {
+        return consulta.totaisPorCliente();
+    }
+
+    @Benchmark
+    public int contarPedidos() throws SQLException {
+        return consulta.contarPedidos();
+    }
+
+    @Benchmark
+    public List<ConsultaBalanco.TotalPedido> primeiraPaginaPedidos() throws SQLException {
+        return consulta.pedidos(0, 200);
+    }
+}
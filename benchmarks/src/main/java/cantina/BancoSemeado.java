@@ -0,0 +1,67 @@
+package cantina;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Banco H2 em arquivo temporário, com as migrações aplicadas e um ano de vendas:
+// 2.000 clientes, 200 produtos (estoque que não acaba) e 40.000 pedidos de 3 itens.
+@State(Scope.Benchmark)
+public class BancoSemeado {
+
+    static final int CLIENTES = 2_000;
+    static final int PRODUTOS = 200;
+    static final int PEDIDOS = 40_000;
+
+    PoolConexoes pool;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void criar() throws Exception {
+        dir = Files.createTempDirectory("cantina-bench").toFile();
+        pool = new PoolConexoes("jdbc:h2:file:" + new File(dir, "cantina").getAbsolutePath(), "sa", "", 4, 5000);
+        pool.executar(c -> {
+            SistemaCantinaComBalanco.criarEsquema(c.jdbc());
+            try (Statement st = c.jdbc().createStatement()) {
+                st.execute("INSERT INTO funcionario(usuario, senha, nome, is_admin) VALUES ('bench', 'bench', 'Bench', 1)");
+                st.execute("INSERT INTO cliente(nome) SELECT 'Cliente ' || X FROM SYSTEM_RANGE(1, " + CLIENTES + ")");
+                st.execute("INSERT INTO produto(nome, tipo, preco, quantidade) " +
+                        "SELECT 'Produto ' || X, CASE WHEN MOD(X, 2) = 0 THEN 'Doce' ELSE 'Salgado' END, " +
+                        "2 + MOD(X, 10), 1000000000 FROM SYSTEM_RANGE(1, " + PRODUTOS + ")");
+                EstoqueLotes.criarLotesIniciais(c.jdbc());
+                st.execute("INSERT INTO pedido(funcionario_id, cliente_id, valor_total, forma_pagamento, data) " +
+                        "SELECT 1, MOD(X * 7, " + CLIENTES + ") + 1, 0, CASE WHEN MOD(X, 5) = 0 THEN 'Em aberto' ELSE 'Pago' END, " +
+                        "DATEADD('SECOND', -X * " + (365L * 24 * 3600 / PEDIDOS) + ", CURRENT_TIMESTAMP) " +
+                        "FROM SYSTEM_RANGE(1, " + PEDIDOS + ")");
+                st.execute("INSERT INTO pedido_item(pedido_id, produto_id, quantidade, preco_unitario) " +
+                        "SELECT p.id, MOD(p.id * 3 + k.X, " + PRODUTOS + ") + 1, 1 + MOD(p.id, 3), 2 + MOD(p.id + k.X, 10) " +
+                        "FROM pedido p CROSS JOIN SYSTEM_RANGE(1, 3) k");
+                st.execute("ANALYZE");
+            }
+            return null;
+        });
+    }
+
+    // O H2 devolve o resultado anterior se a mesma consulta roda de novo sem escrita
+    // nas tabelas que ela lê; no caixa sempre há vendas entre uma consulta e outra.
+    // Uma baixa de estoque (produto entra em todas as consultas do balanço) antes de
+    // cada chamada mede a consulta de verdade.
+    void simularVenda() throws SQLException {
+        pool.executar(c -> c.preparar("UPDATE produto SET quantidade = quantidade - 1 WHERE id = 1").executeUpdate());
+    }
+
+    @TearDown(Level.Trial)
+    public void apagar() {
+        pool.close();
+        File[] arquivos = dir.listFiles();
+        if (arquivos != null) for (File f : arquivos) f.delete();
+        dir.delete();
+    }
+}
@@ -0,0 +1,45 @@
+package cantina;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Listagem de produtos: recarga do catálogo a partir do banco e leituras em memória.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogoBenchmark {
+
+    private PoolConexoes pool;
+    private final CatalogoProdutos catalogo = new CatalogoProdutos();
+
+    @Setup(Level.Trial)
+    public void preparar(BancoSemeado banco) throws SQLException {
+        pool = banco.pool;
+        recarregar();
+    }
+
+    @Benchmark
+    public CatalogoProdutos recarregar() throws SQLException {
+        pool.executar(c -> {
+            catalogo.recarregar(c.jdbc());
+            return null;
+        });
+        return catalogo;
+    }
+
+    @Benchmark
+    public List<CatalogoProdutos.Produto> listarDisponiveis() {
+        return catalogo.listarDisponiveis();
+    }
+
+    @Benchmark
+    public List<CatalogoProdutos.Produto> buscarPorNome() {
+        return catalogo.buscar("produto 1", SeletorBusca.LIMITE);
+    }
+}
@@ -0,0 +1,42 @@
+package cantina;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Exportação CSV do balanço, do cursor JDBC até um Writer que descarta a saída
+// (mede consulta + formatação, sem o disco).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportacaoBenchmark {
+
+    @Param({"30", "365"})
+    public int dias;
+
+    private BancoSemeado banco;
+    private ConsultaBalanco consulta;
+
+    @Setup(Level.Trial)
+    public void preparar(BancoSemeado banco) {
+        this.banco = banco;
+        consulta = new ConsultaBalanco(banco.pool, new FiltroBalanco(null, LocalDate.now().minusDays(dias - 1), LocalDate.now()));
+    }
+
+    @Setup(Level.Invocation)
+    public void venda() throws SQLException {
+        banco.simularVenda();
+    }
+
+    @Benchmark
+    public long exportarCSV() throws SQLException, IOException {
+        return ExportadorBalanco.exportarCSV(consulta, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,38 @@
+package cantina;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Gravação de um pedido completo (preços, baixa de estoque, itens, resumo diário e commit).
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PedidoBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int itens;
+
+    private MotorPedido motor;
+    private List<MotorPedido.ItemPedido> pedido;
+
+    @Setup(Level.Trial)
+    public void preparar(BancoSemeado banco) {
+        motor = new MotorPedido(banco.pool);
+        pedido = new ArrayList<>();
+        for (int i = 1; i <= itens; i++) pedido.add(new MotorPedido.ItemPedido(i * 3 % BancoSemeado.PRODUTOS + 1, 1));
+    }
+
+    @Benchmark
+    public MotorPedido.ResultadoPedido registrar() throws SQLException {
+        MotorPedido.ResultadoPedido r = motor.registrar(1, 1, "Pago", pedido);
+        if (!r.sucesso()) throw new IllegalStateException(r.falhas().toString());
+        return r;
+    }
+}